@@ -71,6 +71,9 @@ public class SecurityConfig {
                         .requestMatchers("/api/upload/property-image/**").permitAll()
                         .requestMatchers("/api/upload/document/**").permitAll() // ✅ NEW
                         .requestMatchers("/api/upload/deal-document/**").permitAll() // ✅ NEW
+                        .requestMatchers("/api/upload/presign/**").permitAll()
+                        .requestMatchers("/api/upload/complete/**").permitAll()
+                        .requestMatchers("/api/files/**").permitAll() // local BlobStore; private files need a signed url
                         .requestMatchers("/api/property-types/**").permitAll()
                         .requestMatchers("/api/property-images/**").permitAll()
                         .requestMatchers("/api/featured-properties/**").permitAll()
@@ -1,5 +1,6 @@
 package com.example.realestate.controller;
 
+import com.example.realestate.model.DealEvent;
 import com.example.realestate.model.DealStatus;
 import com.example.realestate.model.User;
 import com.example.realestate.service.DealService;
@@ -7,6 +8,7 @@ import com.example.realestate.dto.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -39,11 +41,15 @@ public class DealController {
     /**
      * ⭐ CORRECTED: Fetches deals relevant to the specified user based on their ACTUAL system role.
      * It IGNORES the {userRole} path variable and uses the role fetched from the database.
+     * Optional: ?stage=NEGOTIATION to filter, ?limit=20&cursor=... for keyset pages (returns a DealPage).
      */
     @GetMapping("/user/{userId}/role/{userRole}") // Keep path for compatibility, but ignore {userRole}
     public ResponseEntity<?> getDealsByUserAndRole(
             @PathVariable Long userId,
             @PathVariable String userRole, // This path variable is now ignored
+            @RequestParam(required = false) DealStatus.DealStage stage,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Integer limit,
             Authentication authentication) {
         logger.info("Deal Controller started");
         // Log the received path variable, but note that it won't be used for logic
@@ -70,8 +76,15 @@ public class DealController {
             logger.info("Fetched user {} has actual role: {}", userId, actualUserRole);
 
 
+            // ⭐ Paged request: one keyset page per call
+            if (limit != null || cursor != null) {
+                DealPage page = dealService.getDealsByRole(userId, actualUserRole, stage, cursor,
+                        limit != null ? limit : 20);
+                return ResponseEntity.ok(ApiResponse.success(page));
+            }
+
             // ⭐ FIX: Pass the ACTUAL role to the service method
-            List<DealDetailDTO> deals = dealService.getDealsByRole(userId, actualUserRole);
+            List<DealDetailDTO> deals = dealService.getDealsByRole(userId, actualUserRole, stage);
 
             // Log using the actual role
             logger.info("✅ Found {} deals for user {} with actual role {}", deals.size(), userId, actualUserRole);
@@ -325,6 +338,35 @@ public class DealController {
                     .body(ApiResponse.error("An unexpected error occurred fetching the deal."));
         }
     }
+    // ==================== DEAL TIMELINE ====================
+    /**
+     * ⭐ Stage changes and notes of a deal, newest first: /api/deals/{dealId}/events?page=0&size=20
+     */
+    @GetMapping("/{dealId}/events")
+    public ResponseEntity<?> getDealTimeline(
+            @PathVariable Long dealId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        logger.info("Fetching timeline for Deal ID: {} (page {}, size {})", dealId, page, size);
+        try {
+            Slice<DealEvent> events = dealService.getDealTimeline(dealId, page, size);
+
+            Map<String, Object> body = new HashMap<>();
+            body.put("events", events.getContent());
+            body.put("page", events.getNumber());
+            body.put("size", events.getSize());
+            body.put("hasMore", events.hasNext());
+            return ResponseEntity.ok(ApiResponse.success(body));
+        } catch (RuntimeException e) {
+            logger.error("❌ Error fetching timeline for deal {}: {}", dealId, e.getMessage());
+            if (e.getMessage() != null && e.getMessage().contains("Deal not found")) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponse.error(e.getMessage()));
+            }
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     // ==================== UPDATE DEAL STAGE ====================
     @PutMapping("/{dealId}/stage")
     public ResponseEntity<?> updateDealStage(
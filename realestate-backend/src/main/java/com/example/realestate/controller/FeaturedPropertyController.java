@@ -4,11 +4,14 @@ import com.example.realestate.dto.*;
 import com.example.realestate.model.FeaturedProperty;
 import com.example.realestate.model.Property;
 import com.example.realestate.service.FeaturedPropertyService;
+import com.example.realestate.service.FeaturedSnapshotService;
 import com.example.realestate.service.RazorpayService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -30,6 +33,9 @@ public class FeaturedPropertyController {
     @Autowired
     private FeaturedPropertyService featuredPropertyService;
 
+    @Autowired
+    private FeaturedSnapshotService featuredSnapshotService;
+
     @PostMapping("/apply")
     public ResponseEntity<?> applyFeatured(@RequestBody ApplyFeaturedRequest request) {
         try {
@@ -72,8 +78,20 @@ public class FeaturedPropertyController {
     }
 
 
+    /**
+     * Served from the pre-serialized snapshot; a matching If-None-Match gets 304
+     */
     @GetMapping("/active")
-    public ResponseEntity<Map<String, Object>> getActive() {
+    public ResponseEntity<?> getActive() {
+        FeaturedSnapshotService.Snapshot snapshot = featuredSnapshotService.current();
+        if (snapshot != null) {
+            return ResponseEntity.ok()
+                    .eTag(snapshot.getActiveEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(snapshot.getActiveJson());
+        }
+
         List<FeaturedPropertyDTO> data = featuredPropertyService.getActiveFeaturedProperties();
         Map<String, Object> body = new HashMap<>();
         body.put("success", true);
@@ -0,0 +1,218 @@
+package com.example.realestate.controller;
+
+import com.example.realestate.service.BlobStore;
+import com.example.realestate.service.LocalBlobStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ⭐ Serves LocalBlobStore objects (storage.backend=local) so images load without any
+ * S3 round-trip.
+ *
+ * GET/HEAD honour a single-part Range (206, or 416 if unsatisfiable), If-Range and
+ * If-None-Match against an ETag made from size and mtime. The body is sent with
+ * Tomcat's sendfile when the connector offers it (zero-copy from the page cache),
+ * otherwise with FileChannel.transferTo. PUT accepts uploads to urls signed by
+ * LocalBlobStore.presignPut.
+ */
+@RestController
+@RequestMapping("/api/files")
+@CrossOrigin(origins = "*")
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalFileController {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileController.class);
+
+    private static final String PREFIX = "/api/files/";
+
+    @Autowired
+    private LocalBlobStore blobStore;
+
+    @RequestMapping(value = "/**", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serve(HttpServletRequest request, HttpServletResponse response,
+                      @RequestParam(value = "expires", required = false) Long expires,
+                      @RequestParam(value = "signature", required = false) String signature) throws IOException {
+        String key = keyOf(request);
+        Path file;
+        try {
+            file = blobStore.resolve(key);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!Files.isRegularFile(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        boolean isPrivate = blobStore.isPrivate(key);
+        if (isPrivate && (expires == null || !blobStore.verifyGet(key, expires, signature))) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        long size = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, isPrivate ? "private, no-store" : "public, max-age=86400");
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(blobStore.contentTypeOf(file));
+        if (isPrivate) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + file.getFileName() + "\"");
+        }
+
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] bounds = parseRange(range, size);
+            if (bounds != null && bounds.length == 0) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod()) || length == 0) return;
+
+        send(request, response, file, start, length);
+    }
+
+    /**
+     * ⭐ Upload to a presigned url: the body is stored as-is if the signature, content
+     * type and length match what was signed
+     */
+    @PutMapping("/**")
+    public ResponseEntity<Map<String, Object>> put(HttpServletRequest request,
+                                                   @RequestParam("expires") long expires,
+                                                   @RequestParam("signature") String signature) throws IOException {
+        String key = keyOf(request);
+        String contentType = request.getContentType();
+        long contentLength = request.getContentLengthLong();
+
+        Map<String, Object> response = new HashMap<>();
+        if (contentLength < 0 || !blobStore.verifyPut(key, contentType, contentLength, expires, signature)) {
+            response.put("success", false);
+            response.put("message", "Invalid or expired upload url");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+        }
+
+        BlobStore.UploadResult result = blobStore.write(key, request.getInputStream(), contentLength, contentType);
+        response.put("success", true);
+        response.put("url", result.getUrl());
+        response.put("sha256", result.getSha256());
+        return ResponseEntity.ok(response);
+    }
+
+    // ==================== HELPERS ====================
+
+    private static void send(HttpServletRequest request, HttpServletResponse response,
+                             Path file, long start, long length) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            // Tomcat writes the region with sendfile after the handler returns
+            request.setAttribute("org.apache.tomcat.sendfile.filename", file.toAbsolutePath().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", start);
+            request.setAttribute("org.apache.tomcat.sendfile.end", start + length);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) break;
+                position += sent;
+                remaining -= sent;
+            }
+        } catch (IOException e) {
+            // Mostly clients that went away mid-download
+            logger.debug("Sending {} stopped: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * [start, end] of a single "bytes=" range; null to ignore the header (malformed or
+     * several ranges - the whole file is sent), an empty array if unsatisfiable
+     */
+    private static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=")) return null;
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (spec.contains(",") || dash < 0) return null;
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                if (last.isEmpty()) return null;
+                long suffix = Long.parseLong(last); // "bytes=-500": the last 500 bytes
+                if (suffix <= 0 || size == 0) return new long[0];
+                return new long[]{Math.max(0, size - suffix), size - 1};
+            }
+
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Long.parseLong(last);
+            if (end < start) return null;
+            if (start >= size) return new long[0];
+            return new long[]{start, Math.min(end, size - 1)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private static String keyOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.startsWith(PREFIX) ? UriUtils.decode(path.substring(PREFIX.length()), StandardCharsets.UTF_8) : "";
+    }
+}
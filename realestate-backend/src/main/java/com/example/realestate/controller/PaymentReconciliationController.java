@@ -0,0 +1,52 @@
+package com.example.realestate.controller;
+
+import com.example.realestate.dto.ApiResponse;
+import com.example.realestate.service.PaymentReconciliationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/payments/reconciliation")
+public class PaymentReconciliationController {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReconciliationController.class);
+
+    @Autowired
+    private PaymentReconciliationService reconciliationService;
+
+    /**
+     * Throughput and lag of the pending-payment reconciliation job
+     * GET /api/payments/reconciliation/stats
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStats() {
+        try {
+            Map<String, Object> stats = reconciliationService.getStats();
+            return ResponseEntity.ok(ApiResponse.success(stats));
+        } catch (Exception e) {
+            logger.error("Error fetching reconciliation stats", e);
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * Run a reconciliation pass now instead of waiting for the schedule
+     * POST /api/payments/reconciliation/run
+     */
+    @PostMapping("/run")
+    public ResponseEntity<?> run() {
+        logger.info("Manual payment reconciliation requested");
+        if (!reconciliationService.runOnce()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error("Reconciliation is already running"));
+        }
+        return ResponseEntity.ok(ApiResponse.success(reconciliationService.getStats()));
+    }
+}
@@ -12,10 +12,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.time.Duration;
 import java.util.*;
 
 @RestController
@@ -31,6 +36,10 @@ public class PropertyController {
     @Autowired
     private PropertyRepository propertyRepository;
 
+    // A full-catalog stream outlives the container's default async timeout (30 s on Tomcat)
+    @Value("${streaming.async-timeout:10m}")
+    private Duration streamTimeout;
+
     // -------------------------------------------------------------
     // ⭐ GLOBAL HANDLER FOR SUBSCRIPTION / BROKER LIMIT ERRORS
     // -------------------------------------------------------------
@@ -107,6 +116,19 @@ public class PropertyController {
         return ResponseEntity.ok(service.getAllActivePropertiesWithAccurateFeaturedStatus());
     }
 
+    // -------------------------------------------------------------
+    // ⭐ ALL ACTIVE AS NDJSON STREAM (one PropertyDTO per line)
+    // -------------------------------------------------------------
+    @GetMapping(value = "/all/stream", produces = "application/x-ndjson")
+    public WebAsyncTask<Void> streamAllActive(HttpServletResponse response) {
+        // WebAsyncTask rather than StreamingResponseBody so the timeout applies to this endpoint only
+        return new WebAsyncTask<>(streamTimeout.toMillis(), () -> {
+            response.setContentType("application/x-ndjson");
+            service.streamActivePropertiesAsNdjson(response.getOutputStream());
+            return null;
+        });
+    }
+
     // -------------------------------------------------------------
     // ⭐ CHECK FEATURED STATUS
     // -------------------------------------------------------------
@@ -2,10 +2,16 @@ package com.example.realestate.controller;
 
 import com.example.realestate.dto.ApiResponse;
 import com.example.realestate.dto.PropertyDTO;
+import com.example.realestate.dto.PropertyFacets;
+import com.example.realestate.dto.PropertySearchPage;
 import com.example.realestate.dto.PropertySearchRequest;
+import com.example.realestate.service.FeaturedSnapshotService;
 import com.example.realestate.service.PropertySearchService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
@@ -16,16 +22,23 @@ public class PropertySearchController {
 
     private static final Logger logger = LoggerFactory.getLogger(PropertySearchController.class);
     private final PropertySearchService propertySearchService;
+    private final FeaturedSnapshotService featuredSnapshotService;
 
-    public PropertySearchController(PropertySearchService propertySearchService) {
+    public PropertySearchController(PropertySearchService propertySearchService,
+                                    FeaturedSnapshotService featuredSnapshotService) {
         this.propertySearchService = propertySearchService;
+        this.featuredSnapshotService = featuredSnapshotService;
     }
 
     @PostMapping("/search")
-    public ResponseEntity<ApiResponse<List<PropertyDTO>>> searchProperties(
+    public ResponseEntity<ApiResponse<?>> searchProperties(
             @RequestBody PropertySearchRequest request) {
         logger.info("Search request received: {}", request);
         try {
+            if (request.isCursorPagination()) {
+                PropertySearchPage page = propertySearchService.searchPropertiesByCursor(request);
+                return ResponseEntity.ok(ApiResponse.success(page));
+            }
             List<PropertyDTO> result = propertySearchService.searchProperties(request);
             return ResponseEntity.ok(ApiResponse.success(result));
         } catch (Exception e) {
@@ -35,8 +48,35 @@ public class PropertySearchController {
         }
     }
 
+    // ⭐ Filter-panel counts, e.g. /api/properties/facets?city=Hyderabad&listingType=sale&priceBuckets=10
+    @GetMapping("/facets")
+    public ResponseEntity<ApiResponse<PropertyFacets>> getFacets(
+            @ModelAttribute PropertySearchRequest request,
+            @RequestParam(required = false) Integer priceBuckets) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(propertySearchService.getFacets(request, priceBuckets)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error computing search facets", e);
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Error computing search facets: " + e.getMessage()));
+        }
+    }
+
+    // ⭐ Homepage carousel: pre-serialized snapshot with a strong ETag (304 on If-None-Match)
     @GetMapping("/featured")
-    public ResponseEntity<ApiResponse<List<PropertyDTO>>> getFeaturedProperties() {
+    public ResponseEntity<?> getFeaturedProperties() {
+        FeaturedSnapshotService.Snapshot snapshot = featuredSnapshotService.current();
+        if (snapshot != null) {
+            return ResponseEntity.ok()
+                    .eTag(snapshot.getHomepageEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(snapshot.getHomepageJson());
+        }
+
         logger.info("Fetching featured properties");
         try {
             List<PropertyDTO> properties = propertySearchService.getFeaturedProperties();
@@ -1,8 +1,7 @@
 package com.example.realestate.controller;
 
-import com.example.realestate.service.BrokerSubscriptionService;
 import com.example.realestate.service.RazorpayService;
-import org.json.JSONObject;
+import com.example.realestate.service.WebhookInboxService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,20 +22,20 @@ public class RazorpayWebhookController {
     private RazorpayService razorpayService;
 
     @Autowired
-    private BrokerSubscriptionService subscriptionService;
+    private WebhookInboxService webhookInboxService;
 
     @Value("${razorpay.webhook.secret:}")
     private String webhookSecret;
 
     /**
      * Handle Razorpay webhooks
+     * ⭐ Only verifies and stores the event; WebhookInboxService applies it in the background
      */
     @PostMapping("/razorpay")
     public ResponseEntity<?> handleRazorpayWebhook(
             @RequestBody String payload,
-            @RequestHeader("X-Razorpay-Signature") String signature) {
-
-        logger.info("🔔 Received Razorpay webhook");
+            @RequestHeader("X-Razorpay-Signature") String signature,
+            @RequestHeader(value = "X-Razorpay-Event-Id", required = false) String eventId) {
 
         try {
             // Verify webhook signature
@@ -52,74 +51,20 @@ public class RazorpayWebhookController {
                 }
             }
 
-            // Parse webhook payload
-            JSONObject webhookData = new JSONObject(payload);
-            String event = webhookData.getString("event");
-            JSONObject payloadData = webhookData.getJSONObject("payload");
-            JSONObject payment = payloadData.getJSONObject("payment");
-            JSONObject entity = payment.getJSONObject("entity");
-
-            logger.info("Webhook event: {}", event);
-
-            // Handle different webhook events
-            switch (event) {
-                case "payment.captured":
-                    handlePaymentCaptured(entity);
-                    break;
-
-                case "payment.failed":
-                    handlePaymentFailed(entity);
-                    break;
-
-                case "order.paid":
-                    handleOrderPaid(entity);
-                    break;
-
-                default:
-                    logger.info("Unhandled webhook event: {}", event);
+            String id = WebhookInboxService.eventIdFor(eventId, payload);
+            if (!webhookInboxService.ingest(id, payload)) {
+                logger.info("🔔 Duplicate Razorpay webhook {} ignored", id);
+                return ResponseEntity.ok(Map.of("status", "duplicate"));
             }
 
+            logger.info("🔔 Received Razorpay webhook {}", id);
             return ResponseEntity.ok(Map.of("status", "success"));
 
         } catch (Exception e) {
-            logger.error("❌ Error processing webhook", e);
+            // Not stored: a non-2xx makes Razorpay deliver it again
+            logger.error("❌ Error storing webhook", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("status", "error", "message", e.getMessage()));
+                    .body(Map.of("status", "error", "message", String.valueOf(e.getMessage())));
         }
     }
-
-    /**
-     * Handle payment captured event
-     */
-    private void handlePaymentCaptured(JSONObject entity) {
-        String paymentId = entity.getString("id");
-        String orderId = entity.getString("order_id");
-
-        logger.info("💰 Payment captured - Payment ID: {}, Order ID: {}", paymentId, orderId);
-
-        // Payment is already captured, just log
-        // Actual activation happens in verify-payment endpoint
-    }
-
-    /**
-     * Handle payment failed event
-     */
-    private void handlePaymentFailed(JSONObject entity) {
-        String orderId = entity.getString("order_id");
-        String errorReason = entity.optString("error_reason", "Unknown error");
-
-        logger.warn("❌ Payment failed - Order ID: {}, Reason: {}", orderId, errorReason);
-
-        // Handle payment failure
-        subscriptionService.handlePaymentFailure(orderId, errorReason);
-    }
-
-    /**
-     * Handle order paid event
-     */
-    private void handleOrderPaid(JSONObject entity) {
-        String orderId = entity.getString("id");
-
-        logger.info("✅ Order paid - Order ID: {}", orderId);
-    }
-}
\ No newline at end of file
+}
@@ -1,22 +1,42 @@
 package com.example.realestate.controller;
 
+import com.example.realestate.model.DealStatus;
+import com.example.realestate.model.PropertyImage;
+import com.example.realestate.model.User;
+import com.example.realestate.repository.UserRepository;
+import com.example.realestate.service.BlobStoreService;
 import com.example.realestate.service.DealService;
-import com.example.realestate.service.S3Service;
+import com.example.realestate.service.ImageVariantService;
+import com.example.realestate.service.PropertyImageService;
+import com.example.realestate.service.BlobStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * ⭐ Uploads stream the multipart body straight to the BlobStore (S3, or local disk with
+ * storage.backend=local) with no temp-file copy and return a CompletableFuture, so the
+ * servlet thread is released while the file is stored.
+ * A property image whose bytes that property already has is not uploaded again (see
+ * BlobStoreService); documents and temp images are always stored as sent.
+ * The presign/complete endpoints let the browser PUT straight to the store instead.
+ */
 @RestController
 @RequestMapping("/api/upload")
 @CrossOrigin(origins = "*")
@@ -24,92 +44,70 @@ public class UploadController {
 
     private static final Logger logger = LoggerFactory.getLogger(UploadController.class);
 
+    private static final long MAX_FILE_SIZE = 10 * 1024 * 1024;
+
+    private static final Set<String> DOCUMENT_TYPES = Set.of(
+            "application/pdf",
+            "application/msword",
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+
     @Autowired
-    private S3Service s3Service;
+    private BlobStore blobStore;
 
     @Autowired
     private DealService dealService;
 
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private BlobStoreService blobStoreService;
+
+    @Autowired
+    private PropertyImageService propertyImageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${aws.s3.presign.put-ttl-seconds:600}")
+    private long presignPutTtlSeconds;
+
+    @Value("${aws.s3.presign.get-ttl-seconds:300}")
+    private long presignGetTtlSeconds;
+
     /**
      * ⭐ NEW ENDPOINT - Upload image with propertyId (for editing existing properties)
      * Images go to: properties/{propertyId}/images/{filename}
      * This is the RECOMMENDED endpoint to use
      */
     @PostMapping("/property-image")
-    public ResponseEntity<Map<String, Object>> uploadPropertyImage(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> uploadPropertyImage(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "propertyId", required = true) Long propertyId) {
 
-        logger.info("🔥 PROPERTY IMAGE UPLOAD REQUEST RECEIVED");
-        logger.info("🔸 Property ID: {}", propertyId);
-        logger.info("🔸 File: {}", file.getOriginalFilename());
-        logger.info("🔸 File Size: {} bytes", file.getSize());
-        logger.info("🔸 Content Type: {}", file.getContentType());
-
-        Map<String, Object> response = new HashMap<>();
-
-        try {
-            // Validate propertyId
-            if (propertyId == null || propertyId <= 0) {
-                logger.error("❌ Invalid propertyId: {}", propertyId);
-                response.put("success", false);
-                response.put("message", "Valid property ID is required");
-                return ResponseEntity.badRequest().body(response);
-            }
-
-            // Validate file
-            if (file.isEmpty()) {
-                logger.error("❌ File is empty");
-                response.put("success", false);
-                response.put("message", "File is empty");
-                return ResponseEntity.badRequest().body(response);
-            }
-
-            // Validate file type
-            String contentType = file.getContentType();
-            if (contentType == null || !contentType.startsWith("image/")) {
-                logger.error("❌ Invalid file type: {}", contentType);
-                response.put("success", false);
-                response.put("message", "Only image files are allowed");
-                return ResponseEntity.badRequest().body(response);
-            }
-
-            // Validate file size (10MB)
-            if (file.getSize() > 10 * 1024 * 1024) {
-                logger.error("❌ File too large: {} bytes", file.getSize());
-                response.put("success", false);
-                response.put("message", "File size must be less than 10MB");
-                return ResponseEntity.badRequest().body(response);
-            }
-
-            // Save to temp file
-            logger.info("💾 Creating temporary file...");
-            Path tempFile = Files.createTempFile("upload-", "-" + file.getOriginalFilename());
-            Files.copy(file.getInputStream(), tempFile, StandardCopyOption.REPLACE_EXISTING);
-            logger.info("✅ Temporary file created: {}", tempFile);
-
-            // Upload to S3 in property folder structure
-            logger.info("🚀 Uploading to S3: properties/{}/images/...", propertyId);
-            String fileUrl = s3Service.uploadPropertyImage(propertyId, tempFile,
-                    file.getOriginalFilename(), contentType);
-
-            // Clean up temp file
-            Files.deleteIfExists(tempFile);
-            logger.info("🗑️ Temporary file deleted");
+        logger.info("🔥 PROPERTY IMAGE UPLOAD REQUEST RECEIVED - Property ID: {}, File: {}, Size: {} bytes, Type: {}",
+                propertyId, file.getOriginalFilename(), file.getSize(), file.getContentType());
 
-            logger.info("✅ ✅ ✅ PROPERTY IMAGE UPLOADED SUCCESSFULLY: {}", fileUrl);
-
-            response.put("success", true);
-            response.put("url", fileUrl);
-            response.put("message", "Property image uploaded successfully");
-            return ResponseEntity.ok(response);
+        // Validate propertyId
+        if (propertyId == null || propertyId <= 0) {
+            logger.error("❌ Invalid propertyId: {}", propertyId);
+            return badRequest("Valid property ID is required");
+        }
 
-        } catch (Exception e) {
-            logger.error("❌ ❌ ❌ ERROR UPLOADING PROPERTY IMAGE: ", e);
-            response.put("success", false);
-            response.put("message", "Upload failed: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        String invalid = validateImage(file);
+        if (invalid != null) {
+            logger.error("❌ Rejected property image: {}", invalid);
+            return badRequest(invalid);
         }
+
+        return blobStoreService.store(blobStore.propertyImagePrefix(propertyId), file, file.getSize(), file.getContentType(),
+                        in -> blobStore.uploadPropertyImage(propertyId, in, file.getSize(),
+                                file.getOriginalFilename(), file.getContentType()))
+                .handle((result, error) -> {
+                    // ⭐ Thumbnail/card/detail sizes are made in the background
+                    if (error == null && !result.isDuplicate()) imageVariantService.submit(result.getKey());
+                    return respond(result, error, "Property image uploaded successfully");
+                });
     }
 
     /**
@@ -118,58 +116,22 @@ public class UploadController {
      * Images go to: temp/images/{filename}
      */
     @PostMapping("/image")
-    public ResponseEntity<Map<String, Object>> uploadImage(@RequestParam("file") MultipartFile file) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> uploadImage(@RequestParam("file") MultipartFile file) {
         logger.info("🔸 Legacy image upload endpoint called - File: {}", file.getOriginalFilename());
 
-        Map<String, Object> response = new HashMap<>();
-
-        try {
-            // Validate file
-            if (file.isEmpty()) {
-                response.put("success", false);
-                response.put("message", "File is empty");
-                return ResponseEntity.badRequest().body(response);
-            }
-
-            // Validate file type
-            String contentType = file.getContentType();
-            if (contentType == null || !contentType.startsWith("image/")) {
-                response.put("success", false);
-                response.put("message", "Only image files are allowed");
-                return ResponseEntity.badRequest().body(response);
-            }
-
-            // Validate file size (10MB)
-            if (file.getSize() > 10 * 1024 * 1024) {
-                response.put("success", false);
-                response.put("message", "File size must be less than 10MB");
-                return ResponseEntity.badRequest().body(response);
-            }
-
-            // Save to temp file
-            Path tempFile = Files.createTempFile("upload-", "-" + file.getOriginalFilename());
-            Files.copy(file.getInputStream(), tempFile, StandardCopyOption.REPLACE_EXISTING);
-
-            // Upload to S3 in temp folder (will be moved later when property is created)
-            String key = "temp/images/" + System.currentTimeMillis() + "_" + file.getOriginalFilename();
-            String fileUrl = s3Service.uploadFile(key, tempFile, contentType);
-
-            // Clean up temp file
-            Files.deleteIfExists(tempFile);
-
-            logger.info("✅ Image uploaded to temp location: {}", fileUrl);
-
-            response.put("success", true);
-            response.put("url", fileUrl);
-            response.put("message", "Image uploaded successfully");
-            return ResponseEntity.ok(response);
-
-        } catch (IOException e) {
-            logger.error("❌ Error uploading image: ", e);
-            response.put("success", false);
-            response.put("message", "Upload failed: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        String invalid = validateImage(file);
+        if (invalid != null) {
+            return badRequest(invalid);
         }
+
+        // Upload to temp folder (will be moved later when property is created)
+        String key = "temp/images/" + System.currentTimeMillis() + "_" + file.getOriginalFilename();
+        // Not deduplicated: nothing releases a temp upload that never becomes a listing image
+        return streamFile(file, in -> blobStore.uploadStream(key, in, file.getSize(), file.getContentType()))
+                .handle((result, error) -> {
+                    if (error == null) imageVariantService.submit(result.getKey());
+                    return respond(result, error, "Image uploaded successfully");
+                });
     }
 
     /**
@@ -177,72 +139,26 @@ public class UploadController {
      * Documents go to: properties/{propertyId}/documents/{filename}
      */
     @PostMapping("/document")
-    public ResponseEntity<Map<String, Object>> uploadPropertyDocument(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> uploadPropertyDocument(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "propertyId", required = true) Long propertyId) {
 
         logger.info("📄 Property document upload - Property ID: {}, File: {}",
                 propertyId, file.getOriginalFilename());
 
-        Map<String, Object> response = new HashMap<>();
-
-        try {
-            // Validate propertyId
-            if (propertyId == null || propertyId <= 0) {
-                response.put("success", false);
-                response.put("message", "Valid property ID is required");
-                return ResponseEntity.badRequest().body(response);
-            }
-
-            // Validate file
-            if (file.isEmpty()) {
-                response.put("success", false);
-                response.put("message", "File is empty");
-                return ResponseEntity.badRequest().body(response);
-            }
-
-            // Validate file type (documents only)
-            String contentType = file.getContentType();
-            if (contentType == null ||
-                    (!contentType.equals("application/pdf") &&
-                            !contentType.equals("application/msword") &&
-                            !contentType.equals("application/vnd.openxmlformats-officedocument.wordprocessingml.document"))) {
-                response.put("success", false);
-                response.put("message", "Only PDF, DOC, and DOCX files are allowed");
-                return ResponseEntity.badRequest().body(response);
-            }
-
-            // Validate file size (10MB)
-            if (file.getSize() > 10 * 1024 * 1024) {
-                response.put("success", false);
-                response.put("message", "File size must be less than 10MB");
-                return ResponseEntity.badRequest().body(response);
-            }
-
-            // Save to temp file
-            Path tempFile = Files.createTempFile("upload-", "-" + file.getOriginalFilename());
-            Files.copy(file.getInputStream(), tempFile, StandardCopyOption.REPLACE_EXISTING);
-
-            // Upload to S3 in property documents folder
-            String fileUrl = s3Service.uploadPropertyDocument(propertyId, tempFile,
-                    file.getOriginalFilename(), contentType);
-
-            // Clean up temp file
-            Files.deleteIfExists(tempFile);
-
-            logger.info("✅ Property document uploaded: {}", fileUrl);
-
-            response.put("success", true);
-            response.put("url", fileUrl);
-            response.put("message", "Document uploaded successfully");
-            return ResponseEntity.ok(response);
+        // Validate propertyId
+        if (propertyId == null || propertyId <= 0) {
+            return badRequest("Valid property ID is required");
+        }
 
-        } catch (IOException e) {
-            logger.error("❌ Error uploading property document: ", e);
-            response.put("success", false);
-            response.put("message", "Upload failed: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        String invalid = validateDocument(file);
+        if (invalid != null) {
+            return badRequest(invalid);
         }
+
+        return streamFile(file, in -> blobStore.uploadPropertyDocument(propertyId, in, file.getSize(),
+                        file.getOriginalFilename(), file.getContentType()))
+                .handle((result, error) -> respond(result, error, "Document uploaded successfully"));
     }
 
     /**
@@ -251,7 +167,7 @@ public class UploadController {
      * Documents go to: properties/{propertyId}/deals/{dealId}/documents/{filename}
      */
     @PostMapping("/deal-document")
-    public ResponseEntity<Map<String, Object>> uploadDealDocument(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> uploadDealDocument(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "dealId", required = true) Long dealId,
             @RequestParam(value = "propertyId", required = true) Long propertyId,
@@ -261,98 +177,348 @@ public class UploadController {
         logger.info("🔐 Deal document upload - Deal ID: {}, Property ID: {}, DocType: {}, File: {}",
                 dealId, propertyId, docType, file.getOriginalFilename());
 
-        Map<String, Object> response = new HashMap<>();
+        // Validate dealId
+        if (dealId == null || dealId <= 0) {
+            logger.error("❌ Invalid dealId: {}", dealId);
+            return badRequest("Valid deal ID is required");
+        }
 
-        try {
-            // ✅ FIX 2: Add ALL validations (not just placeholder)
-
-            // Validate dealId
-            if (dealId == null || dealId <= 0) {
-                logger.error("❌ Invalid dealId: {}", dealId);
-                response.put("success", false);
-                response.put("message", "Valid deal ID is required");
-                return ResponseEntity.badRequest().body(response);
-            }
+        // Validate propertyId
+        if (propertyId == null || propertyId <= 0) {
+            logger.error("❌ Invalid propertyId: {}", propertyId);
+            return badRequest("Valid property ID is required");
+        }
 
-            // Validate propertyId
-            if (propertyId == null || propertyId <= 0) {
-                logger.error("❌ Invalid propertyId: {}", propertyId);
-                response.put("success", false);
-                response.put("message", "Valid property ID is required");
-                return ResponseEntity.badRequest().body(response);
-            }
+        String invalid = validateDocument(file);
+        if (invalid != null) {
+            logger.error("❌ Rejected deal document: {}", invalid);
+            return badRequest(invalid);
+        }
 
-            // Validate file
-            if (file.isEmpty()) {
-                logger.error("❌ File is empty");
-                response.put("success", false);
-                response.put("message", "File is empty");
-                return ResponseEntity.badRequest().body(response);
-            }
+        // Never deduplicated, so a private document only ever lives under its own deal
+        return streamFile(file, in -> blobStore.uploadDealDocument(dealId, propertyId, in, file.getSize(),
+                        file.getOriginalFilename(), file.getContentType()))
+                .handle((result, error) -> {
+                    if (error == null) setDocumentFlag(dealId, docType);
+                    return respond(result, error, "Deal document uploaded successfully");
+                });
+    }
 
-            // Validate file type (documents only)
-            String contentType = file.getContentType();
-            if (contentType == null ||
-                    (!contentType.equals("application/pdf") &&
-                            !contentType.equals("application/msword") &&
-                            !contentType.equals("application/vnd.openxmlformats-officedocument.wordprocessingml.document"))) {
-                logger.error("❌ Invalid file type: {}", contentType);
-                response.put("success", false);
-                response.put("message", "Only PDF, DOC, and DOCX files are allowed");
-                return ResponseEntity.badRequest().body(response);
-            }
+    // ==================== PRESIGNED (DIRECT UPLOAD) ====================
+
+    /**
+     * ⭐ Presigned PUT for a property image - the browser uploads straight to the store, then calls
+     * /complete/property-image. Same type and size rules as /property-image.
+     */
+    @PostMapping("/presign/property-image")
+    public ResponseEntity<Map<String, Object>> presignPropertyImage(
+            @RequestParam("propertyId") Long propertyId,
+            @RequestParam("filename") String filename,
+            @RequestParam("contentType") String contentType,
+            @RequestParam("size") long size) {
+
+        if (propertyId == null || propertyId <= 0) return badRequestNow("Valid property ID is required");
+        String invalid = validateImage(contentType, size);
+        if (invalid != null) return badRequestNow(invalid);
+
+        String key = blobStore.propertyImageKey(propertyId, filename);
+        BlobStore.PresignedRequest put = blobStore.presignPut(key, contentType, size, true,
+                Duration.ofSeconds(presignPutTtlSeconds));
+
+        Map<String, Object> response = presignedResponse(put);
+        response.put("url", blobStore.urlFor(key));
+        return ResponseEntity.ok(response);
+    }
 
-            // Validate file size (10MB)
-            if (file.getSize() > 10 * 1024 * 1024) {
-                logger.error("❌ File too large: {} bytes", file.getSize());
-                response.put("success", false);
-                response.put("message", "File size must be less than 10MB");
-                return ResponseEntity.badRequest().body(response);
+    /**
+     * ⭐ Presigned PUT for a deal document. The object is private: it is only readable
+     * through /download/deal-document.
+     */
+    @PostMapping("/presign/deal-document")
+    public ResponseEntity<Map<String, Object>> presignDealDocument(
+            @RequestParam("dealId") Long dealId,
+            @RequestParam("propertyId") Long propertyId,
+            @RequestParam("filename") String filename,
+            @RequestParam("contentType") String contentType,
+            @RequestParam("size") long size) {
+
+        String dealError = checkDeal(dealId, propertyId);
+        if (dealError != null) return badRequestNow(dealError);
+        String invalid = validateDocument(contentType, size);
+        if (invalid != null) return badRequestNow(invalid);
+
+        String key = blobStore.dealDocumentKey(dealId, propertyId, filename);
+        BlobStore.PresignedRequest put = blobStore.presignPut(key, contentType, size, false,
+                Duration.ofSeconds(presignPutTtlSeconds));
+        return ResponseEntity.ok(presignedResponse(put));
+    }
+
+    /**
+     * ⭐ Called after a presigned image PUT: checks the object actually stored, registers it
+     * in blob_store (so deleting the image releases it like any other upload) and records
+     * it as a property image (calling it again for the same key is a no-op)
+     */
+    @PostMapping("/complete/property-image")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> completePropertyImage(
+            @RequestParam("propertyId") Long propertyId,
+            @RequestParam("key") String key,
+            @RequestParam(value = "isPrimary", required = false) Boolean isPrimary) {
+
+        if (propertyId == null || propertyId <= 0) return badRequest("Valid property ID is required");
+        String scope = blobStore.propertyImagePrefix(propertyId);
+        if (!inScope(key, scope)) return badRequest("Key does not belong to this property");
+
+        return blobStore.stat(key).thenCompose(stored -> {
+            String invalid = validateImage(stored.getContentType(), stored.getSize());
+            if (invalid != null) {
+                blobStore.delete(key);
+                return badRequest(invalid);
             }
 
-            // Save to temp file
-            logger.info("💾 Creating temporary file...");
-            Path tempFile = Files.createTempFile("upload-", "-" + file.getOriginalFilename());
-            Files.copy(file.getInputStream(), tempFile, StandardCopyOption.REPLACE_EXISTING);
-
-            // Upload to S3 in deal documents folder
-            logger.info("🚀 Uploading to S3: properties/{}/deals/{}/documents/...", propertyId, dealId);
-            String fileUrl = s3Service.uploadDealDocument(dealId, propertyId, tempFile,
-                    file.getOriginalFilename(), contentType);
-
-            // Clean up temp file
-            Files.deleteIfExists(tempFile);
-            logger.info("🗑️ Temporary file deleted");
-
-            // ✅ FIX 3: Only set document flag if docType is provided
-            if (docType != null && !docType.trim().isEmpty()) {
-                try {
-                    dealService.setDocumentFlag(dealId, docType);
-                    logger.info("✅ Flag '{}' set to TRUE for Deal ID: {}", docType, dealId);
-                } catch (IllegalArgumentException e) {
-                    logger.warn("⚠️ Invalid docType '{}' provided, but file was uploaded successfully", docType);
-                    // File is uploaded, so we still return success, but log the warning
-                } catch (Exception e) {
-                    logger.error("❌ S3 Upload Succeeded, but DB flag update FAILED for Deal ID: {}", dealId, e);
-                    // File is uploaded, so we still return success
-                    // You might want to handle this differently based on your requirements
+            PropertyImage recorded = findImage(propertyId, blobStore.urlFor(key));
+            if (recorded != null) return CompletableFuture.completedFuture(imageRecorded(propertyId, recorded, isPrimary));
+
+            return blobStoreService.adopt(scope, key, stored.getContentType()).thenApply(result -> {
+                // A duplicate resolves to an image this property already has; reuse its row if present
+                PropertyImage image = result.isDuplicate() ? findImage(propertyId, result.getUrl()) : null;
+                if (image == null) {
+                    PropertyImage created = new PropertyImage();
+                    created.setImageUrl(result.getUrl());
+                    image = propertyImageService.addImageToProperty(propertyId, created);
+                    if (!result.isDuplicate()) imageVariantService.submit(key);
+                } else {
+                    blobStoreService.release(result.getUrl()); // no new row holds the reference
                 }
-            } else {
-                logger.info("ℹ️ No docType provided - this is a general deal document (no flag will be set)");
-            }
+                return imageRecorded(propertyId, image, isPrimary);
+            });
+        }).exceptionally(error -> notUploaded(key, error));
+    }
+
+    /**
+     * ⭐ Called after a presigned deal document PUT: checks the object exists and sets
+     * the AGREEMENT/REGISTRATION flag when docType is given
+     */
+    @PostMapping("/complete/deal-document")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> completeDealDocument(
+            @RequestParam("dealId") Long dealId,
+            @RequestParam("propertyId") Long propertyId,
+            @RequestParam("key") String key,
+            @RequestParam(value = "docType", required = false) String docType) {
+
+        String dealError = checkDeal(dealId, propertyId);
+        if (dealError != null) return badRequest(dealError);
+        if (!inScope(key, blobStore.dealDocumentPrefix(dealId, propertyId))) return badRequest("Key does not belong to this deal");
 
-            logger.info("✅ ✅ ✅ DEAL DOCUMENT UPLOADED SUCCESSFULLY: {}", fileUrl);
+        return blobStore.stat(key).handle((stored, error) -> {
+            if (error != null) return notUploaded(key, error);
 
+            String invalid = validateDocument(stored.getContentType(), stored.getSize());
+            if (invalid != null) {
+                blobStore.delete(key);
+                return badRequestNow(invalid);
+            }
+
+            setDocumentFlag(dealId, docType);
+            Map<String, Object> response = new HashMap<>();
             response.put("success", true);
-            response.put("url", fileUrl);
-            response.put("message", "Deal document uploaded successfully");
+            response.put("key", key);
+            response.put("message", "Deal document recorded successfully");
             return ResponseEntity.ok(response);
+        });
+    }
 
+    /**
+     * ⭐ Short-lived download link for a deal document, for the deal's buyer, seller and
+     * agent and for admins
+     */
+    @GetMapping("/download/deal-document")
+    public ResponseEntity<Map<String, Object>> downloadDealDocument(
+            @RequestParam("dealId") Long dealId,
+            @RequestParam("propertyId") Long propertyId,
+            @RequestParam("key") String key,
+            Authentication authentication) {
+
+        if (authentication == null || authentication.getName() == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorBody("Authentication required"));
+        }
+        String dealError = checkDeal(dealId, propertyId);
+        if (dealError != null) return badRequestNow(dealError);
+        if (!inScope(key, blobStore.dealDocumentPrefix(dealId, propertyId))) return badRequestNow("Key does not belong to this deal");
+
+        if (!isParticipantOrAdmin(dealService.getDealById(dealId), authentication.getName())) {
+            logger.warn("🚫 {} tried to download a document of deal {}", authentication.getName(), dealId);
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorBody("Not allowed to access this deal's documents"));
+        }
+
+        BlobStore.PresignedRequest get = blobStore.presignGet(key, key.substring(key.lastIndexOf('/') + 1),
+                Duration.ofSeconds(presignGetTtlSeconds));
+        return ResponseEntity.ok(presignedResponse(get));
+    }
+
+    // ==================== HELPERS ====================
+
+    // ✅ FIX 3: Only set document flag if docType is provided
+    private void setDocumentFlag(Long dealId, String docType) {
+        if (docType == null || docType.trim().isEmpty()) {
+            logger.info("ℹ️ No docType provided - this is a general deal document (no flag will be set)");
+            return;
+        }
+        try {
+            dealService.setDocumentFlag(dealId, docType);
+            logger.info("✅ Flag '{}' set to TRUE for Deal ID: {}", docType, dealId);
+        } catch (IllegalArgumentException e) {
+            // File is uploaded, so we still return success, but log the warning
+            logger.warn("⚠️ Invalid docType '{}' provided, but file was uploaded successfully", docType);
+        } catch (Exception e) {
+            // File is uploaded, so we still return success
+            logger.error("❌ Upload Succeeded, but DB flag update FAILED for Deal ID: {}", dealId, e);
+        }
+    }
+
+    private static CompletableFuture<BlobStore.UploadResult> streamFile(
+            MultipartFile file, Function<InputStream, CompletableFuture<BlobStore.UploadResult>> upload) {
+        try {
+            return upload.apply(file.getInputStream());
         } catch (IOException e) {
-            logger.error("❌ ❌ ❌ ERROR UPLOADING DEAL DOCUMENT: ", e);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static String validateImage(MultipartFile file) {
+        return validateImage(file.getContentType(), file.getSize());
+    }
+
+    private static String validateImage(String contentType, long size) {
+        if (size <= 0) return "File is empty";
+        if (contentType == null || !contentType.startsWith("image/")) return "Only image files are allowed";
+        if (size > MAX_FILE_SIZE) return "File size must be less than 10MB";
+        return null;
+    }
+
+    private static String validateDocument(MultipartFile file) {
+        return validateDocument(file.getContentType(), file.getSize());
+    }
+
+    private static String validateDocument(String contentType, long size) {
+        if (size <= 0) return "File is empty";
+        if (contentType == null || !DOCUMENT_TYPES.contains(contentType)) return "Only PDF, DOC, and DOCX files are allowed";
+        if (size > MAX_FILE_SIZE) return "File size must be less than 10MB";
+        return null;
+    }
+
+    // Null if the deal exists and belongs to the property
+    private String checkDeal(Long dealId, Long propertyId) {
+        if (dealId == null || dealId <= 0) return "Valid deal ID is required";
+        if (propertyId == null || propertyId <= 0) return "Valid property ID is required";
+        try {
+            DealStatus deal = dealService.getDealById(dealId);
+            if (deal.getProperty() == null || !propertyId.equals(deal.getProperty().getId())) {
+                return "Deal does not belong to this property";
+            }
+            return null;
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    private boolean isParticipantOrAdmin(DealStatus deal, String username) {
+        User user = userRepository.findByUsername(username)
+                .or(() -> userRepository.findByEmail(username))
+                .orElse(null);
+        if (user == null) return false;
+        if (user.getRole() == User.UserRole.ADMIN) return true;
+
+        Long userId = user.getId();
+        return (deal.getBuyer() != null && userId.equals(deal.getBuyer().getId()))
+                || (deal.getAgent() != null && userId.equals(deal.getAgent().getId()))
+                || (deal.getProperty() != null && deal.getProperty().getUser() != null
+                        && userId.equals(deal.getProperty().getUser().getId()));
+    }
+
+    private PropertyImage findImage(Long propertyId, String url) {
+        return propertyImageService.getImagesByPropertyId(propertyId).stream()
+                .filter(existing -> url.equals(existing.getImageUrl()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private ResponseEntity<Map<String, Object>> imageRecorded(Long propertyId, PropertyImage image, Boolean isPrimary) {
+        if (Boolean.TRUE.equals(isPrimary)) propertyImageService.setPrimaryImage(propertyId, image.getImageId());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("url", image.getImageUrl());
+        response.put("imageId", image.getImageId());
+        response.put("message", "Property image recorded successfully");
+        return ResponseEntity.ok(response);
+    }
+
+    // A single object directly under prefix, so a client can't point at someone else's files
+    private static boolean inScope(String key, String prefix) {
+        return key != null && key.startsWith(prefix) && key.length() > prefix.length()
+                && key.indexOf('/', prefix.length()) < 0 && !key.contains("..");
+    }
+
+    private static Map<String, Object> presignedResponse(BlobStore.PresignedRequest presigned) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("key", presigned.getKey());
+        response.put("method", presigned.getMethod());
+        response.put("PUT".equals(presigned.getMethod()) ? "uploadUrl" : "downloadUrl", presigned.getUrl());
+        response.put("headers", presigned.getHeaders());
+        response.put("expiresAt", presigned.getExpiresAt().toString());
+        return response;
+    }
+
+    private ResponseEntity<Map<String, Object>> notUploaded(String key, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof BlobStore.NotFoundException) {
+            return badRequestNow("File has not been uploaded yet");
+        }
+        logger.error("❌ Could not check uploaded object {}", key, cause);
+        return failed(cause);
+    }
+
+    private ResponseEntity<Map<String, Object>> respond(BlobStore.UploadResult result, Throwable error, String message) {
+        if (error != null) {
+            return failed(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("url", result.getUrl());
+        response.put("sha256", result.getSha256());
+        response.put("duplicate", result.isDuplicate());
+        response.put("message", message);
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> failed(Throwable e) {
+        Map<String, Object> response = new HashMap<>();
+        if (e instanceof BlobStore.BusyException) {
             response.put("success", false);
-            response.put("message", "Upload failed: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
         }
+
+        logger.error("❌ Upload failed: ", e);
+        response.put("success", false);
+        response.put("message", "Upload failed: " + e.getMessage());
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+
+    private static CompletableFuture<ResponseEntity<Map<String, Object>>> badRequest(String message) {
+        return CompletableFuture.completedFuture(badRequestNow(message));
+    }
+
+    private static ResponseEntity<Map<String, Object>> badRequestNow(String message) {
+        return ResponseEntity.badRequest().body(errorBody(message));
+    }
+
+    private static Map<String, Object> errorBody(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", message);
+        return response;
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,10 @@
 package com.example.realestate.controller;
 
 import com.example.realestate.dto.ApiResponse;
+import com.example.realestate.model.DeletionJob;
 import com.example.realestate.model.User;
 import com.example.realestate.repository.UserRepository;
-import com.example.realestate.service.DealService;
-import com.example.realestate.service.PropertyService;
+import com.example.realestate.service.UserDeletionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,10 +27,7 @@ public class UserController {
     private UserRepository userRepository;
 
     @Autowired
-    private DealService dealService;
-
-    @Autowired
-    private PropertyService propertyService;
+    private UserDeletionService userDeletionService;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
@@ -254,23 +251,11 @@ public class UserController {
             logger.info("Deleting user: {} {} (Role: {}, Email: {})",
                     user.getFirstName(), user.getLastName(), userRole, user.getEmail());
 
-            // ⭐ CASCADE DELETE LOGIC
-
-            if (user.getRole() == User.UserRole.AGENT) {
-                logger.info("👤 User is an AGENT. Initiating cascade delete for deals...");
-                dealService.deleteAllDealsForAgent(userId);
-            }
-
-            logger.info("👤 Deleting all deals for user (as buyer/seller)...");
-            dealService.deleteAllDealsForUser(userId);
-
-            logger.info("🏠 Soft-deleting all properties owned by user...");
-            propertyService.softDeleteAllPropertiesForUser(userId);
+            // ⭐ CASCADE DELETE runs in the background (deals, properties, featured, then the user)
+            DeletionJob job = userDeletionService.submit(userId, user.getRole() == User.UserRole.AGENT);
+            logger.info("✅ Deletion job {} queued for user {}", job.getId(), userId);
 
-            userRepository.deleteById(userId);
-            logger.info("✅ User with ID: {} deleted successfully", userId);
-
-            return ResponseEntity.ok(ApiResponse.success("User and all related data deleted successfully"));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(job));
 
         } catch (Exception e) {
             logger.error("Error deleting user: ", e);
@@ -303,13 +288,10 @@ public class UserController {
             logger.info("Deleting agent: {} {} (Email: {})",
                     agent.getFirstName(), agent.getLastName(), agent.getEmail());
 
-            dealService.deleteAllDealsForAgent(agentId);
-            propertyService.softDeleteAllPropertiesForUser(agentId);
-            userRepository.deleteById(agentId);
-
-            logger.info("✅ Agent deleted successfully");
+            DeletionJob job = userDeletionService.submit(agentId, true);
+            logger.info("✅ Deletion job {} queued for agent {}", job.getId(), agentId);
 
-            return ResponseEntity.ok(ApiResponse.success("Agent and all assigned deals deleted successfully"));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(job));
 
         } catch (Exception e) {
             logger.error("Error deleting agent: ", e);
@@ -318,6 +300,17 @@ public class UserController {
         }
     }
 
+    // ==================== ⭐ DELETION JOB STATUS ====================
+    @GetMapping("/deletion-jobs/{jobId}")
+    public ResponseEntity<?> getDeletionJob(@PathVariable Long jobId) {
+        Optional<DeletionJob> job = userDeletionService.getJob(jobId);
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error("Deletion job not found"));
+        }
+        return ResponseEntity.ok(ApiResponse.success(job.get()));
+    }
+
     // ==================== GET USERS BY ROLE ====================
     @GetMapping("/role/{role}")
     public ResponseEntity<?> getUsersByRole(@PathVariable String role) {
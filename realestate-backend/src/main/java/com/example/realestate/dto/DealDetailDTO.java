@@ -1,5 +1,7 @@
 package com.example.realestate.dto;
 
+import com.example.realestate.model.DealStatus;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -53,6 +55,62 @@ public class DealDetailDTO {
     // Constructors
     public DealDetailDTO() {}
 
+    /**
+     * JPQL projection (DealStatusRepository.DEAL_DETAIL_SELECT); fills the same fields
+     * DealService used to copy from a loaded DealStatus
+     */
+    public DealDetailDTO(Long dealId, DealStatus.DealStage stage, BigDecimal agreedPrice, String notes,
+                         LocalDateTime createdAt, LocalDateTime updatedAt, String lastUpdatedBy,
+                         Long propertyId, String propertyTitle, BigDecimal propertyPrice, String propertyCity,
+                         Long buyerId, String buyerFirstName, String buyerLastName, String buyerEmail, String buyerMobile,
+                         Long sellerId, String sellerFirstName, String sellerLastName, String sellerEmail, String sellerMobile,
+                         Long agentId, String agentFirstName, String agentLastName, String agentEmail, String agentMobile,
+                         LocalDateTime inquiryDate, LocalDateTime shortlistDate, LocalDateTime negotiationDate,
+                         LocalDateTime agreementDate, LocalDateTime registrationDate, LocalDateTime paymentDate,
+                         LocalDateTime completedDate, boolean agreementUploaded, boolean registrationUploaded) {
+        this.dealId = dealId;
+        this.stage = stage != null ? stage.toString() : "UNKNOWN";
+        this.agreedPrice = agreedPrice;
+        this.notes = notes;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.lastUpdatedBy = lastUpdatedBy;
+
+        this.propertyId = propertyId;
+        this.propertyTitle = propertyTitle;
+        this.propertyPrice = propertyPrice;
+        this.propertyCity = propertyCity;
+
+        if (buyerId != null) {
+            this.buyerId = buyerId;
+            this.buyerName = buyerFirstName + " " + buyerLastName;
+            this.buyerEmail = buyerEmail;
+            this.buyerMobile = buyerMobile;
+        }
+        if (sellerId != null) {
+            this.sellerId = sellerId;
+            this.sellerName = sellerFirstName + " " + sellerLastName;
+            this.sellerEmail = sellerEmail;
+            this.sellerMobile = sellerMobile;
+        }
+        if (agentId != null) {
+            this.agentId = agentId;
+            this.agentName = agentFirstName + " " + agentLastName;
+            this.agentEmail = agentEmail;
+            this.agentMobile = agentMobile;
+        }
+
+        this.inquiryDate = inquiryDate;
+        this.shortlistDate = shortlistDate;
+        this.negotiationDate = negotiationDate;
+        this.agreementDate = agreementDate;
+        this.registrationDate = registrationDate;
+        this.paymentDate = paymentDate;
+        this.completedDate = completedDate;
+        this.agreementUploaded = agreementUploaded;
+        this.registrationUploaded = registrationUploaded;
+    }
+
     // Getters and Setters
     public Long getDealId() { return dealId; }
     public void setDealId(Long dealId) { this.dealId = dealId; }
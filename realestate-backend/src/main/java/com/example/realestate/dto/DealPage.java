@@ -0,0 +1,28 @@
+package com.example.realestate.dto;
+
+import java.util.List;
+
+/**
+ * Keyset-paginated deal list, newest deal first. Pass nextCursor back as "cursor" to get the next page.
+ */
+public class DealPage {
+    private List<DealDetailDTO> items;
+    private Long nextCursor; // id of the last deal on this page
+    private boolean hasMore;
+
+    public DealPage() {}
+
+    public DealPage(List<DealDetailDTO> items, Long nextCursor, boolean hasMore) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    // Getters and Setters
+    public List<DealDetailDTO> getItems() { return items; }
+    public void setItems(List<DealDetailDTO> items) { this.items = items; }
+    public Long getNextCursor() { return nextCursor; }
+    public void setNextCursor(Long nextCursor) { this.nextCursor = nextCursor; }
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
@@ -1,5 +1,7 @@
 package com.example.realestate.dto;
 
+import com.example.realestate.model.User;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -43,6 +45,63 @@ public class PropertyDTO {
 
     private UserDTO user; // ✅ Contact information (broker or owner)
 
+    public PropertyDTO() {}
+
+    /**
+     * Listing projection constructor used by PropertySearchRepository.PROPERTY_CARD_SELECT.
+     * Takes flat columns from one joined query so no entities are loaded for list views.
+     */
+    public PropertyDTO(Long propertyId, String title, String description, String imageUrl,
+                       BigDecimal price, String priceDisplay,
+                       Double bedrooms, Double bathrooms, Double balconies,
+                       BigDecimal areaSqft, BigDecimal pricePerSqft,
+                       String address, String amenities, String status, String listingType,
+                       Boolean isFeatured, String ownerType, Boolean isReadyToMove, Boolean isVerified,
+                       String constructionStatus, String possessionYear, String possessionMonth,
+                       String reraId, String hmdaId, LocalDateTime createdAt,
+                       String legacyCity, String legacyType,
+                       String areaName, String pincode, String cityName, String state, String typeName,
+                       Long userId, String firstName, String lastName, String email, String mobileNumber,
+                       User.UserRole role) {
+        this.propertyId = propertyId;
+        this.title = title;
+        this.description = description;
+        this.imageUrl = imageUrl;
+        this.price = price;
+        this.priceDisplay = priceDisplay;
+        this.bedrooms = bedrooms;
+        this.bathrooms = bathrooms;
+        this.balconies = balconies;
+        this.areaSqft = areaSqft;
+        this.pricePerSqft = pricePerSqft;
+        this.address = address;
+        this.amenities = amenities;
+        this.status = status;
+        this.listingType = listingType;
+        this.isFeatured = isFeatured;
+        this.ownerType = ownerType;
+        this.isReadyToMove = isReadyToMove;
+        this.isVerified = isVerified;
+        this.constructionStatus = constructionStatus;
+        this.possessionYear = possessionYear;
+        this.possessionMonth = possessionMonth;
+        this.reraId = reraId;
+        this.hmdaId = hmdaId;
+        this.createdAt = createdAt;
+
+        // Same fallbacks as the entity converters: area/type tables first, legacy columns second
+        this.areaName = areaName;
+        this.pincode = pincode;
+        this.cityName = cityName != null ? cityName : legacyCity;
+        this.state = state;
+        this.propertyType = typeName != null ? typeName : legacyType;
+
+        if (userId != null) {
+            this.user = new UserDTO(userId, firstName, lastName, email, mobileNumber,
+                    role != null ? role.name() : null);
+        }
+    }
+
     // ✅ Nested UserDTO class
     public static class UserDTO {
         private Long id;
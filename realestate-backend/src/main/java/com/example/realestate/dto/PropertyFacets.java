@@ -0,0 +1,59 @@
+package com.example.realestate.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filter-panel counts for a search request. Each facet is counted with every
+ * other filter applied but not its own, so alternative values keep their counts.
+ */
+public class PropertyFacets {
+    private long total; // matches for the full filter set
+    private Map<String, Integer> cities;
+    private Map<String, Integer> areas;
+    private Map<String, Integer> propertyTypes;
+    private Map<String, Integer> listingTypes;
+    private Map<String, Integer> bedrooms; // "1", "2", ... "5+"
+    private List<PriceBucket> priceHistogram;
+
+    // Getters and Setters
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+    public Map<String, Integer> getCities() { return cities; }
+    public void setCities(Map<String, Integer> cities) { this.cities = cities; }
+    public Map<String, Integer> getAreas() { return areas; }
+    public void setAreas(Map<String, Integer> areas) { this.areas = areas; }
+    public Map<String, Integer> getPropertyTypes() { return propertyTypes; }
+    public void setPropertyTypes(Map<String, Integer> propertyTypes) { this.propertyTypes = propertyTypes; }
+    public Map<String, Integer> getListingTypes() { return listingTypes; }
+    public void setListingTypes(Map<String, Integer> listingTypes) { this.listingTypes = listingTypes; }
+    public Map<String, Integer> getBedrooms() { return bedrooms; }
+    public void setBedrooms(Map<String, Integer> bedrooms) { this.bedrooms = bedrooms; }
+    public List<PriceBucket> getPriceHistogram() { return priceHistogram; }
+    public void setPriceHistogram(List<PriceBucket> priceHistogram) { this.priceHistogram = priceHistogram; }
+
+    /**
+     * Price range [min, max) and how many matching properties fall in it
+     */
+    public static class PriceBucket {
+        private BigDecimal min;
+        private BigDecimal max;
+        private int count;
+
+        public PriceBucket() {}
+
+        public PriceBucket(BigDecimal min, BigDecimal max, int count) {
+            this.min = min;
+            this.max = max;
+            this.count = count;
+        }
+
+        public BigDecimal getMin() { return min; }
+        public void setMin(BigDecimal min) { this.min = min; }
+        public BigDecimal getMax() { return max; }
+        public void setMax(BigDecimal max) { this.max = max; }
+        public int getCount() { return count; }
+        public void setCount(int count) { this.count = count; }
+    }
+}
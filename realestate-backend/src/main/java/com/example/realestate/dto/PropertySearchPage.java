@@ -0,0 +1,32 @@
+package com.example.realestate.dto;
+
+import java.util.List;
+
+/**
+ * Cursor-paginated search result. Pass nextCursor back as "cursor" to get the next page.
+ */
+public class PropertySearchPage {
+    private List<PropertyDTO> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private Long total; // only populated when includeTotal = true
+
+    public PropertySearchPage() {}
+
+    public PropertySearchPage(List<PropertyDTO> items, String nextCursor, boolean hasMore, Long total) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        this.total = total;
+    }
+
+    // Getters and Setters
+    public List<PropertyDTO> getItems() { return items; }
+    public void setItems(List<PropertyDTO> items) { this.items = items; }
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+    public Long getTotal() { return total; }
+    public void setTotal(Long total) { this.total = total; }
+}
@@ -21,6 +21,22 @@ public class PropertySearchRequest {
 
     private Boolean isReadyToMove;
 
+    // Cursor pagination: pagination = "cursor" switches from page/size to keyset paging
+    private String pagination = "offset";
+    private String cursor;
+    private Boolean includeTotal = false;
+
+    public String getPagination() { return pagination; }
+    public void setPagination(String pagination) { this.pagination = pagination; }
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+    public Boolean getIncludeTotal() { return includeTotal; }
+    public void setIncludeTotal(Boolean includeTotal) { this.includeTotal = includeTotal; }
+
+    public boolean isCursorPagination() {
+        return "cursor".equalsIgnoreCase(pagination) || cursor != null;
+    }
+
     public Boolean getIsReadyToMove() { return isReadyToMove; }
     public void setIsReadyToMove(Boolean isReadyToMove) { this.isReadyToMove = isReadyToMove; }
 
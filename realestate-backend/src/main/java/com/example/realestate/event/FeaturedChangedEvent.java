@@ -0,0 +1,17 @@
+package com.example.realestate.event;
+
+/**
+ * Published by FeaturedPropertyService whenever a featured record for a property is
+ * activated, cancelled or deactivated. Listeners re-read that property's featured
+ * rows after commit.
+ */
+public class FeaturedChangedEvent {
+
+    private final Long propertyId;
+
+    public FeaturedChangedEvent(Long propertyId) {
+        this.propertyId = propertyId;
+    }
+
+    public Long getPropertyId() { return propertyId; }
+}
@@ -0,0 +1,52 @@
+package com.example.realestate.event;
+
+import com.example.realestate.model.Property;
+
+/**
+ * Published by PropertyService whenever a listing is created, edited or soft-deleted.
+ * Listeners use @TransactionalEventListener so they only see committed changes.
+ */
+public class PropertyChangedEvent {
+
+    public enum ChangeType {
+        UPSERTED, REMOVED
+    }
+
+    private final Long propertyId;
+    private final Property property;
+    private final ChangeType changeType;
+
+    public PropertyChangedEvent(Property property, ChangeType changeType) {
+        this(property.getId(), property, changeType);
+    }
+
+    private PropertyChangedEvent(Long propertyId, Property property, ChangeType changeType) {
+        this.propertyId = propertyId;
+        this.property = property;
+        this.changeType = changeType;
+    }
+
+    public static PropertyChangedEvent upserted(Property property) {
+        return new PropertyChangedEvent(property, ChangeType.UPSERTED);
+    }
+
+    public static PropertyChangedEvent removed(Property property) {
+        return new PropertyChangedEvent(property, ChangeType.REMOVED);
+    }
+
+    /**
+     * Removal after a bulk UPDATE, where no entity was loaded (getProperty() is null)
+     */
+    public static PropertyChangedEvent removed(Long propertyId) {
+        return new PropertyChangedEvent(propertyId, null, ChangeType.REMOVED);
+    }
+
+    public Long getPropertyId() { return propertyId; }
+    public Property getProperty() { return property; }
+    public ChangeType getChangeType() { return changeType; }
+
+    public boolean isRemoval() {
+        return changeType == ChangeType.REMOVED
+                || !Boolean.TRUE.equals(property.getIsActive());
+    }
+}
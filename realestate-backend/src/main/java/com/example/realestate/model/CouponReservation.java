@@ -0,0 +1,72 @@
+package com.example.realestate.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A coupon usage held for a featured order while its Razorpay payment is pending.
+ * The usage is already counted in coupons.used_count; confirming keeps it,
+ * releasing (cancel, or expiry of an abandoned order) gives it back.
+ */
+@Entity
+@Table(name = "coupon_reservations")
+public class CouponReservation {
+
+    public enum Status {
+        RESERVED, CONFIRMED, RELEASED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Column(name = "featured_id", nullable = false)
+    private Long featuredId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.RESERVED;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    // Constructors
+    public CouponReservation() {}
+
+    public CouponReservation(Long couponId, Long featuredId, LocalDateTime expiresAt) {
+        this.couponId = couponId;
+        this.featuredId = featuredId;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getCouponId() { return couponId; }
+    public void setCouponId(Long couponId) { this.couponId = couponId; }
+
+    public Long getFeaturedId() { return featuredId; }
+    public void setFeaturedId(Long featuredId) { this.featuredId = featuredId; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,55 @@
+package com.example.realestate.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One entry in a deal's timeline (stage change, note, assignment). Rows are only
+ * ever inserted, by DealEventLog; DealStatus.notes keeps just the latest note.
+ */
+@Entity
+@Table(name = "deal_events")
+public class DealEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "deal_id", nullable = false)
+    private Long dealId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private DealStatus.DealStage stage;
+
+    @Column
+    private String author;
+
+    @Column(columnDefinition = "TEXT")
+    private String note;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public DealEvent() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getDealId() { return dealId; }
+    public void setDealId(Long dealId) { this.dealId = dealId; }
+
+    public DealStatus.DealStage getStage() { return stage; }
+    public void setStage(DealStatus.DealStage stage) { this.stage = stage; }
+
+    public String getAuthor() { return author; }
+    public void setAuthor(String author) { this.author = author; }
+
+    public String getNote() { return note; }
+    public void setNote(String note) { this.note = note; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
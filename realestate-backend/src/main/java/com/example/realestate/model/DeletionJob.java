@@ -0,0 +1,108 @@
+package com.example.realestate.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Background cascade deletion of a user or agent (see UserDeletionService).
+ * The row records the current phase and counts after every chunk, so a job
+ * interrupted by a restart picks up where it stopped.
+ */
+@Entity
+@Table(name = "deletion_jobs")
+public class DeletionJob {
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    // Executed in declaration order
+    public enum Phase {
+        AGENT_DEALS, BUYER_DEALS, SELLER_DEALS, PROPERTIES, USER, DONE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "is_agent", nullable = false)
+    private boolean agent;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Phase phase = Phase.AGENT_DEALS;
+
+    @Column(name = "deals_deleted", nullable = false)
+    private long dealsDeleted = 0;
+
+    @Column(name = "properties_deactivated", nullable = false)
+    private long propertiesDeactivated = 0;
+
+    @Column(name = "featured_deactivated", nullable = false)
+    private long featuredDeactivated = 0;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Constructors
+    public DeletionJob() {}
+
+    public DeletionJob(Long userId, boolean agent) {
+        this.userId = userId;
+        this.agent = agent;
+        this.phase = agent ? Phase.AGENT_DEALS : Phase.BUYER_DEALS;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public boolean isAgent() { return agent; }
+    public void setAgent(boolean agent) { this.agent = agent; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public Phase getPhase() { return phase; }
+    public void setPhase(Phase phase) { this.phase = phase; }
+
+    public long getDealsDeleted() { return dealsDeleted; }
+    public void setDealsDeleted(long dealsDeleted) { this.dealsDeleted = dealsDeleted; }
+
+    public long getPropertiesDeactivated() { return propertiesDeactivated; }
+    public void setPropertiesDeactivated(long propertiesDeactivated) { this.propertiesDeactivated = propertiesDeactivated; }
+
+    public long getFeaturedDeactivated() { return featuredDeactivated; }
+    public void setFeaturedDeactivated(long featuredDeactivated) { this.featuredDeactivated = featuredDeactivated; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
@@ -29,6 +29,24 @@ public class PropertyImage {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // Resized, EXIF-free JPEG copies made by ImageVariantService; null until READY
+    @Column(name = "thumbnail_url", length = 500)
+    private String thumbnailUrl;
+
+    @Column(name = "card_url", length = 500)
+    private String cardUrl;
+
+    @Column(name = "detail_url", length = 500)
+    private String detailUrl;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "variant_status", length = 20)
+    private VariantStatus variantStatus = VariantStatus.PENDING;
+
+    public enum VariantStatus {
+        PENDING, READY, FAILED
+    }
+
     // Constructors
     public PropertyImage() {}
 
@@ -50,4 +68,16 @@ public class PropertyImage {
 
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public String getThumbnailUrl() { return thumbnailUrl; }
+    public void setThumbnailUrl(String thumbnailUrl) { this.thumbnailUrl = thumbnailUrl; }
+
+    public String getCardUrl() { return cardUrl; }
+    public void setCardUrl(String cardUrl) { this.cardUrl = cardUrl; }
+
+    public String getDetailUrl() { return detailUrl; }
+    public void setDetailUrl(String detailUrl) { this.detailUrl = detailUrl; }
+
+    public VariantStatus getVariantStatus() { return variantStatus; }
+    public void setVariantStatus(VariantStatus variantStatus) { this.variantStatus = variantStatus; }
 }
\ No newline at end of file
@@ -2,9 +2,11 @@ package com.example.realestate.repository;
 
 import com.example.realestate.model.BrokerCoupon;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -16,11 +18,23 @@ public interface BrokerCouponRepository extends JpaRepository<BrokerCoupon, Long
     // Find by code
     Optional<BrokerCoupon> findByCodeIgnoreCase(String code);
 
+    // Live usage count (CouponLookupCache never caches it)
+    @Query("SELECT c.usedCount FROM BrokerCoupon c WHERE c.id = :id")
+    Integer findUsedCount(@Param("id") Long couponId);
+
     // Find valid coupons
     @Query("SELECT c FROM BrokerCoupon c WHERE c.isActive = true " +
             "AND c.usedCount < c.maxUses AND c.validFrom <= :now AND c.validUntil >= :now")
     List<BrokerCoupon> findValidCoupons(@Param("now") LocalDateTime now);
 
+    // Count one use if the coupon is live and not used up (0 rows = refused)
+    @Modifying
+    @Transactional
+    @Query("UPDATE BrokerCoupon c SET c.usedCount = c.usedCount + 1, c.updatedAt = :now " +
+            "WHERE c.id = :id AND c.isActive = true AND c.usedCount < c.maxUses " +
+            "AND c.validFrom <= :now AND c.validUntil >= :now")
+    int redeem(@Param("id") Long couponId, @Param("now") LocalDateTime now);
+
     // Check if code exists
     boolean existsByCodeIgnoreCase(String code);
 }
\ No newline at end of file
@@ -1,10 +1,13 @@
 package com.example.realestate.repository;
 
 import com.example.realestate.model.BrokerSubscription;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -32,6 +35,36 @@ public interface BrokerSubscriptionRepository extends JpaRepository<BrokerSubscr
     @Query("SELECT s FROM BrokerSubscription s WHERE s.status = 'ACTIVE' AND s.endDate < :now")
     List<BrokerSubscription> findExpiredSubscriptions(@Param("now") LocalDateTime now);
 
+    // Expire every active subscription whose end date has passed, in one statement
+    @Modifying
+    @Transactional
+    @Query("UPDATE BrokerSubscription s SET s.status = 'EXPIRED', s.updatedAt = :now " +
+            "WHERE s.status = 'ACTIVE' AND s.endDate <= :now")
+    int expireDue(@Param("now") LocalDateTime now);
+
+    // Take one posting slot if the subscription is still active and under its limit (0 rows = refused)
+    @Modifying
+    @Transactional
+    @Query("UPDATE BrokerSubscription s " +
+            "SET s.propertiesPosted = COALESCE(s.propertiesPosted, 0) + 1, s.updatedAt = :now " +
+            "WHERE s.id = :id AND s.status = 'ACTIVE' AND s.endDate > :now " +
+            "AND COALESCE(s.propertiesPosted, 0) < s.maxProperties")
+    int reserveSlot(@Param("id") Long subscriptionId, @Param("now") LocalDateTime now);
+
+    // Keyset page of unpaid subscription orders for PaymentReconciliationService
+    @Query("SELECT s FROM BrokerSubscription s WHERE s.status = 'PENDING' AND s.razorpayOrderId IS NOT NULL " +
+            "AND s.id > :afterId AND s.createdAt < :olderThan ORDER BY s.id")
+    List<BrokerSubscription> findPendingAfter(@Param("afterId") Long afterId,
+                                              @Param("olderThan") LocalDateTime olderThan,
+                                              Pageable pageable);
+
+    @Query("SELECT MIN(s.createdAt) FROM BrokerSubscription s WHERE s.status = 'PENDING' AND s.razorpayOrderId IS NOT NULL")
+    LocalDateTime findOldestPendingCreatedAt();
+
+    // Upcoming end dates of active subscriptions (seeds the expiry timing wheel)
+    @Query("SELECT DISTINCT s.endDate FROM BrokerSubscription s WHERE s.status = 'ACTIVE' AND s.endDate > :now")
+    List<LocalDateTime> findUpcomingEndDates(@Param("now") LocalDateTime now);
+
     // Count active brokers
     @Query("SELECT COUNT(DISTINCT s.broker.id) FROM BrokerSubscription s " +
             "WHERE s.status = 'ACTIVE' AND s.endDate > :now")
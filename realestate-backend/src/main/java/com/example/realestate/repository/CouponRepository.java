@@ -2,8 +2,11 @@ package com.example.realestate.repository;
 
 import com.example.realestate.model.Coupon;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -29,5 +32,32 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
 
     List<Coupon> findByIsActiveTrue();
 
+    // Live usage count (CouponLookupCache never caches it)
+    @Query("SELECT c.usedCount FROM Coupon c WHERE c.couponId = :couponId")
+    Integer findUsedCount(@Param("couponId") Long couponId);
+
+    // ==================== REDEMPTION (CouponRedemptionService) ====================
+
+    // Count n usages if the coupon is live and has n left (0 rows = refused)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Coupon c SET c.usedCount = COALESCE(c.usedCount, 0) + :n " +
+            "WHERE c.couponId = :couponId AND c.isActive = true " +
+            "AND (c.validFrom IS NULL OR c.validFrom <= :now) " +
+            "AND (c.validUntil IS NULL OR c.validUntil > :now) " +
+            "AND (c.usageLimit IS NULL OR COALESCE(c.usedCount, 0) + :n <= c.usageLimit)")
+    int takeUsages(@Param("couponId") Long couponId, @Param("n") int n, @Param("now") LocalDateTime now);
+
+    // Count a usage regardless of limits (payment already captured)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Coupon c SET c.usedCount = COALESCE(c.usedCount, 0) + 1 WHERE c.couponId = :couponId")
+    int forceTakeUsage(@Param("couponId") Long couponId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Coupon c SET c.usedCount = c.usedCount - :n WHERE c.couponId = :couponId AND c.usedCount >= :n")
+    int returnUsages(@Param("couponId") Long couponId, @Param("n") int n);
+
     boolean existsByCouponCode(String couponCode);
 }
\ No newline at end of file
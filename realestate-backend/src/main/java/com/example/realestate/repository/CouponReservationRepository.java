@@ -0,0 +1,33 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.CouponReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CouponReservationRepository extends JpaRepository<CouponReservation, Long> {
+
+    Optional<CouponReservation> findFirstByFeaturedIdOrderByIdDesc(Long featuredId);
+
+    List<CouponReservation> findByFeaturedIdAndStatus(Long featuredId, CouponReservation.Status status);
+
+    // Abandoned reservations whose usage should go back to the coupon
+    @Query("SELECT r FROM CouponReservation r WHERE r.status = 'RESERVED' AND r.expiresAt <= :now ORDER BY r.id")
+    List<CouponReservation> findExpired(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Move a reservation out of RESERVED exactly once (0 rows = someone else already did)
+    @Modifying
+    @Transactional
+    @Query("UPDATE CouponReservation r SET r.status = :to, r.updatedAt = :now " +
+            "WHERE r.id = :id AND r.status = 'RESERVED'")
+    int settle(@Param("id") Long id, @Param("to") CouponReservation.Status to, @Param("now") LocalDateTime now);
+}
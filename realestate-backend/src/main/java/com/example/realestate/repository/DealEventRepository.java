@@ -0,0 +1,26 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.DealEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+@Repository
+public interface DealEventRepository extends JpaRepository<DealEvent, Long> {
+
+    // Timeline page, newest first (Slice: no COUNT query)
+    Slice<DealEvent> findByDealIdOrderByIdDesc(Long dealId, Pageable pageable);
+
+    // Drop the timelines of deleted deals
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DealEvent e WHERE e.dealId IN :dealIds")
+    int deleteByDealIds(@Param("dealIds") Collection<Long> dealIds);
+}
@@ -1,17 +1,47 @@
 package com.example.realestate.repository;
 
+import com.example.realestate.dto.DealDetailDTO;
 import com.example.realestate.model.DealStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface DealStatusRepository extends JpaRepository<DealStatus, Long> {
 
+    // DealDetailDTO projection with property, seller, buyer and agent joined in one statement
+    String DEAL_DETAIL_SELECT = """
+            SELECT new com.example.realestate.dto.DealDetailDTO(
+                d.id, d.stage, d.agreedPrice, d.notes, d.createdAt, d.updatedAt, d.lastUpdatedBy,
+                p.id, p.title, p.price, p.city,
+                b.id, b.firstName, b.lastName, b.email, b.mobileNumber,
+                s.id, s.firstName, s.lastName, s.email, s.mobileNumber,
+                a.id, a.firstName, a.lastName, a.email, a.mobileNumber,
+                d.inquiryDate, d.shortlistDate, d.negotiationDate, d.agreementDate,
+                d.registrationDate, d.paymentDate, d.completedDate,
+                d.agreementUploaded, d.registrationUploaded)
+            FROM DealStatus d
+            JOIN d.property p
+            LEFT JOIN p.user s
+            JOIN d.buyer b
+            LEFT JOIN d.agent a
+            """;
+
+    // Keyset paging: newest deal first, next page starts below the last id seen
+    String DEAL_PAGE_FILTER = """
+             AND (:stage IS NULL OR d.stage = :stage)
+             AND (:afterId IS NULL OR d.id < :afterId)
+            ORDER BY d.id DESC
+            """;
+
     // Find deal by property and buyer (combination)
     Optional<DealStatus> findByPropertyIdAndBuyerId(Long propertyId, Long buyerId);
 
@@ -43,6 +73,32 @@ public interface DealStatusRepository extends JpaRepository<DealStatus, Long> {
     @Query("SELECT COUNT(d) FROM DealStatus d WHERE d.stage = :stage")
     Long countByStage(@Param("stage") DealStatus.DealStage stage);
 
+    // Deal count per stage in one pass: [stage, count]
+    @Query("SELECT d.stage, COUNT(d) FROM DealStatus d GROUP BY d.stage")
+    List<Object[]> countGroupedByStage();
+
+    // Per-agent, per-stage deal count and agreed-price total: [agentId, stage, count, sum]
+    @Query("""
+       SELECT d.agent.id, d.stage, COUNT(d), COALESCE(SUM(d.agreedPrice), 0)
+       FROM DealStatus d
+       WHERE d.agent IS NOT NULL
+       GROUP BY d.agent.id, d.stage
+       """)
+    List<Object[]> aggregateByAgentAndStage();
+
+    // Same rollup for one agent: [stage, count, sum]
+    @Query("""
+       SELECT d.stage, COUNT(d), COALESCE(SUM(d.agreedPrice), 0)
+       FROM DealStatus d
+       WHERE d.agent.id = :agentId
+       GROUP BY d.stage
+       """)
+    List<Object[]> aggregateByStageForAgent(@Param("agentId") Long agentId);
+
+    // Number of distinct properties an agent has deals on
+    @Query("SELECT COUNT(DISTINCT d.property.id) FROM DealStatus d WHERE d.agent.id = :agentId")
+    long countDistinctPropertiesForAgent(@Param("agentId") Long agentId);
+
     // Find deals by agent and stage
     @Query("SELECT d FROM DealStatus d WHERE d.agent.id = :agentId AND d.stage = :stage")
     List<DealStatus> findByAgentIdAndStage(@Param("agentId") Long agentId, @Param("stage") DealStatus.DealStage stage);
@@ -78,6 +134,47 @@ public interface DealStatusRepository extends JpaRepository<DealStatus, Long> {
     List<DealStatus> findDealsWithRelationsByAgentId(@Param("agentId") Long agentId);
 
 
+    // ==================== DEAL LISTING PROJECTIONS (DealDetailDTO, no entities) ====================
+
+    // Deals where the user is the buyer or owns the property (USER / BROKER);
+    // owned properties count only while active, as findByUserId does
+    @Query(DEAL_DETAIL_SELECT + "WHERE (b.id = :userId OR (s.id = :userId AND p.isActive = true))" + DEAL_PAGE_FILTER)
+    List<DealDetailDTO> findDealDetailsForParticipant(@Param("userId") Long userId,
+                                                      @Param("stage") DealStatus.DealStage stage,
+                                                      @Param("afterId") Long afterId,
+                                                      Pageable pageable);
+
+    @Query(DEAL_DETAIL_SELECT + "WHERE a.id = :agentId" + DEAL_PAGE_FILTER)
+    List<DealDetailDTO> findDealDetailsForAgent(@Param("agentId") Long agentId,
+                                                @Param("stage") DealStatus.DealStage stage,
+                                                @Param("afterId") Long afterId,
+                                                Pageable pageable);
+
+    @Query(DEAL_DETAIL_SELECT + "WHERE 1 = 1" + DEAL_PAGE_FILTER)
+    List<DealDetailDTO> findAllDealDetails(@Param("stage") DealStatus.DealStage stage,
+                                           @Param("afterId") Long afterId,
+                                           Pageable pageable);
+
+    // ==================== CHUNKED CASCADE DELETE (UserDeletionService) ====================
+
+    @Query("SELECT d.id FROM DealStatus d WHERE d.agent.id = :agentId")
+    List<Long> findIdsByAgentId(@Param("agentId") Long agentId, Pageable pageable);
+
+    @Query("SELECT d.id FROM DealStatus d WHERE d.buyer.id = :buyerId")
+    List<Long> findIdsByBuyerId(@Param("buyerId") Long buyerId, Pageable pageable);
+
+    // Deals on properties the user owns (user as seller)
+    @Query("SELECT d.id FROM DealStatus d WHERE d.property.user.id = :ownerId")
+    List<Long> findIdsByPropertyOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    @Query("SELECT d.stage, COUNT(d) FROM DealStatus d WHERE d.id IN :ids GROUP BY d.stage")
+    List<Object[]> countGroupedByStageForIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DealStatus d WHERE d.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
     // Check if deal exists
     boolean existsByPropertyIdAndBuyerId(Long propertyId, Long buyerId);
 
@@ -0,0 +1,19 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.DeletionJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DeletionJobRepository extends JpaRepository<DeletionJob, Long> {
+
+    // Jobs to resume after a restart, oldest first
+    List<DeletionJob> findByStatusInOrderByIdAsc(Collection<DeletionJob.Status> statuses);
+
+    // An unfinished job for this user, if one is already queued or running
+    Optional<DeletionJob> findFirstByUserIdAndStatusIn(Long userId, Collection<DeletionJob.Status> statuses);
+}
@@ -1,12 +1,16 @@
 package com.example.realestate.repository;
 
 import com.example.realestate.model.FeaturedProperty;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -79,4 +83,81 @@ public interface FeaturedPropertyRepository extends JpaRepository<FeaturedProper
             """)
     List<FeaturedProperty> findActiveValid(@Param("now") LocalDateTime now);
 
+    /**
+     * Paid/free featured windows that have not ended yet (including ones starting later),
+     * as [propertyId, featuredFrom, featuredUntil]. Source for FeaturedIndexService.
+     */
+    @Query("""
+            SELECT fp.propertyId, fp.featuredFrom, fp.featuredUntil
+            FROM FeaturedProperty fp
+            JOIN Property p ON p.id = fp.propertyId
+            WHERE fp.isActive = true
+              AND p.isActive = true
+              AND (fp.featuredUntil IS NULL OR fp.featuredUntil > :now)
+              AND (fp.paymentStatus = 'COMPLETED' OR fp.paymentStatus = 'FREE')
+            """)
+    List<Object[]> findLiveWindows(@Param("now") LocalDateTime now);
+
+    @Query("""
+            SELECT fp.propertyId, fp.featuredFrom, fp.featuredUntil
+            FROM FeaturedProperty fp
+            JOIN Property p ON p.id = fp.propertyId
+            WHERE fp.propertyId = :propertyId
+              AND fp.isActive = true
+              AND p.isActive = true
+              AND (fp.featuredUntil IS NULL OR fp.featuredUntil > :now)
+              AND (fp.paymentStatus = 'COMPLETED' OR fp.paymentStatus = 'FREE')
+            """)
+    List<Object[]> findLiveWindowsByPropertyId(@Param("propertyId") Long propertyId,
+                                               @Param("now") LocalDateTime now);
+
+    /**
+     * Deactivate every paid/free featured record whose period has ended, in one statement
+     * (also frees the property for a new featured order, see existsByPropertyIdAndIsActiveTrue)
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE FeaturedProperty fp SET fp.isActive = false, fp.updatedAt = :now
+            WHERE fp.isActive = true
+              AND fp.featuredUntil <= :now
+              AND (fp.paymentStatus = 'COMPLETED' OR fp.paymentStatus = 'FREE')
+            """)
+    int expireDue(@Param("now") LocalDateTime now);
+
+    // Bulk deactivation for properties being soft-deleted (UserDeletionService)
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE FeaturedProperty fp SET fp.isActive = false, fp.updatedAt = :now
+            WHERE fp.isActive = true AND fp.propertyId IN :propertyIds
+            """)
+    int deactivateByPropertyIds(@Param("propertyIds") Collection<Long> propertyIds,
+                                @Param("now") LocalDateTime now);
+
+    // Upcoming end dates of active featured records (seeds the expiry timing wheel)
+    @Query("""
+            SELECT DISTINCT fp.featuredUntil FROM FeaturedProperty fp
+            WHERE fp.isActive = true
+              AND fp.featuredUntil > :now
+              AND (fp.paymentStatus = 'COMPLETED' OR fp.paymentStatus = 'FREE')
+            """)
+    List<LocalDateTime> findUpcomingEndDates(@Param("now") LocalDateTime now);
+
+    // Keyset page of unpaid orders for PaymentReconciliationService
+    @Query("""
+            SELECT fp FROM FeaturedProperty fp
+            WHERE fp.paymentStatus = 'PENDING'
+              AND fp.orderId IS NOT NULL
+              AND fp.featuredId > :afterId
+              AND fp.createdAt < :olderThan
+            ORDER BY fp.featuredId
+            """)
+    List<FeaturedProperty> findPendingAfter(@Param("afterId") Long afterId,
+                                            @Param("olderThan") LocalDateTime olderThan,
+                                            Pageable pageable);
+
+    @Query("SELECT MIN(fp.createdAt) FROM FeaturedProperty fp WHERE fp.paymentStatus = 'PENDING' AND fp.orderId IS NOT NULL")
+    LocalDateTime findOldestPendingCreatedAt();
+
 }
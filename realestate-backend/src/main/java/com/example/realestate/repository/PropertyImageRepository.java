@@ -1,6 +1,7 @@
 package com.example.realestate.repository;
 
 import com.example.realestate.model.PropertyImage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,6 +9,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +21,10 @@ public interface PropertyImageRepository extends JpaRepository<PropertyImage, In
     @Query("SELECT pi FROM PropertyImage pi WHERE pi.property.id = :propertyId ORDER BY pi.displayOrder")
     List<PropertyImage> findByPropertyId(@Param("propertyId") Long propertyId);
 
+    // Image urls for a batch of properties: [propertyId, card url (original until resized), isPrimary], in display order
+    @Query("SELECT pi.property.id, COALESCE(pi.cardUrl, pi.imageUrl), pi.isPrimary FROM PropertyImage pi WHERE pi.property.id IN :propertyIds ORDER BY pi.displayOrder")
+    List<Object[]> findImageUrlsByPropertyIds(@Param("propertyIds") Collection<Long> propertyIds);
+
     // Find primary image for a property
     @Query("SELECT pi FROM PropertyImage pi WHERE pi.property.id = :propertyId AND pi.isPrimary = true")
     Optional<PropertyImage> findPrimaryImageByPropertyId(@Param("propertyId") Long propertyId);
@@ -26,4 +33,32 @@ public interface PropertyImageRepository extends JpaRepository<PropertyImage, In
     @Transactional
     @Query("DELETE FROM PropertyImage pi WHERE pi.property.id = :propertyId")
     void deleteByPropertyId(@Param("propertyId") Long propertyId);
+
+    // ==================== Resized variants (ImageVariantService) ====================
+
+    @Query("SELECT DISTINCT pi.property.id FROM PropertyImage pi WHERE pi.imageUrl = :imageUrl")
+    List<Long> findPropertyIdsByImageUrl(@Param("imageUrl") String imageUrl);
+
+    // Originals still waiting for variants, saved before :before
+    @Query("SELECT DISTINCT pi.imageUrl FROM PropertyImage pi WHERE pi.variantStatus = 'PENDING' AND pi.createdAt < :before")
+    List<String> findPendingVariantUrls(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PropertyImage pi SET pi.thumbnailUrl = :thumbnailUrl, pi.cardUrl = :cardUrl, " +
+           "pi.detailUrl = :detailUrl, pi.variantStatus = 'READY' WHERE pi.imageUrl = :imageUrl")
+    int recordVariants(@Param("imageUrl") String imageUrl,
+                       @Param("thumbnailUrl") String thumbnailUrl,
+                       @Param("cardUrl") String cardUrl,
+                       @Param("detailUrl") String detailUrl);
+
+    // Another row showing the same file that already has its variants
+    Optional<PropertyImage> findFirstByImageUrlAndVariantStatus(String imageUrl, PropertyImage.VariantStatus variantStatus);
+
+    boolean existsByImageUrl(String imageUrl);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PropertyImage pi SET pi.variantStatus = 'FAILED' WHERE pi.imageUrl = :imageUrl AND pi.variantStatus = 'PENDING'")
+    int markVariantsFailed(@Param("imageUrl") String imageUrl);
 }
\ No newline at end of file
@@ -1,19 +1,27 @@
 package com.example.realestate.repository;
 
+import com.example.realestate.dto.PropertyDTO;
 import com.example.realestate.model.Property;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface PropertyRepository extends JpaRepository<Property, Long> {
+public interface PropertyRepository extends JpaRepository<Property, Long>, PropertySearchRepository {
 
     List<Property> findByUserIdAndIsActiveTrue(Long userId);
 
@@ -128,6 +136,89 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
     // Active properties
     List<Property> findByIsActiveTrueOrderByCreatedAtDesc();
 
+    // ==================== LISTING PROJECTIONS (PropertyDTO, no entities) ====================
+
+    @Query(PROPERTY_CARD_SELECT + "WHERE p.isActive = true ORDER BY p.createdAt DESC")
+    List<PropertyDTO> findActiveCards();
+
+    // Active properties as a cursor for NDJSON streaming. Integer.MIN_VALUE is
+    // Connector/J's row-by-row streaming mode for this statement only; the connection
+    // can't run other queries until the stream is closed.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"))
+    @Query(PROPERTY_CARD_SELECT + "WHERE p.isActive = true ORDER BY p.createdAt DESC")
+    Stream<PropertyDTO> streamActiveCards();
+
+    @Query(PROPERTY_CARD_SELECT + "WHERE p.id IN :ids")
+    List<PropertyDTO> findCardsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(PROPERTY_CARD_SELECT + "WHERE LOWER(p.type) = LOWER(:type) AND p.isActive = true")
+    List<PropertyDTO> findActiveCardsByType(@Param("type") String type);
+
+    @Query(PROPERTY_CARD_SELECT + "WHERE u.id = :userId AND p.isActive = true")
+    List<PropertyDTO> findActiveCardsByUserId(@Param("userId") Long userId);
+
+    @Query(PROPERTY_CARD_SELECT + "WHERE p.listingType = :listingType AND p.isActive = true")
+    List<PropertyDTO> findActiveCardsByListingType(@Param("listingType") String listingType);
+
+    @Query(PROPERTY_CARD_SELECT + "WHERE a.areaId = :areaId AND p.isActive = true")
+    List<PropertyDTO> findActiveCardsByAreaId(@Param("areaId") Integer areaId);
+
+    @Query(PROPERTY_CARD_SELECT + "WHERE LOWER(a.areaName) = LOWER(:areaName) AND p.isActive = true")
+    List<PropertyDTO> findActiveCardsByAreaName(@Param("areaName") String areaName);
+
+    // Partial area match (same semantics as searchByArea)
+    @Query(PROPERTY_CARD_SELECT + "WHERE LOWER(a.areaName) LIKE LOWER(CONCAT('%', :area, '%'))")
+    List<PropertyDTO> searchCardsByArea(@Param("area") String area);
+
+    // Same filters as searchProperties, projected; the count query must be explicit
+    // because Spring can't derive one from a constructor expression
+    @Query(value = PROPERTY_CARD_SELECT + """
+            WHERE p.isActive = true
+            AND (:propertyType IS NULL OR pt.typeName = :propertyType OR p.type = :propertyType)
+            AND (:minPrice IS NULL OR p.price >= :minPrice)
+            AND (:maxPrice IS NULL OR p.price <= :maxPrice)
+            AND (:city IS NULL OR c.cityName = :city OR p.city = :city)
+            AND (:area IS NULL OR a.areaName = :area)
+            AND (:listingType IS NULL OR p.listingType = :listingType)
+            AND (:minBedrooms IS NULL OR p.bedrooms >= :minBedrooms)
+            AND (:maxBedrooms IS NULL OR p.bedrooms <= :maxBedrooms)
+            AND (:isVerified IS NULL OR p.isVerified = :isVerified)
+            AND (:ownerType IS NULL OR p.ownerType = :ownerType)
+            AND (:isReadyToMove IS NULL OR p.isReadyToMove = :isReadyToMove)
+            """,
+            countQuery = """
+            SELECT COUNT(p) FROM Property p
+            LEFT JOIN p.propertyType pt
+            LEFT JOIN p.area a
+            LEFT JOIN a.city c
+            WHERE p.isActive = true
+            AND (:propertyType IS NULL OR pt.typeName = :propertyType OR p.type = :propertyType)
+            AND (:minPrice IS NULL OR p.price >= :minPrice)
+            AND (:maxPrice IS NULL OR p.price <= :maxPrice)
+            AND (:city IS NULL OR c.cityName = :city OR p.city = :city)
+            AND (:area IS NULL OR a.areaName = :area)
+            AND (:listingType IS NULL OR p.listingType = :listingType)
+            AND (:minBedrooms IS NULL OR p.bedrooms >= :minBedrooms)
+            AND (:maxBedrooms IS NULL OR p.bedrooms <= :maxBedrooms)
+            AND (:isVerified IS NULL OR p.isVerified = :isVerified)
+            AND (:ownerType IS NULL OR p.ownerType = :ownerType)
+            AND (:isReadyToMove IS NULL OR p.isReadyToMove = :isReadyToMove)
+            """)
+    Page<PropertyDTO> searchPropertyCards(
+            @Param("propertyType") String propertyType,
+            @Param("minPrice") BigDecimal minPrice,
+            @Param("maxPrice") BigDecimal maxPrice,
+            @Param("city") String city,
+            @Param("area") String area,
+            @Param("listingType") String listingType,
+            @Param("minBedrooms") Double minBedrooms,
+            @Param("maxBedrooms") Double maxBedrooms,
+            @Param("isVerified") Boolean isVerified,
+            @Param("ownerType") String ownerType,
+            @Param("isReadyToMove") Boolean isReadyToMove,
+            Pageable pageable
+    );
+
     // Search by title
     List<Property> findByTitleContainingIgnoreCase(String title);
 
@@ -151,6 +242,55 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
             """)
     List<Property> quickSearch(@Param("q") String q);
 
+    // Source rows for the in-memory quick search index (no entity graphs)
+    @Query("""
+            SELECT p.id, p.title, p.description, p.address, p.city, a.areaName,
+                   u.firstName, u.lastName, u.username
+            FROM Property p
+            LEFT JOIN p.area a
+            LEFT JOIN p.user u
+            WHERE p.isActive = true
+            """)
+    List<Object[]> findQuickSearchDocuments();
+
+    // Column source for the in-memory filter engine (see PropertyFilterEngine for the column order)
+    @Query("""
+            SELECT p.id, pt.typeName, p.type, p.price, c.cityName, p.city, a.areaName,
+                   p.listingType, p.bedrooms, p.isVerified, p.ownerType, p.isReadyToMove,
+                   p.createdAt, p.areaSqft
+            FROM Property p
+            LEFT JOIN p.propertyType pt
+            LEFT JOIN p.area a
+            LEFT JOIN a.city c
+            WHERE p.isActive = true
+            """)
+    List<Object[]> findFilterColumns();
+
+    @Query("""
+            SELECT p.id, pt.typeName, p.type, p.price, c.cityName, p.city, a.areaName,
+                   p.listingType, p.bedrooms, p.isVerified, p.ownerType, p.isReadyToMove,
+                   p.createdAt, p.areaSqft
+            FROM Property p
+            LEFT JOIN p.propertyType pt
+            LEFT JOIN p.area a
+            LEFT JOIN a.city c
+            WHERE p.id = :id AND p.isActive = true
+            """)
+    List<Object[]> findFilterColumnsById(@Param("id") Long id);
+
+    // ==================== CHUNKED SOFT DELETE (UserDeletionService) ====================
+
+    @Query("""
+            SELECT p.id FROM Property p
+            WHERE p.user.id = :userId AND (p.isActive = true OR p.status IS NULL OR p.status <> 'DELETED')
+            """)
+    List<Long> findIdsToSoftDelete(@Param("userId") Long userId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Property p SET p.isActive = false, p.status = 'DELETED', p.updatedAt = :now WHERE p.id IN :ids")
+    int softDeleteByIds(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
     // Partial area match
     @Query("""
             SELECT p FROM Property p 
@@ -158,4 +298,7 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
             WHERE LOWER(a.areaName) LIKE LOWER(CONCAT('%', :area, '%'))
             """)
     List<Property> searchByArea(@Param("area") String area);
+
+    // Still pointing at an uploaded file? (BlobStoreService checks before deleting it)
+    boolean existsByImageUrl(String imageUrl);
 }
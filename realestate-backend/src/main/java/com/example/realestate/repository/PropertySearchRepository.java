@@ -0,0 +1,50 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.dto.PropertySearchRequest;
+import com.example.realestate.dto.PropertyDTO;
+
+import java.util.List;
+
+/**
+ * Custom search queries that can't be expressed as a single static JPQL string.
+ * Implemented by PropertySearchRepositoryImpl and mixed into PropertyRepository.
+ */
+public interface PropertySearchRepository {
+
+    /**
+     * Card-sized listing projection: exactly the columns PropertyDTO needs, with
+     * area/city/type/owner names from the same join. Append a WHERE clause.
+     */
+    String PROPERTY_CARD_SELECT = """
+            SELECT new com.example.realestate.dto.PropertyDTO(
+                p.id, p.title, p.description, p.imageUrl, p.price, p.priceDisplay,
+                p.bedrooms, p.bathrooms, p.balconies, p.areaSqft, p.pricePerSqft,
+                p.address, p.amenities, p.status, p.listingType,
+                p.isFeatured, p.ownerType, p.isReadyToMove, p.isVerified,
+                p.constructionStatus, p.possessionYear, p.possessionMonth,
+                p.reraId, p.hmdaId, p.createdAt,
+                p.city, p.type,
+                a.areaName, a.pincode, c.cityName, c.state, pt.typeName,
+                u.id, u.firstName, u.lastName, u.email, u.mobileNumber, u.role)
+            FROM Property p
+            LEFT JOIN p.area a
+            LEFT JOIN a.city c
+            LEFT JOIN p.propertyType pt
+            LEFT JOIN p.user u
+            """;
+
+    /**
+     * Keyset page over active properties matching the request filters.
+     *
+     * Rows with a value in sortColumn are returned first, ordered by (sortColumn, id).
+     * With nullSegment = true only rows whose sortColumn is NULL are returned, ordered by id.
+     * afterKey / afterId are the last row of the previous page (null for the first page).
+     */
+    List<PropertyDTO> findPageAfter(PropertySearchRequest filters, String sortColumn, boolean ascending,
+                                 Object afterKey, Long afterId, boolean nullSegment, int limit);
+
+    /**
+     * Count active properties matching the request filters
+     */
+    long countMatching(PropertySearchRequest filters);
+}
@@ -0,0 +1,130 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.dto.PropertySearchRequest;
+import com.example.realestate.dto.PropertyDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class PropertySearchRepositoryImpl implements PropertySearchRepository {
+
+    // Only indexed columns may be used as keyset sort keys
+    private static final Set<String> KEYSET_COLUMNS = Set.of("price", "createdAt", "areaSqft");
+
+    private static final String COUNT_FROM = """
+            FROM Property p
+            LEFT JOIN p.propertyType pt
+            LEFT JOIN p.area a
+            LEFT JOIN a.city c
+            WHERE p.isActive = true
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<PropertyDTO> findPageAfter(PropertySearchRequest filters, String sortColumn, boolean ascending,
+                                        Object afterKey, Long afterId, boolean nullSegment, int limit) {
+        if (!KEYSET_COLUMNS.contains(sortColumn)) {
+            throw new IllegalArgumentException("Unsupported sort column: " + sortColumn);
+        }
+
+        String col = "p." + sortColumn;
+        String cmp = ascending ? ">" : "<";
+        String dir = ascending ? "ASC" : "DESC";
+
+        StringBuilder jpql = new StringBuilder(PROPERTY_CARD_SELECT).append(" WHERE p.isActive = true");
+        Map<String, Object> params = new HashMap<>();
+        appendFilters(jpql, params, filters);
+
+        if (nullSegment) {
+            jpql.append(" AND ").append(col).append(" IS NULL");
+            if (afterId != null) {
+                jpql.append(" AND p.id ").append(cmp).append(" :afterId");
+                params.put("afterId", afterId);
+            }
+            jpql.append(" ORDER BY p.id ").append(dir);
+        } else {
+            jpql.append(" AND ").append(col).append(" IS NOT NULL");
+            if (afterKey != null && afterId != null) {
+                jpql.append(" AND (").append(col).append(' ').append(cmp).append(" :afterKey")
+                        .append(" OR (").append(col).append(" = :afterKey AND p.id ").append(cmp).append(" :afterId))");
+                params.put("afterKey", afterKey);
+                params.put("afterId", afterId);
+            }
+            jpql.append(" ORDER BY ").append(col).append(' ').append(dir).append(", p.id ").append(dir);
+        }
+
+        TypedQuery<PropertyDTO> query = entityManager.createQuery(jpql.toString(), PropertyDTO.class);
+        params.forEach(query::setParameter);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+
+    @Override
+    public long countMatching(PropertySearchRequest filters) {
+        StringBuilder jpql = new StringBuilder("SELECT COUNT(p) ").append(COUNT_FROM);
+        Map<String, Object> params = new HashMap<>();
+        appendFilters(jpql, params, filters);
+
+        TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class);
+        params.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    /**
+     * Same predicates as PropertyRepository.searchProperties, but only the ones
+     * actually set are emitted so MySQL can pick a usable index.
+     */
+    private static void appendFilters(StringBuilder jpql, Map<String, Object> params, PropertySearchRequest f) {
+        if (f.getPropertyType() != null) {
+            jpql.append(" AND (pt.typeName = :propertyType OR p.type = :propertyType)");
+            params.put("propertyType", f.getPropertyType());
+        }
+        if (f.getMinPrice() != null) {
+            jpql.append(" AND p.price >= :minPrice");
+            params.put("minPrice", f.getMinPrice());
+        }
+        if (f.getMaxPrice() != null) {
+            jpql.append(" AND p.price <= :maxPrice");
+            params.put("maxPrice", f.getMaxPrice());
+        }
+        if (f.getCity() != null) {
+            jpql.append(" AND (c.cityName = :city OR p.city = :city)");
+            params.put("city", f.getCity());
+        }
+        if (f.getArea() != null) {
+            jpql.append(" AND a.areaName = :area");
+            params.put("area", f.getArea());
+        }
+        if (f.getListingType() != null) {
+            jpql.append(" AND p.listingType = :listingType");
+            params.put("listingType", f.getListingType());
+        }
+        if (f.getMinBedrooms() != null) {
+            jpql.append(" AND p.bedrooms >= :minBedrooms");
+            params.put("minBedrooms", f.getMinBedrooms().doubleValue());
+        }
+        if (f.getMaxBedrooms() != null) {
+            jpql.append(" AND p.bedrooms <= :maxBedrooms");
+            params.put("maxBedrooms", f.getMaxBedrooms().doubleValue());
+        }
+        if (f.getIsVerified() != null) {
+            jpql.append(" AND p.isVerified = :isVerified");
+            params.put("isVerified", f.getIsVerified());
+        }
+        if (f.getOwnerType() != null) {
+            jpql.append(" AND p.ownerType = :ownerType");
+            params.put("ownerType", f.getOwnerType());
+        }
+        if (f.getIsReadyToMove() != null) {
+            jpql.append(" AND p.isReadyToMove = :isReadyToMove");
+            params.put("isReadyToMove", f.getIsReadyToMove());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.StoredBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, Long> {
+
+    Optional<StoredBlob> findByS3Key(String s3Key);
+
+    Optional<StoredBlob> findBySha256AndScope(String sha256, String scope);
+
+    // Take a reference to an existing blob; 0 if it was deleted in the meantime
+    @Modifying
+    @Transactional
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount + 1 WHERE b.id = :id")
+    int acquire(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount - 1 WHERE b.id = :id AND b.refCount > 0")
+    int release(@Param("id") Long id);
+
+    // Only the caller that gets 1 here may delete the S3 object
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM StoredBlob b WHERE b.id = :id AND b.refCount = 0")
+    int deleteIfUnreferenced(@Param("id") Long id);
+}
@@ -0,0 +1,42 @@
+package com.example.realestate.repository;
+
+import com.example.realestate.model.WebhookEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, Long> {
+
+    // Next batch to process, in arrival order, after the last id already read this drain
+    @Query("SELECT e FROM WebhookEvent e WHERE e.status = 'RECEIVED' AND e.id > :afterId ORDER BY e.id")
+    List<WebhookEvent> findReceivedAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE WebhookEvent e SET e.status = 'PROCESSED', e.attempts = e.attempts + 1, " +
+            "e.error = NULL, e.processedAt = :now WHERE e.id = :id AND e.status = 'RECEIVED'")
+    int markProcessed(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // The event stays RECEIVED for another attempt...
+    @Modifying
+    @Transactional
+    @Query("UPDATE WebhookEvent e SET e.attempts = e.attempts + 1, e.error = :error, " +
+            "e.nextAttemptAt = :nextAttemptAt WHERE e.id = :id AND e.status = 'RECEIVED'")
+    int recordFailure(@Param("id") Long id, @Param("error") String error,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    // ...until it has used up its attempts
+    @Modifying
+    @Transactional
+    @Query("UPDATE WebhookEvent e SET e.status = 'FAILED' " +
+            "WHERE e.id = :id AND e.status = 'RECEIVED' AND e.attempts >= :maxAttempts")
+    int failIfExhausted(@Param("id") Long id, @Param("maxAttempts") int maxAttempts);
+}
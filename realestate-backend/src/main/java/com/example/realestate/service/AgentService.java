@@ -2,7 +2,6 @@ package com.example.realestate.service;
 
 import com.example.realestate.dto.PropertyDTO;
 import com.example.realestate.model.DealStatus;
-import com.example.realestate.model.Property;
 import com.example.realestate.model.User;
 import com.example.realestate.repository.DealStatusRepository;
 import com.example.realestate.repository.PropertyRepository;
@@ -31,6 +30,9 @@ public class AgentService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PrimaryImageResolver primaryImageResolver;
+
     public User getAssignedAgent() {
         List<User> agents = userRepository.findByRole(User.UserRole.AGENT);
 
@@ -109,11 +111,7 @@ public class AgentService {
 
     public List<PropertyDTO> getAllPropertiesForAgent(Integer page, Integer size) {
         logger.info("Fetching all properties (page: {}, size: {})", page, size);
-        List<Property> properties = propertyRepository.findByIsActiveTrueOrderByCreatedAtDesc();
-
-        return properties.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return primaryImageResolver.applyTo(propertyRepository.findActiveCards());
     }
 
     public Map<String, Object> getAgentStats(Long agentId) {
@@ -121,82 +119,28 @@ public class AgentService {
 
         Map<String, Object> stats = new HashMap<>();
 
-        List<DealStatus> allDeals = dealStatusRepository.findByAgentId(agentId);
-        stats.put("totalDeals", allDeals.size());
-
-        long activeDeals = allDeals.stream()
-                .filter(d -> d.getStage() != DealStatus.DealStage.COMPLETED)
-                .count();
-        stats.put("activeDealCount", activeDeals);
-
-        long completedDeals = allDeals.stream()
-                .filter(d -> d.getStage() == DealStatus.DealStage.COMPLETED)
-                .count();
-        stats.put("completedDealCount", completedDeals);
-
-        long propertiesManaged = allDeals.stream()
-                .map(d -> d.getProperty().getId())
-                .distinct()
-                .count();
-        stats.put("propertiesManaged", propertiesManaged);
-
-        // FIXED: Changed stage.getLabel() to stage.name()
+        // Grouped counts per stage instead of loading every deal of the agent
         Map<String, Long> stageBreakdown = new HashMap<>();
         for (DealStatus.DealStage stage : DealStatus.DealStage.values()) {
-            long count = allDeals.stream()
-                    .filter(d -> d.getStage() == stage)
-                    .count();
-            stageBreakdown.put(stage.name(), count);  // ✅ FIXED: was getLabel()
+            stageBreakdown.put(stage.name(), 0L);
+        }
+        long totalDeals = 0;
+        for (Object[] row : dealStatusRepository.aggregateByStageForAgent(agentId)) {
+            long count = ((Number) row[1]).longValue();
+            stageBreakdown.put(((DealStatus.DealStage) row[0]).name(), count);
+            totalDeals += count;
         }
+
+        long completedDeals = stageBreakdown.get(DealStatus.DealStage.COMPLETED.name());
+        stats.put("totalDeals", (int) totalDeals);
+        stats.put("activeDealCount", totalDeals - completedDeals);
+        stats.put("completedDealCount", completedDeals);
+        stats.put("propertiesManaged", dealStatusRepository.countDistinctPropertiesForAgent(agentId));
         stats.put("stageBreakdown", stageBreakdown);
 
-        double conversionRate = allDeals.size() > 0 ? (completedDeals * 100.0) / allDeals.size() : 0;
+        double conversionRate = totalDeals > 0 ? (completedDeals * 100.0) / totalDeals : 0;
         stats.put("conversionRate", String.format("%.2f%%", conversionRate));
 
         return stats;
     }
-
-    private PropertyDTO convertToDTO(Property property) {
-        PropertyDTO dto = new PropertyDTO();
-        dto.setPropertyId(property.getId());
-        dto.setPropertyType(property.getType());
-        dto.setTitle(property.getTitle());
-        dto.setDescription(property.getDescription());
-        dto.setPrice(property.getPrice());
-        dto.setAreaSqft(property.getAreaSqft());
-        dto.setBedrooms(property.getBedrooms());
-        dto.setBathrooms(property.getBathrooms());
-        dto.setAddress(property.getAddress());
-        dto.setStatus(property.getStatus());
-        dto.setListingType(property.getListingType());
-        dto.setImageUrl(property.getImageUrl());
-        dto.setAmenities(property.getAmenities());
-        dto.setIsFeatured(property.getIsFeatured());
-        dto.setCreatedAt(property.getCreatedAt());
-        dto.setPriceDisplay(property.getPriceDisplay());
-        dto.setIsReadyToMove(property.getIsReadyToMove());
-        dto.setOwnerType(property.getOwnerType());
-        dto.setIsVerified(property.getIsVerified());
-
-        if (property.getUser() != null) {
-            PropertyDTO.UserDTO userDTO = new PropertyDTO.UserDTO();
-            userDTO.setId(property.getUser().getId());
-            userDTO.setFirstName(property.getUser().getFirstName());
-            userDTO.setLastName(property.getUser().getLastName());
-            userDTO.setEmail(property.getUser().getEmail());
-            userDTO.setMobileNumber(property.getUser().getMobileNumber());
-            dto.setUser(userDTO);
-        }
-
-        if (property.getArea() != null) {
-            dto.setAreaName(property.getArea().getAreaName());
-            dto.setPincode(property.getArea().getPincode());
-            if (property.getArea().getCity() != null) {
-                dto.setCityName(property.getArea().getCity().getCityName());
-                dto.setState(property.getArea().getCity().getState());
-            }
-        }
-
-        return dto;
-    }
-}
\ No newline at end of file
+}
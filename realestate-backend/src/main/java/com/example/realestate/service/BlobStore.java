@@ -0,0 +1,194 @@
+package com.example.realestate.service;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where uploaded files live. S3Service is the default (storage.backend=s3);
+ * LocalBlobStore keeps them on disk and serves them itself (storage.backend=local)
+ * so dev, test and on-prem setups run without AWS. Keys are the same on both.
+ */
+public interface BlobStore {
+
+    /**
+     * Store a stream of known length under key. Completes with the public url once
+     * the whole object is stored; the stream is closed either way.
+     */
+    CompletableFuture<UploadResult> uploadStream(String key, InputStream in, long contentLength, String contentType);
+
+    /**
+     * Read a whole object into memory; meant for images that were size-checked on upload
+     */
+    CompletableFuture<byte[]> download(String key);
+
+    CompletableFuture<Void> delete(String key);
+
+    /**
+     * Size and content type of a stored object; fails with NotFoundException if it isn't there
+     */
+    CompletableFuture<ObjectInfo> stat(String key);
+
+    /**
+     * A PUT url for exactly this key, content type and length. The client must send
+     * the returned headers with the body. Without publicRead the object is only
+     * reachable through presignGet.
+     */
+    PresignedRequest presignPut(String key, String contentType, long contentLength, boolean publicRead, Duration ttl);
+
+    /**
+     * A GET url for one object that downloads it under downloadName
+     */
+    PresignedRequest presignGet(String key, String downloadName, Duration ttl);
+
+    String urlFor(String key);
+
+    /**
+     * The object key behind one of our urls, or null if the url points elsewhere
+     */
+    default String keyFor(String url) {
+        String prefix = urlFor("");
+        if (url == null || !url.startsWith(prefix) || url.length() == prefix.length()) return null;
+        return url.substring(prefix.length());
+    }
+
+    // ==================== KEY LAYOUT ====================
+
+    default CompletableFuture<UploadResult> uploadPropertyImage(Long propertyId, InputStream in, long size,
+                                                                String originalFilename, String contentType) {
+        return uploadStream(propertyImageKey(propertyId, originalFilename), in, size, contentType);
+    }
+
+    default CompletableFuture<UploadResult> uploadPropertyDocument(Long propertyId, InputStream in, long size,
+                                                                   String originalFilename, String contentType) {
+        // Structure: properties/{propertyId}/documents/{timestamp}_{uniqueId}_{filename}
+        String key = String.format("properties/%d/documents/%s", propertyId, uniqueName(originalFilename));
+        return uploadStream(key, in, size, contentType);
+    }
+
+    default CompletableFuture<UploadResult> uploadDealDocument(Long dealId, Long propertyId, InputStream in, long size,
+                                                               String originalFilename, String contentType) {
+        return uploadStream(dealDocumentKey(dealId, propertyId, originalFilename), in, size, contentType);
+    }
+
+    // Structure: properties/{propertyId}/images/{timestamp}_{uniqueId}_{filename}
+    default String propertyImageKey(Long propertyId, String originalFilename) {
+        return propertyImagePrefix(propertyId) + uniqueName(originalFilename);
+    }
+
+    default String propertyImagePrefix(Long propertyId) {
+        return String.format("properties/%d/images/", propertyId);
+    }
+
+    // Structure: properties/{propertyId}/deals/{dealId}/documents/{timestamp}_{uniqueId}_{filename}
+    default String dealDocumentKey(Long dealId, Long propertyId, String originalFilename) {
+        return dealDocumentPrefix(dealId, propertyId) + uniqueName(originalFilename);
+    }
+
+    default String dealDocumentPrefix(Long dealId, Long propertyId) {
+        return String.format("properties/%d/deals/%d/documents/", propertyId, dealId);
+    }
+
+    // {timestamp}_{uniqueId}_{filename}
+    static String uniqueName(String originalFilename) {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String uniqueId = UUID.randomUUID().toString().substring(0, 8);
+        return timestamp + "_" + uniqueId + "_" + sanitizeFilename(originalFilename);
+    }
+
+    /**
+     * Sanitize filename to remove special characters (keeps the extension)
+     */
+    static String sanitizeFilename(String filename) {
+        if (filename == null) return "file";
+        return filename.replaceAll("[^a-zA-Z0-9._-]", "_");
+    }
+
+    // ==================== RESULT TYPES ====================
+
+    /**
+     * Where an upload ended up, with the SHA-256 of the bytes that were sent
+     */
+    class UploadResult {
+        private final String key;
+        private final String url;
+        private final long size;
+        private final String sha256;
+        private final boolean duplicate;
+
+        public UploadResult(String key, String url, long size, String sha256) {
+            this(key, url, size, sha256, false);
+        }
+
+        // duplicate: the bytes were already stored and nothing was uploaded
+        public UploadResult(String key, String url, long size, String sha256, boolean duplicate) {
+            this.key = key;
+            this.url = url;
+            this.size = size;
+            this.sha256 = sha256;
+            this.duplicate = duplicate;
+        }
+
+        public String getKey() { return key; }
+        public String getUrl() { return url; }
+        public long getSize() { return size; }
+        public String getSha256() { return sha256; }
+        public boolean isDuplicate() { return duplicate; }
+    }
+
+    /**
+     * A presigned url and the headers that have to go with it
+     */
+    class PresignedRequest {
+        private final String key;
+        private final String url;
+        private final String method;
+        private final Map<String, String> headers;
+        private final Instant expiresAt;
+
+        public PresignedRequest(String key, String url, String method, Map<String, String> headers, Instant expiresAt) {
+            this.key = key;
+            this.url = url;
+            this.method = method;
+            this.headers = headers;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getKey() { return key; }
+        public String getUrl() { return url; }
+        public String getMethod() { return method; }
+        public Map<String, String> getHeaders() { return headers; }
+        public Instant getExpiresAt() { return expiresAt; }
+    }
+
+    class ObjectInfo {
+        private final long size;
+        private final String contentType;
+
+        public ObjectInfo(long size, String contentType) {
+            this.size = size;
+            this.contentType = contentType;
+        }
+
+        public long getSize() { return size; }
+        public String getContentType() { return contentType; }
+    }
+
+    class NotFoundException extends RuntimeException {
+        public NotFoundException(String key) {
+            super("No stored object " + key);
+        }
+    }
+
+    // Too many uploads in progress; the client should retry later
+    class BusyException extends RuntimeException {
+        public BusyException() {
+            super("Too many uploads in progress, please retry shortly");
+        }
+    }
+}
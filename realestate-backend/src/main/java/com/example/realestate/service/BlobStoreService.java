@@ -0,0 +1,205 @@
+package com.example.realestate.service;
+
+import com.example.realestate.model.StoredBlob;
+import com.example.realestate.repository.PropertyImageRepository;
+import com.example.realestate.repository.PropertyRepository;
+import com.example.realestate.repository.StoredBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Content-addressed uploads: identical bytes are stored once per scope.
+ *
+ * blob_store maps the SHA-256 of each stored object, within a scope, to its key, with
+ * a reference count. The scope is the key prefix the upload would be stored under
+ * (properties/{id}/images/), so a match always lies in the same owner's directory
+ * and keeps that directory's visibility; the same bytes uploaded to two properties
+ * are two objects. Only uploads whose rows release their reference again may be
+ * stored through here: property images do (PropertyImageService), documents and
+ * temp uploads don't and go straight to the BlobStore.
+ *
+ * An upload is hashed from Spring's spooled copy of the multipart part before
+ * anything is sent; if the hash is known in its scope, a reference is taken and the
+ * existing url is returned without a PUT. Otherwise the bytes are streamed to the
+ * BlobStore as before (it hashes them again on the way) and registered. Two racing
+ * uploads of the same new file are both stored, but only the first registration
+ * wins; the loser's object is deleted and it gets the winner's url.
+ *
+ * Deleting an image releases its reference. The object (and its resized variants)
+ * is removed only when the count reaches zero and no property or image row still
+ * points at the url, and only after the deleting transaction commits. Objects
+ * uploaded before blob_store existed have no row and are never deleted from here.
+ */
+@Service
+public class BlobStoreService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStoreService.class);
+
+    private static final String REGISTER_SQL =
+            "INSERT INTO blob_store (sha256, scope, s3_key, url, size_bytes, content_type, ref_count, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 1, ?) ON DUPLICATE KEY UPDATE ref_count = ref_count + 1";
+
+    private final StoredBlobRepository blobRepository;
+    private final PropertyImageRepository propertyImageRepository;
+    private final PropertyRepository propertyRepository;
+    private final BlobStore blobStore;
+    private final ImageVariantService imageVariantService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public BlobStoreService(StoredBlobRepository blobRepository,
+                            PropertyImageRepository propertyImageRepository,
+                            PropertyRepository propertyRepository,
+                            BlobStore blobStore,
+                            ImageVariantService imageVariantService,
+                            JdbcTemplate jdbcTemplate) {
+        this.blobRepository = blobRepository;
+        this.propertyImageRepository = propertyImageRepository;
+        this.propertyRepository = propertyRepository;
+        this.blobStore = blobStore;
+        this.imageVariantService = imageVariantService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Store the content of source under scope (a key prefix; upload must store below it),
+     * or reuse the copy of identical bytes already stored there. upload is only called
+     * on a miss, with a fresh stream over the same content.
+     */
+    public CompletableFuture<BlobStore.UploadResult> store(String scope, InputStreamSource source, long size, String contentType,
+                                                           Function<InputStream, CompletableFuture<BlobStore.UploadResult>> upload) {
+        String sha256;
+        InputStream content;
+        try {
+            sha256 = sha256Of(source);
+            Optional<BlobStore.UploadResult> existing = reuse(sha256, scope);
+            if (existing.isPresent()) {
+                logger.info("♻️ Duplicate upload ({} bytes) served from {}", size, existing.get().getKey());
+                return CompletableFuture.completedFuture(existing.get());
+            }
+            content = source.getInputStream();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return upload.apply(content).thenApply(result -> {
+            if (!sha256.equals(result.getSha256())) {
+                // The spooled file changed between the two reads; don't register it under either hash
+                logger.warn("Content of {} changed while uploading, not deduplicated", result.getKey());
+                return result;
+            }
+            if (!result.getKey().startsWith(scope)) {
+                logger.warn("{} was stored outside its scope {}, not deduplicated", result.getKey(), scope);
+                return result;
+            }
+            return register(result, scope, contentType);
+        });
+    }
+
+    /**
+     * Register an object that reached the BlobStore without passing through store()
+     * (a presigned PUT), taking one reference. It is downloaded once to be hashed; if
+     * the same bytes are already stored in scope, the new object is deleted and the
+     * stored one is returned instead.
+     */
+    public CompletableFuture<BlobStore.UploadResult> adopt(String scope, String key, String contentType) {
+        return blobStore.download(key).thenApply(bytes -> {
+            String sha256 = HexFormat.of().formatHex(newDigest().digest(bytes));
+            return register(new BlobStore.UploadResult(key, blobStore.urlFor(key), bytes.length, sha256), scope, contentType);
+        });
+    }
+
+    /**
+     * Give up one reference to the file behind url (call it after the row that
+     * pointed at it has been deleted, in the same transaction)
+     */
+    @Transactional
+    public void release(String url) {
+        String key = blobStore.keyFor(url);
+        if (key == null) return;
+        StoredBlob blob = blobRepository.findByS3Key(key).orElse(null);
+        if (blob == null) return; // stored before deduplication, leave it alone
+
+        blobRepository.release(blob.getId());
+
+        // A listing copied with the same url holds the file without a reference of its own
+        if (propertyImageRepository.existsByImageUrl(url) || propertyRepository.existsByImageUrl(url)) return;
+        if (blobRepository.deleteIfUnreferenced(blob.getId()) == 0) return;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteObject(key);
+                }
+            });
+        } else {
+            deleteObject(key);
+        }
+    }
+
+    // ==================== INTERNALS ====================
+
+    private Optional<BlobStore.UploadResult> reuse(String sha256, String scope) {
+        Optional<StoredBlob> blob = blobRepository.findBySha256AndScope(sha256, scope);
+        // acquire() fails if the last reference was released since the lookup
+        if (blob.isEmpty() || blobRepository.acquire(blob.get().getId()) == 0) return Optional.empty();
+        StoredBlob b = blob.get();
+        return Optional.of(new BlobStore.UploadResult(b.getS3Key(), b.getUrl(), b.getSizeBytes(), sha256, true));
+    }
+
+    private BlobStore.UploadResult register(BlobStore.UploadResult result, String scope, String contentType) {
+        jdbcTemplate.update(REGISTER_SQL, result.getSha256(), scope, result.getKey(), result.getUrl(), result.getSize(),
+                contentType, Timestamp.valueOf(LocalDateTime.now()));
+
+        StoredBlob winner = blobRepository.findBySha256AndScope(result.getSha256(), scope).orElse(null);
+        if (winner == null || winner.getS3Key().equals(result.getKey())) return result;
+
+        // Someone stored the same bytes first: keep theirs, drop ours
+        logger.info("♻️ Same content already stored as {}, removing {}", winner.getS3Key(), result.getKey());
+        blobStore.delete(result.getKey());
+        return new BlobStore.UploadResult(winner.getS3Key(), winner.getUrl(), winner.getSizeBytes(), result.getSha256(), true);
+    }
+
+    private void deleteObject(String key) {
+        blobStore.delete(key).exceptionally(e -> {
+            logger.warn("Could not delete unreferenced object {}: {}", key, e.getMessage());
+            return null;
+        });
+        imageVariantService.deleteVariants(key);
+    }
+
+    private static String sha256Of(InputStreamSource source) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = source.getInputStream()) {
+            int n;
+            while ((n = in.read(buffer)) > 0) digest.update(buffer, 0, n);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
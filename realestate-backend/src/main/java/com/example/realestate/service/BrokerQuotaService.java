@@ -0,0 +1,159 @@
+package com.example.realestate.service;
+
+import com.example.realestate.model.BrokerSubscription;
+import com.example.realestate.repository.BrokerSubscriptionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Broker posting quota. A post takes its slot with one conditional UPDATE
+ * (properties_posted < max_properties), so concurrent posts can never exceed the
+ * limit, and the caller's transaction rolls the slot back if the post fails.
+ *
+ * Which subscription is active (id, end date, limit) is cached per broker, so a
+ * post normally costs that single UPDATE. BrokerSubscriptionService invalidates a
+ * broker on activation; expired entries are dropped by their end date and by
+ * ExpirySchedulerService. The cached posted count is only used to report the
+ * remaining quota - the database decides whether a slot is available.
+ */
+@Service
+public class BrokerQuotaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BrokerQuotaService.class);
+
+    private final BrokerSubscriptionRepository subscriptionRepository;
+
+    // brokerId -> active subscription state, or NONE when the broker has none
+    private final Map<Long, CachedSubscription> cache = new ConcurrentHashMap<>();
+
+    // "No subscription" answers are re-checked after this long even without an invalidation
+    @Value("${broker.quota.negative-ttl-ms:60000}")
+    private long negativeTtlMs;
+
+    public BrokerQuotaService(BrokerSubscriptionRepository subscriptionRepository) {
+        this.subscriptionRepository = subscriptionRepository;
+    }
+
+    /**
+     * Take one posting slot for the broker and return how many remain.
+     * Throws when the broker has no active subscription or has reached the limit.
+     */
+    public int reserveSlot(Long brokerId) {
+        LocalDateTime now = LocalDateTime.now();
+        CachedSubscription sub = lookup(brokerId, now);
+
+        if (sub.isNone() || subscriptionRepository.reserveSlot(sub.id, now) == 0) {
+            // Limit reached, or the cached state is stale: re-read once to tell which
+            cache.remove(brokerId);
+            sub = lookup(brokerId, now);
+
+            if (sub.isNone()) {
+                logger.error("Broker {} has NO active subscription", brokerId);
+                throw new RuntimeException(
+                        "Subscription required. Please activate a subscription or use a trial coupon to post properties.");
+            }
+            if (sub.posted.get() >= sub.maxProperties || subscriptionRepository.reserveSlot(sub.id, now) == 0) {
+                logger.error("Broker {} has reached property posting limit", brokerId);
+                throw new RuntimeException(String.format(
+                        "Property limit reached (%s/%s). Please upgrade your subscription to post more properties.",
+                        sub.posted.get(), sub.maxProperties));
+            }
+        }
+
+        int remaining = Math.max(0, sub.maxProperties - sub.posted.incrementAndGet());
+        forgetOnRollback(brokerId);
+        return remaining;
+    }
+
+    /**
+     * Drop the cached subscription state of one broker (activation, cancellation).
+     * Repeated after commit so a read racing the change can't re-cache the old state.
+     */
+    public void invalidate(Long brokerId) {
+        if (brokerId == null) return;
+        cache.remove(brokerId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.remove(brokerId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drop everything (after a bulk expiry, where the affected brokers are unknown)
+     */
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    // ==================== INTERNALS ====================
+
+    private CachedSubscription lookup(Long brokerId, LocalDateTime now) {
+        CachedSubscription cached = cache.get(brokerId);
+        if (cached != null && cached.isFresh(now)) return cached;
+
+        Optional<BrokerSubscription> active = subscriptionRepository.findActiveSubscriptionByBrokerId(brokerId, now);
+        CachedSubscription loaded = active.filter(BrokerSubscription::isActive)
+                .map(CachedSubscription::of)
+                .orElseGet(() -> CachedSubscription.none(now.plusNanos(negativeTtlMs * 1_000_000)));
+        cache.put(brokerId, loaded);
+        return loaded;
+    }
+
+    // A rolled-back post also rolls back its slot, so the cached count is no longer right
+    private void forgetOnRollback(Long brokerId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) cache.remove(brokerId);
+            }
+        });
+    }
+
+    private static final class CachedSubscription {
+        final Long id; // null for "no active subscription"
+        final LocalDateTime validUntil;
+        final int maxProperties;
+        final AtomicInteger posted;
+
+        private CachedSubscription(Long id, LocalDateTime validUntil, int maxProperties, int posted) {
+            this.id = id;
+            this.validUntil = validUntil;
+            this.maxProperties = maxProperties;
+            this.posted = new AtomicInteger(posted);
+        }
+
+        static CachedSubscription of(BrokerSubscription sub) {
+            return new CachedSubscription(sub.getId(), sub.getEndDate(),
+                    sub.getMaxProperties() != null ? sub.getMaxProperties() : 0,
+                    sub.getPropertiesPosted() != null ? sub.getPropertiesPosted() : 0);
+        }
+
+        static CachedSubscription none(LocalDateTime recheckAt) {
+            return new CachedSubscription(null, recheckAt, 0, 0);
+        }
+
+        boolean isNone() {
+            return id == null;
+        }
+
+        boolean isFresh(LocalDateTime now) {
+            return validUntil != null && now.isBefore(validUntil);
+        }
+    }
+}
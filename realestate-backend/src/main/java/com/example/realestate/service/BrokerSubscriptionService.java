@@ -11,7 +11,6 @@ import com.example.realestate.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -43,6 +42,18 @@ public class BrokerSubscriptionService {
     @Autowired
     private RazorpayService razorpayService;
 
+    @Autowired
+    private ExpirySchedulerService expirySchedulerService;
+
+    @Autowired
+    private BrokerQuotaService brokerQuotaService;
+
+    @Autowired
+    private CouponRedemptionService couponRedemptionService;
+
+    @Autowired
+    private CouponLookupCache couponLookupCache;
+
     // Subscription pricing
     private static final Map<String, BigDecimal> SUBSCRIPTION_PRICES = new HashMap<>() {{
         put("MONTHLY", new BigDecimal("499.00"));
@@ -101,6 +112,9 @@ public class BrokerSubscriptionService {
             throw new RuntimeException("Coupon already used by this broker");
         }
 
+        // Take one use atomically; fails if a concurrent trial just took the last one
+        couponRedemptionService.redeemBrokerCoupon(coupon.getId());
+
         // Create free trial subscription
         BrokerSubscription subscription = new BrokerSubscription();
         subscription.setBroker(broker);
@@ -113,6 +127,8 @@ public class BrokerSubscriptionService {
         subscription.setPropertiesPosted(0);
 
         BrokerSubscription savedSubscription = subscriptionRepository.save(subscription);
+        expirySchedulerService.scheduleSubscriptionExpiry(savedSubscription.getEndDate());
+        brokerQuotaService.invalidate(brokerId);
 
         // Record coupon usage
         BrokerCouponUsage usage = new BrokerCouponUsage();
@@ -121,10 +137,6 @@ public class BrokerSubscriptionService {
         usage.setSubscription(savedSubscription);
         couponUsageRepository.save(usage);
 
-        // Update coupon used count
-        coupon.setUsedCount(coupon.getUsedCount() + 1);
-        couponRepository.save(coupon);
-
         logger.info("✅ Free trial subscription created for broker {} with coupon {}",
                 brokerId, couponCode);
 
@@ -214,10 +226,23 @@ public class BrokerSubscriptionService {
             throw new RuntimeException("Invalid payment signature");
         }
 
-        // Find subscription by order ID
+        return activatePaidSubscription(orderId, paymentId);
+    }
+
+    /**
+     * Activate the subscription of a paid order (signature already verified, or the
+     * payment confirmed with Razorpay by PaymentReconciliationService).
+     * An already active subscription is returned unchanged.
+     */
+    @Transactional
+    public BrokerSubscription activatePaidSubscription(String orderId, String paymentId) {
         BrokerSubscription subscription = subscriptionRepository.findByRazorpayOrderId(orderId)
                 .orElseThrow(() -> new RuntimeException("Subscription not found for order"));
 
+        if (subscription.getStatus() == BrokerSubscription.SubscriptionStatus.ACTIVE) {
+            return subscription;
+        }
+
         // Update subscription status
         subscription.setStatus(BrokerSubscription.SubscriptionStatus.ACTIVE);
         subscription.setRazorpayPaymentId(paymentId);
@@ -225,6 +250,8 @@ public class BrokerSubscriptionService {
         subscription.setEndDate(calculateEndDate(subscription.getPlanType().name()));
 
         BrokerSubscription activatedSubscription = subscriptionRepository.save(subscription);
+        expirySchedulerService.scheduleSubscriptionExpiry(activatedSubscription.getEndDate());
+        brokerQuotaService.invalidate(subscription.getBroker().getId());
 
         logger.info("✅ Subscription activated for broker: {}",
                 subscription.getBroker().getId());
@@ -242,7 +269,9 @@ public class BrokerSubscriptionService {
         Optional<BrokerSubscription> subscriptionOpt =
                 subscriptionRepository.findByRazorpayOrderId(orderId);
 
-        if (subscriptionOpt.isPresent()) {
+        // Only a still-pending order; a late or repeated failure must not cancel an active plan
+        if (subscriptionOpt.isPresent()
+                && subscriptionOpt.get().getStatus() == BrokerSubscription.SubscriptionStatus.PENDING) {
             BrokerSubscription subscription = subscriptionOpt.get();
             subscription.setStatus(BrokerSubscription.SubscriptionStatus.CANCELLED);
             subscriptionRepository.save(subscription);
@@ -270,7 +299,7 @@ public class BrokerSubscriptionService {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            BrokerCoupon coupon = couponRepository.findByCodeIgnoreCase(couponCode)
+            BrokerCoupon coupon = couponLookupCache.findBrokerCoupon(couponCode)
                     .orElseThrow(() -> new RuntimeException("Coupon not found"));
 
             if (!coupon.isValid()) {
@@ -363,21 +392,6 @@ public class BrokerSubscriptionService {
         return plans;
     }
 
-    /**
-     * Increment properties posted count
-     */
-    @Transactional
-    public void incrementPropertiesPosted(Long brokerId) {
-        Optional<BrokerSubscription> activeSub = getActiveSubscription(brokerId);
-        if (activeSub.isPresent()) {
-            BrokerSubscription sub = activeSub.get();
-            sub.setPropertiesPosted(sub.getPropertiesPosted() + 1);
-            subscriptionRepository.save(sub);
-            logger.info("Incremented properties posted for broker {}. Total: {}",
-                    brokerId, sub.getPropertiesPosted());
-        }
-    }
-
     /**
      * Check if broker can post property
      */
@@ -418,25 +432,4 @@ public class BrokerSubscriptionService {
 
         return status;
     }
-
-    /**
-     * Expire old subscriptions (scheduled task - runs daily at 2 AM)
-     */
-    @Scheduled(cron = "0 0 2 * * ?")
-    @Transactional
-    public void expireOldSubscriptions() {
-        logger.info("🔄 Running scheduled task to expire old subscriptions");
-
-        List<BrokerSubscription> expiredSubs = subscriptionRepository
-                .findExpiredSubscriptions(LocalDateTime.now());
-
-        for (BrokerSubscription sub : expiredSubs) {
-            sub.setStatus(BrokerSubscription.SubscriptionStatus.EXPIRED);
-            subscriptionRepository.save(sub);
-            logger.info("Expired subscription ID: {} for broker: {}",
-                    sub.getId(), sub.getBroker().getId());
-        }
-
-        logger.info("✅ Expired {} subscriptions", expiredSubs.size());
-    }
-}
\ No newline at end of file
+}
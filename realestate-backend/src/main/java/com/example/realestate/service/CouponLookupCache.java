@@ -0,0 +1,205 @@
+package com.example.realestate.service;
+
+import com.example.realestate.model.BrokerCoupon;
+import com.example.realestate.model.Coupon;
+import com.example.realestate.repository.BrokerCouponRepository;
+import com.example.realestate.repository.CouponRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of coupon definitions by code for the validation endpoints
+ * (/api/coupons/validate, /api/broker-subscription/validate-coupon), which are
+ * called on every keystroke.
+ *
+ * Positive entries keep the whole definition including its validity window, which
+ * is evaluated on every lookup, so a coupon starts and stops being valid on time
+ * without an invalidation. Unknown codes are cached as negative entries for a
+ * short TTL. The usage count is never cached: limited coupons re-read used_count by
+ * primary key on each hit. CouponService invalidates a code on create, update,
+ * deactivate and delete; broker coupons have no write path here and rely on the TTL.
+ */
+@Service
+public class CouponLookupCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CouponLookupCache.class);
+
+    private final CouponRepository couponRepository;
+    private final BrokerCouponRepository brokerCouponRepository;
+
+    // Normalized code -> definition (value null = no such code)
+    private final Map<String, Entry<Coupon>> coupons = new ConcurrentHashMap<>();
+    private final Map<String, Entry<BrokerCoupon>> brokerCoupons = new ConcurrentHashMap<>();
+
+    @Value("${coupons.cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    @Value("${coupons.cache.negative-ttl-ms:30000}")
+    private long negativeTtlMs;
+
+    // Guards against a flood of made-up codes filling the heap
+    @Value("${coupons.cache.max-entries:10000}")
+    private int maxEntries;
+
+    public CouponLookupCache(CouponRepository couponRepository,
+                             BrokerCouponRepository brokerCouponRepository) {
+        this.couponRepository = couponRepository;
+        this.brokerCouponRepository = brokerCouponRepository;
+    }
+
+    /**
+     * The coupon with this code if it is usable right now (active, inside its
+     * validity window, below its usage limit) - same rules as findValidCouponByCode.
+     * Returns a copy; changing it does not touch the cache or the database. usedCount
+     * is read live for limited coupons and left null for unlimited ones.
+     */
+    public Optional<Coupon> findValidCoupon(String couponCode, LocalDateTime now) {
+        String key = normalize(couponCode);
+        Coupon cached = lookup(coupons, key, () -> couponRepository.findByCouponCode(key).map(CouponLookupCache::copy).orElse(null));
+        if (cached == null || !Boolean.TRUE.equals(cached.getIsActive())) return Optional.empty();
+        if (cached.getValidFrom() != null && cached.getValidFrom().isAfter(now)) return Optional.empty();
+        if (cached.getValidUntil() != null && !cached.getValidUntil().isAfter(now)) return Optional.empty();
+
+        Coupon out = copy(cached);
+        if (out.getUsageLimit() != null) {
+            Integer used = couponRepository.findUsedCount(out.getCouponId());
+            if (used == null) {
+                invalidateCoupon(key); // deleted underneath us
+                return Optional.empty();
+            }
+            if (used >= out.getUsageLimit()) return Optional.empty();
+            out.setUsedCount(used);
+        }
+        return Optional.of(out);
+    }
+
+    /**
+     * The broker coupon with this code (any state) with its current used count,
+     * as a detached copy
+     */
+    public Optional<BrokerCoupon> findBrokerCoupon(String code) {
+        String key = normalize(code);
+        BrokerCoupon cached = lookup(brokerCoupons, key,
+                () -> brokerCouponRepository.findByCodeIgnoreCase(code).map(CouponLookupCache::copy).orElse(null));
+        if (cached == null) return Optional.empty();
+
+        Integer used = brokerCouponRepository.findUsedCount(cached.getId());
+        if (used == null) {
+            brokerCoupons.remove(key);
+            return Optional.empty();
+        }
+        BrokerCoupon out = copy(cached);
+        out.setUsedCount(used);
+        return Optional.of(out);
+    }
+
+    /**
+     * Drop one coupon code. Repeated after commit so a lookup racing the change
+     * can't re-cache the old definition.
+     */
+    public void invalidateCoupon(String couponCode) {
+        if (couponCode == null) return;
+        String key = normalize(couponCode);
+        coupons.remove(key);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    coupons.remove(key);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        coupons.clear();
+        brokerCoupons.clear();
+    }
+
+    // ==================== INTERNALS ====================
+
+    private <T> T lookup(Map<String, Entry<T>> cache, String key, Supplier<T> loader) {
+        long nowMs = System.currentTimeMillis();
+        Entry<T> entry = cache.get(key);
+        if (entry != null && entry.expiresAtMs > nowMs) return entry.value;
+
+        T loaded = loader.get();
+        if (cache.size() >= maxEntries) evict(cache, nowMs);
+        cache.put(key, new Entry<>(loaded, nowMs + (loaded != null ? ttlMs : negativeTtlMs)));
+        return loaded;
+    }
+
+    private <T> void evict(Map<String, Entry<T>> cache, long nowMs) {
+        cache.values().removeIf(e -> e.expiresAtMs <= nowMs);
+        if (cache.size() >= maxEntries) {
+            cache.values().removeIf(e -> e.value == null);
+        }
+        if (cache.size() >= maxEntries) {
+            logger.warn("Coupon cache full ({} entries), clearing", cache.size());
+            cache.clear();
+        }
+    }
+
+    private static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static Coupon copy(Coupon c) {
+        Coupon out = new Coupon();
+        out.setCouponId(c.getCouponId());
+        out.setCouponCode(c.getCouponCode());
+        out.setDescription(c.getDescription());
+        out.setDiscountType(c.getDiscountType());
+        out.setDiscountValue(c.getDiscountValue());
+        out.setMaxDiscount(c.getMaxDiscount());
+        out.setMinOrderValue(c.getMinOrderValue());
+        out.setIsActive(c.getIsActive());
+        out.setUsageLimit(c.getUsageLimit());
+        out.setUsedCount(null); // never cached
+        out.setValidFrom(c.getValidFrom());
+        out.setValidUntil(c.getValidUntil());
+        out.setCreatedAt(c.getCreatedAt());
+        out.setUpdatedAt(c.getUpdatedAt());
+        return out;
+    }
+
+    private static BrokerCoupon copy(BrokerCoupon c) {
+        BrokerCoupon out = new BrokerCoupon();
+        out.setId(c.getId());
+        out.setCode(c.getCode());
+        out.setDescription(c.getDescription());
+        out.setDiscountType(c.getDiscountType());
+        out.setDiscountValue(c.getDiscountValue());
+        out.setTrialMonths(c.getTrialMonths());
+        out.setValidFrom(c.getValidFrom());
+        out.setValidUntil(c.getValidUntil());
+        out.setMaxUses(c.getMaxUses());
+        out.setUsedCount(null); // never cached
+        out.setIsActive(c.getIsActive());
+        out.setCreatedAt(c.getCreatedAt());
+        out.setUpdatedAt(c.getUpdatedAt());
+        return out;
+    }
+
+    private static final class Entry<T> {
+        final T value;
+        final long expiresAtMs;
+
+        Entry(T value, long expiresAtMs) {
+            this.value = value;
+            this.expiresAtMs = expiresAtMs;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.realestate.service;
+
+import com.example.realestate.model.CouponReservation;
+import com.example.realestate.repository.BrokerCouponRepository;
+import com.example.realestate.repository.CouponRepository;
+import com.example.realestate.repository.CouponReservationRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coupon usage accounting, replacing the read-modify-write of used_count.
+ *
+ * Every usage is taken with one conditional UPDATE (active, inside its validity
+ * window and below usage_limit), so two checkouts can never both take the last use.
+ * Free activations redeem straight away; paid featured orders reserve a usage when
+ * the Razorpay order is created, confirm it when the payment is verified and release
+ * it on cancellation or when the reservation expires unpaid.
+ *
+ * For coupons hammered by a campaign, coupons.redemption.token-batch > 1 makes each
+ * node take usages from the database N at a time and hand them out from striped
+ * in-memory counters; unused tokens go back on every flush. used_count then runs
+ * ahead of real redemptions by at most N per node for a couple of seconds. Off by default.
+ */
+@Service
+public class CouponRedemptionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CouponRedemptionService.class);
+
+    private static final int SWEEP_BATCH = 200;
+    private static final int STRIPES = 8;
+
+    private final CouponRepository couponRepository;
+    private final BrokerCouponRepository brokerCouponRepository;
+    private final CouponReservationRepository reservationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate ownTransaction;
+
+    private final Map<Long, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    // How long an unpaid order holds its coupon usage
+    @Value("${coupons.reservation-ttl-minutes:30}")
+    private long reservationTtlMinutes;
+
+    @Value("${coupons.redemption.token-batch:0}")
+    private int tokenBatch;
+
+    public CouponRedemptionService(CouponRepository couponRepository,
+                                   BrokerCouponRepository brokerCouponRepository,
+                                   CouponReservationRepository reservationRepository,
+                                   PlatformTransactionManager transactionManager) {
+        this.couponRepository = couponRepository;
+        this.brokerCouponRepository = brokerCouponRepository;
+        this.reservationRepository = reservationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ownTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // ==================== FEATURED COUPONS ====================
+
+    /**
+     * Count one usage now (free activations); throws if the coupon is used up or no longer valid
+     */
+    public void redeem(Long couponId) {
+        if (!take(couponId)) {
+            throw new RuntimeException("Coupon usage limit reached or coupon is no longer valid");
+        }
+        logger.info("🎟️ Coupon {} redeemed", couponId);
+    }
+
+    /**
+     * Hold one usage for a pending paid order; joins the caller's transaction
+     */
+    public void reserve(Long couponId, Long featuredId) {
+        if (!take(couponId)) {
+            throw new RuntimeException("Coupon usage limit reached or coupon is no longer valid");
+        }
+        reservationRepository.save(new CouponReservation(couponId, featuredId,
+                LocalDateTime.now().plusMinutes(reservationTtlMinutes)));
+        logger.info("🎟️ Coupon {} reserved for featured order {}", couponId, featuredId);
+    }
+
+    /**
+     * Payment verified: keep the reserved usage. If the reservation already expired
+     * (slow payment) the usage is counted again - the customer has paid the discounted
+     * price, so it is honoured even past the limit. Calling this twice is harmless.
+     */
+    public void confirm(Long featuredId, Long couponId) {
+        LocalDateTime now = LocalDateTime.now();
+        CouponReservation reservation = reservationRepository.findFirstByFeaturedIdOrderByIdDesc(featuredId).orElse(null);
+
+        if (reservation != null && reservation.getStatus() == CouponReservation.Status.RESERVED
+                && reservationRepository.settle(reservation.getId(), CouponReservation.Status.CONFIRMED, now) == 1) {
+            return;
+        }
+        if (reservation != null && reservation.getStatus() == CouponReservation.Status.CONFIRMED) {
+            return;
+        }
+
+        Long id = reservation != null ? reservation.getCouponId() : couponId;
+        if (id == null) return;
+
+        couponRepository.forceTakeUsage(id);
+        CouponReservation confirmed = new CouponReservation(id, featuredId, now);
+        confirmed.setStatus(CouponReservation.Status.CONFIRMED);
+        reservationRepository.save(confirmed);
+        logger.info("🎟️ Coupon {} counted on payment for featured order {} (no live reservation)", id, featuredId);
+    }
+
+    /**
+     * Order cancelled before payment: give the held usage back
+     */
+    public void release(Long featuredId) {
+        LocalDateTime now = LocalDateTime.now();
+        for (CouponReservation r : reservationRepository.findByFeaturedIdAndStatus(
+                featuredId, CouponReservation.Status.RESERVED)) {
+            if (reservationRepository.settle(r.getId(), CouponReservation.Status.RELEASED, now) == 1) {
+                couponRepository.returnUsages(r.getCouponId(), 1);
+                logger.info("🎟️ Coupon {} released from featured order {}", r.getCouponId(), featuredId);
+            }
+        }
+    }
+
+    /**
+     * Release reservations of orders that were never paid
+     */
+    @Scheduled(fixedDelayString = "${coupons.reservation-sweep-ms:60000}")
+    public void releaseExpired() {
+        try {
+            List<CouponReservation> expired;
+            int released = 0;
+            do {
+                LocalDateTime now = LocalDateTime.now();
+                expired = reservationRepository.findExpired(now, PageRequest.of(0, SWEEP_BATCH));
+                for (CouponReservation r : expired) {
+                    Boolean done = transactionTemplate.execute(status -> {
+                        if (reservationRepository.settle(r.getId(), CouponReservation.Status.RELEASED, now) != 1) {
+                            return false;
+                        }
+                        couponRepository.returnUsages(r.getCouponId(), 1);
+                        return true;
+                    });
+                    if (Boolean.TRUE.equals(done)) released++;
+                }
+            } while (expired.size() == SWEEP_BATCH);
+
+            if (released > 0) logger.info("Released {} expired coupon reservations", released);
+        } catch (Exception e) {
+            logger.error("Coupon reservation sweep failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // ==================== BROKER COUPONS ====================
+
+    /**
+     * Count one use of a broker trial coupon; throws if it is used up or no longer valid
+     */
+    public void redeemBrokerCoupon(Long brokerCouponId) {
+        if (brokerCouponRepository.redeem(brokerCouponId, LocalDateTime.now()) != 1) {
+            throw new RuntimeException("Coupon is not valid or has expired");
+        }
+    }
+
+    // ==================== TOKEN BUCKETS ====================
+
+    /**
+     * Give unused pre-taken tokens back to the coupons
+     */
+    @Scheduled(fixedDelayString = "${coupons.redemption.flush-ms:2000}")
+    @PreDestroy
+    public void flushTokens() {
+        buckets.forEach((couponId, bucket) -> {
+            int unused = bucket.drain();
+            if (unused == 0) return;
+            try {
+                couponRepository.returnUsages(couponId, unused);
+            } catch (Exception e) {
+                bucket.add(unused);
+                logger.error("Returning {} coupon tokens for coupon {} failed: {}", unused, couponId, e.getMessage());
+            }
+        });
+    }
+
+    private boolean take(Long couponId) {
+        if (couponId == null) return false;
+        if (tokenBatch <= 1) {
+            return couponRepository.takeUsages(couponId, 1, LocalDateTime.now()) == 1;
+        }
+
+        TokenBucket bucket = buckets.computeIfAbsent(couponId, id -> new TokenBucket());
+        if (!bucket.tryTake() && !refill(couponId, bucket)) {
+            return false;
+        }
+        // A rolled-back caller didn't use its token
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) bucket.add(1);
+                }
+            });
+        }
+        return true;
+    }
+
+    // Takes a batch in its own transaction (tokens must not vanish with the caller's rollback);
+    // near the limit falls back to a single usage. Returns true with one token kept for the caller.
+    private boolean refill(Long couponId, TokenBucket bucket) {
+        synchronized (bucket) {
+            if (bucket.tryTake()) return true;
+
+            Boolean taken = ownTransaction.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                if (couponRepository.takeUsages(couponId, tokenBatch, now) == 1) {
+                    bucket.add(tokenBatch - 1);
+                    return true;
+                }
+                return couponRepository.takeUsages(couponId, 1, now) == 1;
+            });
+            return Boolean.TRUE.equals(taken);
+        }
+    }
+
+    /**
+     * Pre-taken usages of one coupon, spread over a few counters so concurrent
+     * checkouts don't all CAS the same word
+     */
+    private static final class TokenBucket {
+        private final AtomicInteger[] stripes = new AtomicInteger[STRIPES];
+
+        TokenBucket() {
+            for (int i = 0; i < STRIPES; i++) stripes[i] = new AtomicInteger();
+        }
+
+        boolean tryTake() {
+            int start = (int) (Thread.currentThread().getId() % STRIPES);
+            for (int i = 0; i < STRIPES; i++) {
+                AtomicInteger stripe = stripes[(start + i) % STRIPES];
+                int n;
+                while ((n = stripe.get()) > 0) {
+                    if (stripe.compareAndSet(n, n - 1)) return true;
+                }
+            }
+            return false;
+        }
+
+        void add(int n) {
+            for (int i = 0; i < n; i++) stripes[i % STRIPES].incrementAndGet();
+        }
+
+        int drain() {
+            int total = 0;
+            for (AtomicInteger stripe : stripes) total += stripe.getAndSet(0);
+            return total;
+        }
+    }
+}
@@ -18,16 +18,16 @@ public class CouponService {
     @Autowired
     private CouponRepository couponRepository;
 
+    @Autowired
+    private CouponLookupCache couponLookupCache;
+
     /**
      * Validate a coupon code and calculate discount
      */
     public CouponValidationResponse validateCoupon(String couponCode, BigDecimal orderValue) {
         CouponValidationResponse response = new CouponValidationResponse();
 
-        Optional<Coupon> couponOpt = couponRepository.findValidCouponByCode(
-                couponCode.toUpperCase().trim(),
-                LocalDateTime.now()
-        );
+        Optional<Coupon> couponOpt = couponLookupCache.findValidCoupon(couponCode, LocalDateTime.now());
 
         if (couponOpt.isEmpty()) {
             response.setValid(false);
@@ -71,19 +71,6 @@ public class CouponService {
         return response;
     }
 
-    /**
-     * Increment usage count when coupon is used
-     */
-    @Transactional
-    public void incrementUsageCount(Long couponId) {
-        Optional<Coupon> couponOpt = couponRepository.findById(couponId);
-        if (couponOpt.isPresent()) {
-            Coupon coupon = couponOpt.get();
-            coupon.setUsedCount(coupon.getUsedCount() + 1);
-            couponRepository.save(coupon);
-        }
-    }
-
     /**
      * Get all active coupons
      */
@@ -104,6 +91,7 @@ public class CouponService {
     @Transactional
     public Coupon createCoupon(Coupon coupon) {
         coupon.setCouponCode(coupon.getCouponCode().toUpperCase().trim());
+        couponLookupCache.invalidateCoupon(coupon.getCouponCode());
         return couponRepository.save(coupon);
     }
 
@@ -128,6 +116,7 @@ public class CouponService {
         existing.setValidFrom(updatedCoupon.getValidFrom());
         existing.setValidUntil(updatedCoupon.getValidUntil());
 
+        couponLookupCache.invalidateCoupon(existing.getCouponCode());
         return couponRepository.save(existing);
     }
 
@@ -136,6 +125,8 @@ public class CouponService {
      */
     @Transactional
     public void deleteCoupon(Long couponId) {
+        couponRepository.findById(couponId)
+                .ifPresent(coupon -> couponLookupCache.invalidateCoupon(coupon.getCouponCode()));
         couponRepository.deleteById(couponId);
     }
 
@@ -149,6 +140,7 @@ public class CouponService {
             Coupon coupon = couponOpt.get();
             coupon.setIsActive(false);
             couponRepository.save(coupon);
+            couponLookupCache.invalidateCoupon(coupon.getCouponCode());
         }
     }
 }
\ No newline at end of file
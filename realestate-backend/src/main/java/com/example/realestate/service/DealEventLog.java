@@ -0,0 +1,75 @@
+package com.example.realestate.service;
+
+import com.example.realestate.model.DealStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends rows to deal_events. Events raised inside a transaction are buffered
+ * and written as one JDBC batch just before it commits (same connection, so they
+ * commit or roll back with the deal change). DealEvent uses IDENTITY ids, which
+ * would stop Hibernate from batching, hence the plain JDBC insert.
+ */
+@Service
+public class DealEventLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealEventLog.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO deal_events (deal_id, stage, author, note, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DealEventLog(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Record an event for a deal; note may be null for a bare stage change
+     */
+    public void append(Long dealId, DealStatus.DealStage stage, String author, String note) {
+        if (dealId == null) return;
+        Object[] row = {dealId, stage != null ? stage.name() : null, author, note, Timestamp.valueOf(LocalDateTime.now())};
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            jdbcTemplate.update(INSERT_SQL, row);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> pending = (List<Object[]>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<Object[]> buffer = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, buffer);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    flush(buffer);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DealEventLog.this);
+                }
+            });
+            pending = buffer;
+        }
+        pending.add(row);
+    }
+
+    private void flush(List<Object[]> rows) {
+        if (rows.isEmpty()) return;
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        logger.debug("Wrote {} deal events", rows.size());
+        rows.clear();
+    }
+}
@@ -1,18 +1,24 @@
 package com.example.realestate.service;
 
+import com.example.realestate.model.DealEvent;
 import com.example.realestate.model.DealStatus;
 import com.example.realestate.model.Property;
 import com.example.realestate.model.User;
 import com.example.realestate.dto.CreateDealWithPriceRequestDto;
 import com.example.realestate.dto.DealDetailDTO;
+import com.example.realestate.dto.DealPage;
 import com.example.realestate.dto.AgentPerformanceDTO;
 import com.example.realestate.dto.AdminDealDashboardDTO;
+import com.example.realestate.repository.DealEventRepository;
 import com.example.realestate.repository.DealStatusRepository;
 import com.example.realestate.repository.PropertyRepository;
 import com.example.realestate.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,6 +33,8 @@ public class DealService {
 
     private static final Logger logger = LoggerFactory.getLogger(DealService.class);
 
+    private static final int MAX_DEAL_PAGE_SIZE = 100;
+
     @Autowired
     private DealStatusRepository dealStatusRepository;
 
@@ -36,85 +44,16 @@ public class DealService {
     @Autowired
     private UserRepository userRepository;
 
-    // ==================== ⭐ CASCADE DELETE METHODS (NEW) ====================
-
-    /**
-     * ⭐ DELETE ALL DEALS FOR AN AGENT (CASCADE DELETE)
-     * Called when an agent is deleted
-     */
-    @Transactional
-    public void deleteAllDealsForAgent(Long agentId) {
-        logger.info("🗑️ CASCADE DELETE: Deleting all deals for agent ID: {}", agentId);
-
-        List<DealStatus> agentDeals = dealStatusRepository.findByAgentId(agentId);
-
-        if (agentDeals.isEmpty()) {
-            logger.info("✅ No deals found for agent {}. Nothing to delete.", agentId);
-            return;
-        }
-
-        logger.info("Found {} deals assigned to agent {}. Deleting...", agentDeals.size(), agentId);
-
-        for (DealStatus deal : agentDeals) {
-            logger.info("  - Deleting Deal ID: {} (Property: {}, Buyer: {})",
-                    deal.getId(),
-                    deal.getProperty() != null ? deal.getProperty().getId() : "N/A",
-                    deal.getBuyer() != null ? deal.getBuyer().getId() : "N/A");
-        }
-
-        dealStatusRepository.deleteAll(agentDeals);
-        logger.info("✅ Successfully deleted {} deals for agent {}", agentDeals.size(), agentId);
-    }
-
-    /**
-     * ⭐ DELETE ALL DEALS FOR A USER (CASCADE DELETE)
-     * Deletes deals where the user is:
-     * 1. The buyer
-     * 2. The seller (property owner)
-     * Called when a user is deleted
-     */
-    @Transactional
-    public void deleteAllDealsForUser(Long userId) {
-        logger.info("🗑️ CASCADE DELETE: Deleting all deals for user ID: {}", userId);
-
-        // 1. Find all deals where user is the buyer
-        List<DealStatus> buyerDeals = dealStatusRepository.findByBuyerId(userId);
-        logger.info("Found {} deals where user {} is the BUYER", buyerDeals.size(), userId);
-
-        // 2. Find all properties owned by this user
-        List<Property> userProperties = propertyRepository.findByUserId(userId);
-        logger.info("Found {} properties owned by user {}", userProperties.size(), userId);
-
-        // 3. Find all deals for those properties (where user is the seller)
-        List<DealStatus> sellerDeals = new ArrayList<>();
-        for (Property property : userProperties) {
-            List<DealStatus> propertyDeals = dealStatusRepository.findByPropertyId(property.getId());
-            sellerDeals.addAll(propertyDeals);
-        }
-        logger.info("Found {} deals where user {} is the SELLER", sellerDeals.size(), userId);
-
-        // 4. Combine and remove duplicates
-        Set<DealStatus> allDealsToDelete = new HashSet<>();
-        allDealsToDelete.addAll(buyerDeals);
-        allDealsToDelete.addAll(sellerDeals);
-
-        if (allDealsToDelete.isEmpty()) {
-            logger.info("✅ No deals found for user {}. Nothing to delete.", userId);
-            return;
-        }
+    @Autowired
+    private DealStageCounterService dealStageCounterService;
 
-        logger.info("Total unique deals to delete: {}", allDealsToDelete.size());
+    @Autowired
+    private DealEventLog dealEventLog;
 
-        for (DealStatus deal : allDealsToDelete) {
-            logger.info("  - Deleting Deal ID: {} (Property: {}, Stage: {})",
-                    deal.getId(),
-                    deal.getProperty() != null ? deal.getProperty().getTitle() : "N/A",
-                    deal.getStage());
-        }
+    @Autowired
+    private DealEventRepository dealEventRepository;
 
-        dealStatusRepository.deleteAll(allDealsToDelete);
-        logger.info("✅ Successfully deleted {} deals for user {}", allDealsToDelete.size(), userId);
-    }
+    // ==================== ⭐ CASCADE DELETE METHODS (NEW) ====================
 
     /**
      * ⭐ DELETE ALL DEALS FOR A PROPERTY (CASCADE DELETE)
@@ -141,7 +80,9 @@ public class DealService {
                     deal.getStage());
         }
 
+        dealEventRepository.deleteByDealIds(idsOf(propertyDeals));
         dealStatusRepository.deleteAll(propertyDeals);
+        dealStageCounterService.recordDeleted(propertyDeals);
         logger.info("✅ Successfully deleted {} deals for property {}", propertyDeals.size(), propertyId);
     }
 
@@ -198,6 +139,8 @@ public class DealService {
         deal.setInquiryDate(LocalDateTime.now());
 
         DealStatus savedDeal = dealStatusRepository.save(deal);
+        dealStageCounterService.recordCreated(savedDeal.getStage());
+        dealEventLog.append(savedDeal.getId(), savedDeal.getStage(), savedDeal.getLastUpdatedBy(), savedDeal.getNotes());
         logger.info("✅ Deal created with price - Deal ID: {}, Property ID: {}, Buyer ID: {}, Agent ID: {}, Price: {}",
                 savedDeal.getId(), property.getId(), buyer.getId(), agent.getId(), savedDeal.getAgreedPrice());
         return savedDeal;
@@ -240,6 +183,8 @@ public class DealService {
         deal.setInquiryDate(LocalDateTime.now());
 
         DealStatus savedDeal = dealStatusRepository.save(deal);
+        dealStageCounterService.recordCreated(savedDeal.getStage());
+        dealEventLog.append(savedDeal.getId(), savedDeal.getStage(), savedDeal.getLastUpdatedBy(), savedDeal.getNotes());
         logger.info("✅ Basic Deal created - Deal ID: {}, Property ID: {}, Buyer ID: {}",
                 savedDeal.getId(), property.getId(), buyer.getId());
         return savedDeal;
@@ -247,40 +192,53 @@ public class DealService {
 
     // ==================== ROLE-BASED DEAL FETCHING ====================
     public List<DealDetailDTO> getDealsByRole(Long userId, String userRole) {
-        logger.info("Fetching deals for user ID: {} with provided role: '{}'", userId, userRole);
+        return getDealsByRole(userId, userRole, null);
+    }
+
+    /**
+     * All deals for the user's role, optionally only those at one stage
+     */
+    public List<DealDetailDTO> getDealsByRole(Long userId, String userRole, DealStatus.DealStage stage) {
+        return findDealsByRole(userId, userRole, stage, null, Pageable.unpaged());
+    }
+
+    /**
+     * One page of deals for the user's role, newest first. Each page is a single
+     * joined projection query; cursor is the nextCursor of the previous page.
+     */
+    public DealPage getDealsByRole(Long userId, String userRole, DealStatus.DealStage stage,
+                                   Long cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_DEAL_PAGE_SIZE));
+
+        // Fetch one extra row to know whether another page exists
+        List<DealDetailDTO> rows = findDealsByRole(userId, userRole, stage, cursor, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<DealDetailDTO> items = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+
+        Long nextCursor = hasMore ? items.get(items.size() - 1).getDealId() : null;
+        return new DealPage(items, nextCursor, hasMore);
+    }
 
-        List<DealStatus> deals = new ArrayList<>();
+    private List<DealDetailDTO> findDealsByRole(Long userId, String userRole, DealStatus.DealStage stage,
+                                                Long afterId, Pageable pageable) {
         String normalizedRole = (userRole != null) ? userRole : "UNKNOWN";
-        logger.info("Normalized role for processing: '{}'", normalizedRole);
+        logger.info("Fetching deals for user ID: {} with role: '{}' (stage: {}, after: {})",
+                userId, normalizedRole, stage, afterId);
 
+        List<DealDetailDTO> deals;
         switch (normalizedRole) {
             case "USER":
             case "BROKER":
-                logger.info("Processing as USER role for user {}", userId);
-                List<DealStatus> buyerDeals = dealStatusRepository.findByBuyerId(userId);
-                logger.info("Found {} deals where user {} is BUYER", buyerDeals.size(), userId);
-                deals.addAll(buyerDeals);
-
-                List<Property> userProperties = propertyRepository.findByUserId(userId);
-                logger.info("Found {} properties owned by user {}", userProperties.size(), userId);
-
-                for (Property property : userProperties) {
-                    List<DealStatus> propertyDeals = dealStatusRepository.findByPropertyId(property.getId());
-                    logger.info("Property ID {} has {} deals", property.getId(), propertyDeals.size());
-                    deals.addAll(propertyDeals);
-                }
+                // Deals where the user is the buyer or owns the property
+                deals = dealStatusRepository.findDealDetailsForParticipant(userId, stage, afterId, pageable);
                 break;
 
             case "AGENT":
-                logger.info("Processing as AGENT role for user {}", userId);
-                deals = dealStatusRepository.findByAgentId(userId);
-                logger.info("Found {} deals for agent {}", deals.size(), userId);
+                deals = dealStatusRepository.findDealDetailsForAgent(userId, stage, afterId, pageable);
                 break;
 
             case "ADMIN":
-                logger.info("Processing as ADMIN role - fetching all deals");
-                deals = dealStatusRepository.findAll();
-                logger.info("Found {} total deals", deals.size());
+                deals = dealStatusRepository.findAllDealDetails(stage, afterId, pageable);
                 break;
 
             default:
@@ -288,14 +246,8 @@ public class DealService {
                 throw new RuntimeException("Invalid role: " + normalizedRole);
         }
 
-        logger.info("Total deals found before conversion: {}", deals.size());
-        List<DealDetailDTO> dtos = deals.stream()
-                .map(this::convertToDealDetailDTO)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
-        logger.info("Successfully converted {} deals to DTOs", dtos.size());
-        return dtos;
+        logger.info("Found {} deals for user {} ({})", deals.size(), userId, normalizedRole);
+        return deals;
     }
 
     // ==================== CONVERT TO DTO ====================
@@ -401,18 +353,18 @@ public class DealService {
             case COMPLETED: if (deal.getCompletedDate() == null) deal.setCompletedDate(now); break;
         }
 
-        if (notes != null && !notes.trim().isEmpty()) {
-            String existingNotes = deal.getNotes() != null ? deal.getNotes() : "";
-            String separator = existingNotes.isEmpty() ? "" : "\n";
-            String timestamp = now.format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
-            String newNotesEntry = "[" + timestamp + " - " + updatedByUsername + "] " + notes.trim();
-            deal.setNotes(existingNotes + separator + newNotesEntry);
+        // History goes to deal_events; the deal row only keeps the latest note
+        String note = (notes != null && !notes.trim().isEmpty()) ? notes.trim() : null;
+        if (note != null) {
+            deal.setNotes(note);
         }
 
         deal.setLastUpdatedBy(updatedByUsername);
         deal.setUpdatedAt(LocalDateTime.now());
 
         DealStatus updatedDeal = dealStatusRepository.save(deal);
+        dealStageCounterService.recordStageChange(oldStage, newStage);
+        dealEventLog.append(dealId, newStage, updatedByUsername, note);
         logger.info("✅ Deal {} updated successfully from {} to {}", dealId, oldStage, newStage);
         return updatedDeal;
     }
@@ -431,12 +383,14 @@ public class DealService {
 
         try {
             // Total deals
-            long totalDeals = dealStatusRepository.count();
+            long totalDeals = dealStageCounterService.isReady()
+                    ? dealStageCounterService.total()
+                    : dealStatusRepository.count();
             dashboard.setTotalDeals(totalDeals);
 
             // Deals by stage
             for (DealStatus.DealStage stage : DealStatus.DealStage.values()) {
-                Long count = dealStatusRepository.countByStage(stage);
+                Long count = getCountByStage(stage);
                 switch (stage) {
                     case INQUIRY: dashboard.setInquiryCount(count); break;
                     case SHORTLIST: dashboard.setShortlistCount(count); break;
@@ -466,39 +420,37 @@ public class DealService {
         try {
             List<User> agents = userRepository.findByRole(User.UserRole.AGENT);
 
-            List<AgentPerformanceDTO> metrics = agents.stream()
-                    .map(agent -> {
-                        AgentPerformanceDTO dto = new AgentPerformanceDTO();
-                        dto.setAgentId(agent.getId());
-                        dto.setAgentName(agent.getFirstName() + " " + agent.getLastName());
-                        dto.setAgentEmail(agent.getEmail());
-
-                        // Get deals for this agent
-                        List<DealStatus> agentDeals = dealStatusRepository.findByAgentId(agent.getId());
-                        dto.setTotalDeals((long) agentDeals.size());
-
-                        // Count active deals (not completed)
-                        long activeDeals = agentDeals.stream()
-                                .filter(deal -> deal.getStage() != DealStatus.DealStage.COMPLETED)
-                                .count();
-                        dto.setActiveDeals(activeDeals);
-
-                        // Count completed deals
-                        long completedDeals = agentDeals.stream()
-                                .filter(deal -> deal.getStage() == DealStatus.DealStage.COMPLETED)
-                                .count();
-                        dto.setCompletedDeals(completedDeals);
-
-                        // Calculate total deal value (sum of agreed prices)
-                        BigDecimal totalValue = agentDeals.stream()
-                                .filter(deal -> deal.getAgreedPrice() != null)
-                                .map(DealStatus::getAgreedPrice)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-                        dto.setTotalDealValue(totalValue);
-
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
+            // One grouped query for all agents instead of loading every deal per agent
+            Map<Long, AgentPerformanceDTO> byAgent = new LinkedHashMap<>();
+            for (User agent : agents) {
+                AgentPerformanceDTO dto = new AgentPerformanceDTO();
+                dto.setAgentId(agent.getId());
+                dto.setAgentName(agent.getFirstName() + " " + agent.getLastName());
+                dto.setAgentEmail(agent.getEmail());
+                dto.setTotalDeals(0L);
+                dto.setActiveDeals(0L);
+                dto.setCompletedDeals(0L);
+                dto.setTotalDealValue(BigDecimal.ZERO);
+                byAgent.put(agent.getId(), dto);
+            }
+
+            for (Object[] row : dealStatusRepository.aggregateByAgentAndStage()) {
+                AgentPerformanceDTO dto = byAgent.get((Long) row[0]);
+                if (dto == null) continue; // deals still assigned to a user who is no longer an agent
+
+                DealStatus.DealStage stage = (DealStatus.DealStage) row[1];
+                long count = ((Number) row[2]).longValue();
+
+                dto.setTotalDeals(dto.getTotalDeals() + count);
+                if (stage == DealStatus.DealStage.COMPLETED) {
+                    dto.setCompletedDeals(dto.getCompletedDeals() + count);
+                } else {
+                    dto.setActiveDeals(dto.getActiveDeals() + count);
+                }
+                dto.setTotalDealValue(dto.getTotalDealValue().add(toBigDecimal(row[3])));
+            }
+
+            List<AgentPerformanceDTO> metrics = new ArrayList<>(byAgent.values());
 
             logger.info("✅ Generated performance metrics for {} agents", metrics.size());
             return metrics;
@@ -509,6 +461,11 @@ public class DealService {
         }
     }
 
+    private static BigDecimal toBigDecimal(Object sum) {
+        if (sum == null) return BigDecimal.ZERO;
+        return sum instanceof BigDecimal ? (BigDecimal) sum : new BigDecimal(sum.toString());
+    }
+
     // ==================== OTHER DEAL METHODS ====================
 
     public DealStatus assignAgentToDeal(Long dealId, Long agentId, String updatedByUsername) {
@@ -524,7 +481,26 @@ public class DealService {
 
         deal.setAgent(agent);
         deal.setLastUpdatedBy(updatedByUsername);
-        return dealStatusRepository.save(deal);
+        DealStatus saved = dealStatusRepository.save(deal);
+        dealEventLog.append(dealId, saved.getStage(), updatedByUsername,
+                "Agent assigned: " + agent.getFirstName() + " " + agent.getLastName());
+        return saved;
+    }
+
+    /**
+     * One page of a deal's timeline, newest event first
+     */
+    @Transactional(readOnly = true)
+    public Slice<DealEvent> getDealTimeline(Long dealId, int page, int size) {
+        if (!dealStatusRepository.existsById(dealId)) {
+            throw new RuntimeException("Deal not found with ID: " + dealId);
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_DEAL_PAGE_SIZE));
+        return dealEventRepository.findByDealIdOrderByIdDesc(dealId, PageRequest.of(Math.max(page, 0), pageSize));
+    }
+
+    private static List<Long> idsOf(Collection<DealStatus> deals) {
+        return deals.stream().map(DealStatus::getId).collect(Collectors.toList());
     }
 
     public DealStatus getDealById(Long dealId) {
@@ -555,11 +531,7 @@ public class DealService {
      */
     public List<DealDetailDTO> getDealsByAgentForAdmin(Long agentId) {
         logger.info("Admin fetching deals for agent ID: {}", agentId);
-        List<DealStatus> deals = dealStatusRepository.findByAgentId(agentId);
-        return deals.stream()
-                .map(this::convertToDealDetailDTO)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        return dealStatusRepository.findDealDetailsForAgent(agentId, null, null, Pageable.unpaged());
     }
 
     public List<DealStatus> getActiveDealsForAgent(Long agentId) {
@@ -579,6 +551,9 @@ public class DealService {
     }
 
     public Long getCountByStage(DealStatus.DealStage stage) {
+        if (dealStageCounterService.isReady()) {
+            return dealStageCounterService.count(stage);
+        }
         return dealStatusRepository.countByStage(stage);
     }
 
@@ -639,7 +614,9 @@ public class DealService {
                 deal.getBuyer() != null ? deal.getBuyer().getId() : "N/A",
                 deal.getStage());
 
+        dealEventRepository.deleteByDealIds(List.of(deal.getId()));
         dealStatusRepository.delete(deal);
+        dealStageCounterService.recordDeleted(List.of(deal));
 
         logger.info("✅ Successfully deleted deal {}", dealId);
     }
@@ -0,0 +1,202 @@
+package com.example.realestate.service;
+
+import com.example.realestate.model.DealStatus;
+import com.example.realestate.repository.DealStatusRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live deal counts per stage for the admin dashboard and /api/deals/stats/by-stage,
+ * so those reads never scan deal_status.
+ *
+ * DealService reports every create, stage move and delete; the delta is applied
+ * only once its transaction commits. A periodic reconciliation re-reads the grouped
+ * counts from the database to correct any drift (e.g. rows changed outside DealService).
+ *
+ * The grouped COUNT can't tell which concurrent commits it saw, so a reconciliation
+ * only applies its result if no reported transaction was committing and no delta
+ * was applied while it ran; otherwise it tries again, and after a few busy attempts
+ * leaves the counters alone until the next run.
+ */
+@Service
+public class DealStageCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealStageCounterService.class);
+
+    private static final int RECONCILE_ATTEMPTS = 5;
+    private static final long RECONCILE_RETRY_MS = 100;
+
+    private final DealStatusRepository dealStatusRepository;
+
+    private final Map<DealStatus.DealStage, LongAdder> counters = new EnumMap<>(DealStatus.DealStage.class);
+    private final LongAdder total = new LongAdder(); // includes deals without a stage
+
+    // Reported transactions between beforeCommit and their delta, and deltas applied so far
+    private final AtomicInteger committing = new AtomicInteger();
+    private final AtomicLong applied = new AtomicLong();
+
+    private volatile boolean ready = false;
+
+    public DealStageCounterService(DealStatusRepository dealStatusRepository) {
+        this.dealStatusRepository = dealStatusRepository;
+        for (DealStatus.DealStage stage : DealStatus.DealStage.values()) {
+            counters.put(stage, new LongAdder());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${deals.stage-counters.reconcile-ms:600000}",
+            initialDelayString = "${deals.stage-counters.reconcile-ms:600000}")
+    public void periodicReconcile() {
+        reconcile();
+    }
+
+    /**
+     * Align the counters with a grouped COUNT from the database, taken while no
+     * reported change is in flight so no delta is both in the snapshot and applied
+     * on top of it
+     */
+    public synchronized void reconcile() {
+        try {
+            for (int attempt = 1; attempt <= RECONCILE_ATTEMPTS; attempt++) {
+                if (attempt > 1) Thread.sleep(RECONCILE_RETRY_MS);
+                if (committing.get() > 0) continue;
+                long appliedBefore = applied.get();
+
+                Map<DealStatus.DealStage, Long> actual = new EnumMap<>(DealStatus.DealStage.class);
+                long actualTotal = 0;
+                for (Object[] row : dealStatusRepository.countGroupedByStage()) {
+                    long count = ((Number) row[1]).longValue();
+                    if (row[0] != null) actual.put((DealStatus.DealStage) row[0], count);
+                    actualTotal += count;
+                }
+
+                // Something committed around the query: it may or may not be in the snapshot
+                if (committing.get() > 0 || applied.get() != appliedBefore) continue;
+
+                long drift = 0;
+                for (DealStatus.DealStage stage : DealStatus.DealStage.values()) {
+                    LongAdder counter = counters.get(stage);
+                    long delta = actual.getOrDefault(stage, 0L) - counter.sum();
+                    counter.add(delta);
+                    drift += Math.abs(delta);
+                }
+                total.add(actualTotal - total.sum());
+
+                if (ready && drift > 0) {
+                    logger.warn("Deal stage counters drifted by {} and were corrected", drift);
+                }
+                ready = true;
+                return;
+            }
+            logger.debug("Deal stage counters busy, reconciliation skipped this time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Deal stage counter reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long count(DealStatus.DealStage stage) {
+        return counters.get(stage).sum();
+    }
+
+    public long total() {
+        return total.sum();
+    }
+
+    // ==================== UPDATES FROM DealService ====================
+
+    public void recordCreated(DealStatus.DealStage stage) {
+        afterCommit(() -> {
+            increment(stage, 1);
+            total.increment();
+        });
+    }
+
+    public void recordStageChange(DealStatus.DealStage from, DealStatus.DealStage to) {
+        if (from == to) return;
+        afterCommit(() -> {
+            increment(from, -1);
+            increment(to, 1);
+        });
+    }
+
+    public void recordDeleted(Collection<DealStatus> deals) {
+        if (deals.isEmpty()) return;
+
+        Map<DealStatus.DealStage, Long> removed = new EnumMap<>(DealStatus.DealStage.class);
+        for (DealStatus deal : deals) {
+            if (deal.getStage() != null) removed.merge(deal.getStage(), 1L, Long::sum);
+        }
+        recordDeleted(removed, deals.size());
+    }
+
+    /**
+     * Bulk deletes where only the per-stage counts are known
+     */
+    public void recordDeleted(Map<DealStatus.DealStage, Long> removedByStage, long count) {
+        if (count == 0) return;
+        Map<DealStatus.DealStage, Long> removed = new EnumMap<>(DealStatus.DealStage.class);
+        removed.putAll(removedByStage);
+        afterCommit(() -> {
+            removed.forEach((stage, n) -> increment(stage, -n));
+            total.add(-count);
+        });
+    }
+
+    // ==================== INTERNALS ====================
+
+    private void increment(DealStatus.DealStage stage, long delta) {
+        if (stage != null) counters.get(stage).add(delta);
+    }
+
+    // Rolled-back work must not move the counters
+    private void afterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private boolean counted;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    committing.incrementAndGet();
+                    counted = true;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) apply(update);
+                    if (counted) committing.decrementAndGet();
+                }
+            });
+        } else {
+            apply(update);
+        }
+    }
+
+    private void apply(Runnable update) {
+        update.run();
+        applied.incrementAndGet();
+    }
+}
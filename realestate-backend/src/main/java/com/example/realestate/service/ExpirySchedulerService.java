@@ -0,0 +1,178 @@
+package com.example.realestate.service;
+
+import com.example.realestate.repository.BrokerSubscriptionRepository;
+import com.example.realestate.repository.FeaturedPropertyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Expires featured listings and broker subscriptions at their deadline instead of
+ * evaluating "until > now" everywhere or waiting for the daily 2 AM job.
+ *
+ * Deadlines live in a hierarchical timing wheel (1 s ticks). On startup a catch-up
+ * sweep expires anything that ran out while the app was down, then the wheel is
+ * seeded with every upcoming end date. Each tick that has deadlines due runs one
+ * set-based UPDATE per kind, so a burst of expiries costs a single statement.
+ *
+ * Deadlines are armed at the end of their second: the wheel fires a bucket when its
+ * tick starts, and MySQL DATETIME rounds a .5 s fraction up, so an unrounded deadline
+ * could fire before the stored end date and update nothing. If a timer-driven UPDATE
+ * still finds no rows (clock skew between app and database), the kind is retried on
+ * the next few ticks before it is left to the daily sweep.
+ */
+@Service
+public class ExpirySchedulerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpirySchedulerService.class);
+
+    private static final long TICK_MS = 1_000;
+    private static final int WHEEL_SIZE = 60;
+    private static final int MAX_RETRIES = 3;
+
+    public enum Kind {
+        FEATURED, SUBSCRIPTION
+    }
+
+    private final FeaturedPropertyRepository featuredPropertyRepository;
+    private final BrokerSubscriptionRepository subscriptionRepository;
+    private final BrokerQuotaService brokerQuotaService;
+
+    private final TimingWheel<Kind> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, System.currentTimeMillis());
+    private final Map<Kind, Integer> retries = new EnumMap<>(Kind.class); // guarded by wheel
+    private volatile boolean ready = false;
+
+    public ExpirySchedulerService(FeaturedPropertyRepository featuredPropertyRepository,
+                                  BrokerSubscriptionRepository subscriptionRepository,
+                                  BrokerQuotaService brokerQuotaService) {
+        this.featuredPropertyRepository = featuredPropertyRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.brokerQuotaService = brokerQuotaService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedOnStartup() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            expire(EnumSet.allOf(Kind.class), now);
+
+            List<LocalDateTime> featuredDeadlines = featuredPropertyRepository.findUpcomingEndDates(now);
+            List<LocalDateTime> subscriptionDeadlines = subscriptionRepository.findUpcomingEndDates(now);
+            featuredDeadlines.forEach(at -> schedule(Kind.FEATURED, at));
+            subscriptionDeadlines.forEach(at -> schedule(Kind.SUBSCRIPTION, at));
+
+            ready = true;
+            logger.info("Expiry wheel seeded: {} featured and {} subscription deadlines",
+                    featuredDeadlines.size(), subscriptionDeadlines.size());
+        } catch (Exception e) {
+            logger.error("Expiry wheel seeding failed, relying on the daily sweep: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Register the end of a newly activated featured period
+     */
+    public void scheduleFeaturedExpiry(LocalDateTime featuredUntil) {
+        schedule(Kind.FEATURED, featuredUntil);
+    }
+
+    /**
+     * Register the end date of a newly activated broker subscription
+     */
+    public void scheduleSubscriptionExpiry(LocalDateTime endDate) {
+        schedule(Kind.SUBSCRIPTION, endDate);
+    }
+
+    @Scheduled(fixedDelay = TICK_MS)
+    public void tick() {
+        if (!ready) return;
+
+        List<Kind> due;
+        synchronized (wheel) {
+            if (wheel.isEmpty()) return;
+            due = wheel.advance(System.currentTimeMillis());
+        }
+        if (due.isEmpty()) return;
+
+        Set<Kind> kinds = EnumSet.copyOf(due);
+        Set<Kind> missed = expire(kinds, LocalDateTime.now());
+        synchronized (wheel) {
+            for (Kind kind : kinds) {
+                if (!missed.contains(kind)) {
+                    retries.remove(kind);
+                } else if (retries.merge(kind, 1, Integer::sum) <= MAX_RETRIES) {
+                    // The deadline that fired is not visible as due yet; look again next tick
+                    wheel.add(System.currentTimeMillis() + TICK_MS, kind);
+                } else {
+                    retries.remove(kind);
+                }
+            }
+        }
+    }
+
+    /**
+     * Safety net (runs daily at 2 AM, where the old subscription job ran): catches
+     * anything missed while the wheel was unseeded or an UPDATE failed
+     */
+    @Scheduled(cron = "0 0 2 * * ?")
+    public void dailySweep() {
+        logger.info("🔄 Running daily expiry sweep");
+        expire(EnumSet.allOf(Kind.class), LocalDateTime.now());
+    }
+
+    // ==================== INTERNALS ====================
+
+    private void schedule(Kind kind, LocalDateTime deadline) {
+        if (deadline == null) return;
+
+        // End of the deadline's second (= tick), never before the stored DATETIME
+        long exactMs = deadline.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long deadlineMs = Math.floorDiv(exactMs, TICK_MS) * TICK_MS + TICK_MS;
+        synchronized (wheel) {
+            // Already inside the current tick (or past): fire on the next tick instead
+            if (!wheel.add(deadlineMs, kind)) {
+                wheel.add(System.currentTimeMillis() + TICK_MS, kind);
+            }
+        }
+    }
+
+    /**
+     * The UPDATEs are conditional on the deadline, so stale or duplicate ticks are harmless.
+     * Returns the kinds that expired nothing (or failed).
+     */
+    private Set<Kind> expire(Set<Kind> kinds, LocalDateTime now) {
+        Set<Kind> missed = EnumSet.noneOf(Kind.class);
+        for (Kind kind : kinds) {
+            try {
+                if (kind == Kind.FEATURED) {
+                    int n = featuredPropertyRepository.expireDue(now);
+                    if (n > 0) logger.info("Expired {} featured properties", n);
+                    else missed.add(kind);
+                } else {
+                    int n = subscriptionRepository.expireDue(now);
+                    if (n > 0) {
+                        logger.info("Expired {} broker subscriptions", n);
+                        brokerQuotaService.invalidateAll();
+                    } else {
+                        missed.add(kind);
+                    }
+                }
+            } catch (Exception e) {
+                logger.error("Expiry update failed for {}: {}", kind, e.getMessage(), e);
+                missed.add(kind);
+            }
+        }
+        return missed;
+    }
+}
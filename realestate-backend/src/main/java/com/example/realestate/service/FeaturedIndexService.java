@@ -0,0 +1,238 @@
+package com.example.realestate.service;
+
+import com.example.realestate.event.FeaturedChangedEvent;
+import com.example.realestate.event.PropertyChangedEvent;
+import com.example.realestate.repository.FeaturedPropertyRepository;
+import com.example.realestate.repository.PropertyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory set of the property ids that are featured right now, replacing the
+ * featured_properties join (findFeaturedPropertyIds / isPropertyActuallyFeatured)
+ * on every listing.
+ *
+ * Each property keeps its paid/free featured windows. The start and end of every
+ * window sit in a time-ordered queue; readers apply any boundary that has passed
+ * before answering, so an id leaves the set exactly when featuredUntil passes.
+ * Changes arrive through FeaturedChangedEvent / PropertyChangedEvent after commit;
+ * one that arrives during a rebuild waits for the lock and is applied on top of it.
+ */
+@Service
+public class FeaturedIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeaturedIndexService.class);
+
+    private final FeaturedPropertyRepository featuredPropertyRepository;
+    private final PropertyRepository propertyRepository;
+
+    private final Set<Long> featuredIds = ConcurrentHashMap.newKeySet();
+
+    // propertyId -> featured windows that have not ended (guarded by this)
+    private final Map<Long, List<Window>> windowsByProperty = new HashMap<>();
+    // window starts/ends still ahead of us, earliest first (guarded by this)
+    private final PriorityQueue<Boundary> boundaries =
+            new PriorityQueue<>(Comparator.comparing((Boundary b) -> b.at));
+
+    private volatile LocalDateTime nextBoundary; // null when nothing is scheduled
+    private volatile boolean ready = false;
+
+    public FeaturedIndexService(FeaturedPropertyRepository featuredPropertyRepository,
+                                PropertyRepository propertyRepository) {
+        this.featuredPropertyRepository = featuredPropertyRepository;
+        this.propertyRepository = propertyRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Reload all live featured windows from the database
+     */
+    public synchronized void rebuild() {
+        ready = false;
+        featuredIds.clear();
+        windowsByProperty.clear();
+        boundaries.clear();
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            Map<Long, List<Window>> loaded = new HashMap<>();
+            for (Object[] row : featuredPropertyRepository.findLiveWindows(now)) {
+                loaded.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add(toWindow(row));
+            }
+            loaded.forEach((propertyId, windows) -> replace(propertyId, windows, now));
+            updateNextBoundary();
+
+            ready = true;
+            logger.info("Featured index built: {} featured now, {} properties with live windows",
+                    featuredIds.size(), windowsByProperty.size());
+        } catch (Exception e) {
+            logger.error("Featured index build failed, featured checks will use the database: {}", e.getMessage(), e);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFeaturedChanged(FeaturedChangedEvent event) {
+        if (event.getPropertyId() == null) return;
+
+        // Read under the lock so two changes to one property can't be applied out of order.
+        // A change arriving during rebuild() waits for it here instead of being dropped.
+        synchronized (this) {
+            if (!ready) return; // the build failed; the next rebuild reloads everything
+            LocalDateTime now = LocalDateTime.now();
+            List<Window> windows = new ArrayList<>();
+            for (Object[] row : featuredPropertyRepository.findLiveWindowsByPropertyId(event.getPropertyId(), now)) {
+                windows.add(toWindow(row));
+            }
+            replace(event.getPropertyId(), windows, now);
+            updateNextBoundary();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        if (event.getPropertyId() == null || !event.isRemoval()) return;
+
+        synchronized (this) {
+            if (!ready) return;
+            replace(event.getPropertyId(), List.of(), LocalDateTime.now());
+            updateNextBoundary();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Whether the property is featured right now
+     */
+    public boolean isFeatured(Long propertyId) {
+        if (propertyId == null) return false;
+        if (!ready) return propertyRepository.isPropertyActuallyFeatured(propertyId, LocalDateTime.now());
+
+        advance();
+        return featuredIds.contains(propertyId);
+    }
+
+    /**
+     * The subset of the given property ids that are featured right now
+     */
+    public Set<Long> featuredAmong(Collection<Long> propertyIds) {
+        if (propertyIds == null || propertyIds.isEmpty()) return new HashSet<>();
+        if (!ready) {
+            return new HashSet<>(propertyRepository.findFeaturedPropertyIds(
+                    new ArrayList<>(propertyIds), LocalDateTime.now()));
+        }
+
+        advance();
+        Set<Long> out = new HashSet<>();
+        for (Long id : propertyIds) {
+            if (id != null && featuredIds.contains(id)) out.add(id);
+        }
+        return out;
+    }
+
+    // ==================== INTERNALS ====================
+
+    /**
+     * Apply every window start/end that has passed. Cheap volatile check on the hot path;
+     * only takes the lock when a boundary is actually due.
+     */
+    private void advance() {
+        LocalDateTime next = nextBoundary;
+        if (next == null || LocalDateTime.now().isBefore(next)) return;
+
+        synchronized (this) {
+            LocalDateTime now = LocalDateTime.now();
+            Boundary due;
+            while ((due = boundaries.peek()) != null && !due.at.isAfter(now)) {
+                boundaries.poll();
+                refresh(due.propertyId, now);
+            }
+            updateNextBoundary();
+        }
+    }
+
+    // Caller holds the lock
+    private void replace(Long propertyId, List<Window> windows, LocalDateTime now) {
+        if (windows.isEmpty()) {
+            windowsByProperty.remove(propertyId);
+        } else {
+            windowsByProperty.put(propertyId, new ArrayList<>(windows));
+            // Stale boundaries from earlier windows are harmless: they just trigger a refresh
+            for (Window w : windows) {
+                if (w.from != null && w.from.isAfter(now)) boundaries.add(new Boundary(w.from, propertyId));
+                if (w.until != null && w.until.isAfter(now)) boundaries.add(new Boundary(w.until, propertyId));
+            }
+        }
+        refresh(propertyId, now);
+    }
+
+    // Caller holds the lock
+    private void refresh(Long propertyId, LocalDateTime now) {
+        List<Window> windows = windowsByProperty.get(propertyId);
+        boolean featured = false;
+
+        if (windows != null) {
+            windows.removeIf(w -> w.until != null && !w.until.isAfter(now));
+            if (windows.isEmpty()) {
+                windowsByProperty.remove(propertyId);
+            } else {
+                featured = windows.stream().anyMatch(w -> w.covers(now));
+            }
+        }
+
+        if (featured) featuredIds.add(propertyId);
+        else featuredIds.remove(propertyId);
+    }
+
+    // Caller holds the lock
+    private void updateNextBoundary() {
+        Boundary head = boundaries.peek();
+        nextBoundary = head != null ? head.at : null;
+    }
+
+    private static Window toWindow(Object[] row) {
+        return new Window((LocalDateTime) row[1], (LocalDateTime) row[2]);
+    }
+
+    /**
+     * [from, until) of one featured record; null bounds are open
+     */
+    private static final class Window {
+        final LocalDateTime from;
+        final LocalDateTime until;
+
+        Window(LocalDateTime from, LocalDateTime until) {
+            this.from = from;
+            this.until = until;
+        }
+
+        boolean covers(LocalDateTime now) {
+            return (from == null || !from.isAfter(now)) && (until == null || until.isAfter(now));
+        }
+    }
+
+    private static final class Boundary {
+        final LocalDateTime at;
+        final Long propertyId;
+
+        Boundary(LocalDateTime at, Long propertyId) {
+            this.at = at;
+            this.propertyId = propertyId;
+        }
+    }
+}
@@ -8,9 +8,10 @@ import com.example.realestate.dto.CreateFeaturedOrderRequest;
 import com.example.realestate.dto.FeaturedOrderResponse;
 import com.example.realestate.dto.FeaturedPropertyDTO;
 import com.example.realestate.dto.FeaturedPropertyResponse;
+import com.example.realestate.dto.PropertyDTO;
+import com.example.realestate.event.FeaturedChangedEvent;
 import com.example.realestate.model.FeaturedProperty;
 import com.example.realestate.model.Property;
-import com.example.realestate.model.PropertyImage;
 import com.example.realestate.repository.FeaturedPropertyRepository;
 import com.example.realestate.repository.PropertyRepository;
 import java.math.BigDecimal;
@@ -20,6 +21,7 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -31,7 +33,7 @@ public class FeaturedPropertyService {
     private final FeaturedPropertyRepository featuredPropertyRepository;
     private final PropertyRepository propertyRepository;
     private final CouponService couponService;
-    private final PropertyImageService propertyImageService;
+    private final PrimaryImageResolver primaryImageResolver;
 
     private static final BigDecimal FEATURED_PRICE = BigDecimal.valueOf(499.00);
     private static final int DEFAULT_DURATION_MONTHS = 3;
@@ -39,16 +41,25 @@ public class FeaturedPropertyService {
     public FeaturedPropertyService(FeaturedPropertyRepository featuredPropertyRepository,
                                    PropertyRepository propertyRepository,
                                    CouponService couponService,
-                                   PropertyImageService propertyImageService) {
+                                   PrimaryImageResolver primaryImageResolver) {
         this.featuredPropertyRepository = featuredPropertyRepository;
         this.propertyRepository = propertyRepository;
         this.couponService = couponService;
-        this.propertyImageService = propertyImageService;
+        this.primaryImageResolver = primaryImageResolver;
     }
 
     @Autowired
     private RazorpayService razorpayService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ExpirySchedulerService expirySchedulerService;
+
+    @Autowired
+    private CouponRedemptionService couponRedemptionService;
+
     // ---------------------------------------------------------------------
     // ✅ Option-1: Create Featured Order (FREE → activate, PAID → create Razorpay order)
     // ---------------------------------------------------------------------
@@ -121,8 +132,10 @@ public class FeaturedPropertyService {
             propertyRepository.save(p);
 
             if (couponId != null) {
-                couponService.incrementUsageCount(couponId);
+                couponRedemptionService.redeem(couponId);
             }
+            expirySchedulerService.scheduleFeaturedExpiry(saved.getFeaturedUntil());
+            eventPublisher.publishEvent(new FeaturedChangedEvent(propertyId));
 
             out.setSuccess(true);
             out.setMessage("Property featured successfully for free!");
@@ -137,6 +150,11 @@ public class FeaturedPropertyService {
         fp.setIsActive(false); // IMPORTANT: not active until /verify-payment success
         FeaturedProperty saved = featuredPropertyRepository.save(fp);
 
+        // Hold the coupon use until payment is verified (released on cancel or expiry)
+        if (couponId != null) {
+            couponRedemptionService.reserve(couponId, saved.getFeaturedId());
+        }
+
         String receipt = "FEATURED_" + propertyId + "_" + System.currentTimeMillis();
         Map<String, String> notes = new HashMap<>();
         notes.put("property_id", String.valueOf(propertyId));
@@ -185,12 +203,15 @@ public class FeaturedPropertyService {
             return Collections.emptyList();
         }
 
-        // Fetch properties in bulk
-        List<Property> props = propertyRepository.findAllById(propIds);
+        // Fetch the listing columns in bulk (projection, no entity graphs)
+        List<PropertyDTO> props = propertyRepository.findCardsByIds(propIds);
+
+        // propertyId -> row
+        Map<Long, PropertyDTO> propMap = props.stream()
+                .collect(Collectors.toMap(PropertyDTO::getPropertyId, p -> p));
 
-        // propertyId -> Property
-        Map<Long, Property> propMap = props.stream()
-                .collect(Collectors.toMap(Property::getId, p -> p));
+        // Primary images for all featured properties in one query
+        Map<Long, String> imageUrls = primaryImageResolver.resolve(propIds);
 
         // Build DTOs
         List<FeaturedPropertyDTO> out = new ArrayList<>();
@@ -198,14 +219,13 @@ public class FeaturedPropertyService {
             Long pid = fp.getPropertyId();
             if (pid == null) continue;
 
-            Property p = propMap.get(pid);
+            PropertyDTO p = propMap.get(pid);
             if (p == null) continue;
 
             FeaturedPropertyDTO dto = toDto(p);
 
             // Attach primary image
-            String primaryImage = resolvePrimaryImage(pid);
-            dto.setImageUrl(primaryImage);
+            dto.setImageUrl(imageUrls.get(pid));
 
             // Ensure isFeatured true in DTO context
             dto.setIsFeatured(Boolean.TRUE);
@@ -221,23 +241,6 @@ public class FeaturedPropertyService {
         return out;
     }
 
-    private String resolvePrimaryImage(Long propertyId) {
-        try {
-            List<PropertyImage> images = propertyImageService.getImagesByPropertyId(propertyId);
-            if (images == null || images.isEmpty()) return null;
-
-            PropertyImage primary = images.stream()
-                    .filter(img -> Boolean.TRUE.equals(img.getIsPrimary()))
-                    .findFirst()
-                    .orElse(images.get(0));
-
-            return primary.getImageUrl();
-        } catch (Exception e) {
-            log.warn("Could not resolve primary image for property {}: {}", propertyId, e.getMessage());
-            return null;
-        }
-    }
-
     // ---------------------------------------------------------------------
     // ✅ NEW: Helper for safe BigDecimal to Double conversion
     // ---------------------------------------------------------------------
@@ -255,10 +258,10 @@ public class FeaturedPropertyService {
     // ---------------------------------------------------------------------
     // ✅ UPDATED: toDto
     // ---------------------------------------------------------------------
-    private FeaturedPropertyDTO toDto(Property p) {
+    private FeaturedPropertyDTO toDto(PropertyDTO p) {
         FeaturedPropertyDTO dto = new FeaturedPropertyDTO();
 
-        dto.setPropertyId(p.getId());
+        dto.setPropertyId(p.getPropertyId());
         dto.setTitle(nz(p.getTitle()));
         dto.setDescription(nz(p.getDescription()));
         dto.setListingType(nz(p.getListingType()));
@@ -285,28 +288,14 @@ public class FeaturedPropertyService {
         dto.setOwnerType(nz(p.getOwnerType()));
         dto.setCreatedAt(p.getCreatedAt());
 
-        String typeName = null;
-        if (p.getPropertyType() != null) {
-            typeName = p.getPropertyType().getTypeName();
-        }
-        if (typeName == null || typeName.isBlank()) {
-            typeName = p.getType();
-        }
-        dto.setPropertyType(typeName);
-        dto.setType(typeName);
-
-        if (p.getArea() != null) {
-            dto.setAreaName(nz(p.getArea().getAreaName()));
-            dto.setPincode(nz(p.getArea().getPincode()));
-            if (p.getArea().getCity() != null) {
-                dto.setCityName(nz(p.getArea().getCity().getCityName()));
-                dto.setState(nz(p.getArea().getCity().getState()));
-            } else {
-                dto.setCityName(nz(p.getCity()));
-            }
-        } else {
-            dto.setCityName(nz(p.getCity()));
-        }
+        // Projection already falls back to the legacy type/city columns
+        dto.setPropertyType(p.getPropertyType());
+        dto.setType(p.getPropertyType());
+
+        dto.setAreaName(nz(p.getAreaName()));
+        dto.setPincode(nz(p.getPincode()));
+        dto.setCityName(nz(p.getCityName()));
+        dto.setState(nz(p.getState()));
 
         if (p.getUser() != null) {
             FeaturedPropertyDTO.UserSummary us = new FeaturedPropertyDTO.UserSummary();
@@ -413,8 +402,10 @@ public class FeaturedPropertyService {
             property.setIsFeatured(true);
             propertyRepository.save(property);
             if (couponId != null) {
-                couponService.incrementUsageCount(couponId);
+                couponRedemptionService.redeem(couponId);
             }
+            expirySchedulerService.scheduleFeaturedExpiry(saved.getFeaturedUntil());
+            eventPublisher.publishEvent(new FeaturedChangedEvent(saved.getPropertyId()));
         }
 
         return buildFeaturedPropertyResponse(saved,
@@ -513,10 +504,12 @@ public class FeaturedPropertyService {
             propertyRepository.save(property);
         }
 
-        // Increment coupon usage if applicable
+        // Keep the coupon use reserved at order time
         if (saved.getCouponId() != null) {
-            couponService.incrementUsageCount(saved.getCouponId());
+            couponRedemptionService.confirm(featuredId, saved.getCouponId());
         }
+        expirySchedulerService.scheduleFeaturedExpiry(saved.getFeaturedUntil());
+        eventPublisher.publishEvent(new FeaturedChangedEvent(saved.getPropertyId()));
 
         return buildFeaturedPropertyResponse(saved, "Payment completed successfully!");
     }
@@ -535,6 +528,43 @@ public class FeaturedPropertyService {
 
         featured.setIsActive(false);
         featuredPropertyRepository.save(featured);
+        couponRedemptionService.release(featuredId);
+        eventPublisher.publishEvent(new FeaturedChangedEvent(featured.getPropertyId()));
+    }
+
+    // ---------------------------------------------------------------------
+    // ✅ Cancel an order that was never paid (PaymentReconciliationService)
+    // ---------------------------------------------------------------------
+    @Transactional
+    public void cancelUnpaidOrder(Long featuredId) {
+        FeaturedProperty featured = featuredPropertyRepository.findById(featuredId).orElse(null);
+        if (featured == null || featured.getPaymentStatus() != FeaturedProperty.PaymentStatus.PENDING) return;
+
+        featured.setIsActive(false);
+        featured.setPaymentStatus(FeaturedProperty.PaymentStatus.CANCELLED);
+        featuredPropertyRepository.save(featured);
+        if (featured.getCouponId() != null) {
+            couponRedemptionService.release(featuredId);
+        }
+    }
+
+    /**
+     * Close an order that was paid for a property deleted in the meantime: CANCELLED,
+     * with the payment id kept so the payment can be refunded
+     */
+    @Transactional
+    public void cancelPaidOrder(Long featuredId, String paymentId, String orderId) {
+        FeaturedProperty featured = featuredPropertyRepository.findById(featuredId).orElse(null);
+        if (featured == null || featured.getPaymentStatus() != FeaturedProperty.PaymentStatus.PENDING) return;
+
+        featured.setIsActive(false);
+        featured.setPaymentStatus(FeaturedProperty.PaymentStatus.CANCELLED);
+        featured.setPaymentId(paymentId);
+        featured.setOrderId(orderId);
+        featuredPropertyRepository.save(featured);
+        if (featured.getCouponId() != null) {
+            couponRedemptionService.release(featuredId);
+        }
     }
 
     // ---------------------------------------------------------------------
@@ -576,9 +606,13 @@ public class FeaturedPropertyService {
         List<FeaturedProperty> fps = featuredPropertyRepository.findByPropertyId(propertyId);
         if (fps == null || fps.isEmpty()) return;
         for (FeaturedProperty fp : fps) {
+            if (fp.getPaymentStatus() == FeaturedProperty.PaymentStatus.PENDING && fp.getCouponId() != null) {
+                couponRedemptionService.release(fp.getFeaturedId());
+            }
             fp.setIsActive(false);
             fp.setPaymentStatus(FeaturedProperty.PaymentStatus.CANCELLED);
         }
         featuredPropertyRepository.saveAll(fps);
+        eventPublisher.publishEvent(new FeaturedChangedEvent(propertyId));
     }
 }
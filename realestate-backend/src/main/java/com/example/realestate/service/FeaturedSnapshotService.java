@@ -0,0 +1,184 @@
+package com.example.realestate.service;
+
+import com.example.realestate.dto.ApiResponse;
+import com.example.realestate.dto.FeaturedPropertyDTO;
+import com.example.realestate.dto.PropertyDTO;
+import com.example.realestate.event.FeaturedChangedEvent;
+import com.example.realestate.event.PropertyChangedEvent;
+import com.example.realestate.repository.FeaturedPropertyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Pre-serialized featured lists for the homepage:
+ * - /api/featured-properties/active (FeaturedPropertyService.getActiveFeaturedProperties)
+ * - /api/properties/featured (PropertySearchService.getFeaturedProperties)
+ *
+ * Both bodies are kept as JSON bytes with a strong ETag, so serving them never
+ * touches the database or Jackson. The snapshot is rebuilt after featured or
+ * featured-property changes commit, when the next featured window starts or ends,
+ * and periodically as a safety net (e.g. primary image changes).
+ */
+@Service
+public class FeaturedSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeaturedSnapshotService.class);
+
+    private final FeaturedPropertyService featuredPropertyService;
+    private final PropertySearchService propertySearchService;
+    private final FeaturedPropertyRepository featuredPropertyRepository;
+    private final ObjectMapper objectMapper;
+    private final TaskScheduler taskScheduler;
+
+    private volatile Snapshot snapshot;
+    private ScheduledFuture<?> boundaryRebuild; // guarded by this
+
+    public FeaturedSnapshotService(FeaturedPropertyService featuredPropertyService,
+                                   PropertySearchService propertySearchService,
+                                   FeaturedPropertyRepository featuredPropertyRepository,
+                                   ObjectMapper objectMapper,
+                                   TaskScheduler taskScheduler) {
+        this.featuredPropertyService = featuredPropertyService;
+        this.propertySearchService = propertySearchService;
+        this.featuredPropertyRepository = featuredPropertyRepository;
+        this.objectMapper = objectMapper;
+        this.taskScheduler = taskScheduler;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${featured.snapshot.refresh-ms:300000}",
+            initialDelayString = "${featured.snapshot.refresh-ms:300000}")
+    public void periodicRefresh() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFeaturedChanged(FeaturedChangedEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Edits to a listing only matter when it is in the snapshot
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        Snapshot current = snapshot;
+        if (current == null || current.propertyIds.contains(event.getPropertyId())) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Current snapshot, or null if none could be built yet (callers fall back to the live query)
+     */
+    public Snapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * Recompute both lists and swap them in; on failure the previous snapshot stays
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<FeaturedPropertyDTO> active = featuredPropertyService.getActiveFeaturedProperties();
+            List<PropertyDTO> homepage = propertySearchService.getFeaturedProperties();
+
+            Set<Long> propertyIds = new HashSet<>();
+            active.forEach(dto -> propertyIds.add(dto.getPropertyId()));
+            homepage.forEach(dto -> propertyIds.add(dto.getPropertyId()));
+
+            // Same body shape FeaturedPropertyController.getActive has always returned
+            Map<String, Object> activeBody = new LinkedHashMap<>();
+            activeBody.put("success", true);
+            activeBody.put("message", "Success");
+            activeBody.put("data", active);
+
+            byte[] activeJson = objectMapper.writeValueAsBytes(activeBody);
+            byte[] homepageJson = objectMapper.writeValueAsBytes(ApiResponse.success(homepage));
+
+            snapshot = new Snapshot(activeJson, etag(activeJson), homepageJson, etag(homepageJson),
+                    propertyIds, now);
+            scheduleBoundaryRebuild(nextBoundary(now));
+
+            logger.info("Featured snapshot rebuilt: {} active, {} on homepage in {} ms",
+                    active.size(), homepage.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Featured snapshot rebuild failed, keeping previous snapshot: {}", e.getMessage(), e);
+        }
+    }
+
+    // ==================== INTERNALS ====================
+
+    // Earliest upcoming featured window start or end; the lists change at that instant
+    private LocalDateTime nextBoundary(LocalDateTime now) {
+        LocalDateTime next = null;
+        for (Object[] row : featuredPropertyRepository.findLiveWindows(now)) {
+            for (int i = 1; i <= 2; i++) {
+                LocalDateTime at = (LocalDateTime) row[i];
+                if (at != null && at.isAfter(now) && (next == null || at.isBefore(next))) next = at;
+            }
+        }
+        return next;
+    }
+
+    // Caller holds the lock
+    private void scheduleBoundaryRebuild(LocalDateTime at) {
+        if (boundaryRebuild != null) boundaryRebuild.cancel(false);
+        boundaryRebuild = at == null ? null
+                : taskScheduler.schedule(this::rebuild, at.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static String etag(byte[] body) throws NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+    }
+
+    /**
+     * Immutable serialized featured lists
+     */
+    public static class Snapshot {
+        private final byte[] activeJson;
+        private final String activeEtag;
+        private final byte[] homepageJson;
+        private final String homepageEtag;
+        private final Set<Long> propertyIds;
+        private final LocalDateTime builtAt;
+
+        Snapshot(byte[] activeJson, String activeEtag, byte[] homepageJson, String homepageEtag,
+                 Set<Long> propertyIds, LocalDateTime builtAt) {
+            this.activeJson = activeJson;
+            this.activeEtag = activeEtag;
+            this.homepageJson = homepageJson;
+            this.homepageEtag = homepageEtag;
+            this.propertyIds = Set.copyOf(propertyIds);
+            this.builtAt = builtAt;
+        }
+
+        public byte[] getActiveJson() { return activeJson; }
+        public String getActiveEtag() { return activeEtag; }
+        public byte[] getHomepageJson() { return homepageJson; }
+        public String getHomepageEtag() { return homepageEtag; }
+        public LocalDateTime getBuiltAt() { return builtAt; }
+    }
+}
@@ -0,0 +1,425 @@
+package com.example.realestate.service;
+
+import com.example.realestate.model.PropertyImage;
+import com.example.realestate.repository.PropertyImageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Makes thumbnail, card and detail sized copies of uploaded property images.
+ *
+ * UploadController submits each image once the BlobStore has it. A small fixed pool downloads
+ * the original, decodes it with ImageIO (metadata is never read, so EXIF/GPS is
+ * dropped; the EXIF orientation is applied to the pixels first), scales it down and
+ * stores each size as a baseline JPEG under variants/ next to the original. The
+ * urls are written to every PropertyImage row pointing at the original; if the row
+ * doesn't exist yet they are kept in memory for PropertyImageService to pick up.
+ *
+ * The queue is bounded: when it is full the image is skipped, and the backfill
+ * sweep submits it again later from its still-PENDING row. That sweep also covers
+ * restarts and images stored before this pipeline existed. Images that can't be
+ * decoded, or aren't in our bucket, are marked FAILED and keep their original url.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private static final int RECENT_RESULTS = 1_000;
+    private static final int BACKFILL_BATCH = 50;
+    private static final List<String> SIZES = List.of("thumb", "card", "detail");
+
+    private final BlobStore blobStore;
+    private final PropertyImageRepository propertyImageRepository;
+    private final PrimaryImageResolver primaryImageResolver;
+
+    // Original keys queued or being processed, so the backfill doesn't double-submit
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Original url -> variants, for rows saved after their image was processed
+    private final Map<String, Variants> recent = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Variants> eldest) {
+                    return size() > RECENT_RESULTS;
+                }
+            });
+
+    private ThreadPoolExecutor pool;
+
+    @Value("${images.variants.workers:2}")
+    private int workers;
+
+    @Value("${images.variants.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${images.variants.thumbnail-px:320}")
+    private int thumbnailPx;
+
+    @Value("${images.variants.card-px:640}")
+    private int cardPx;
+
+    @Value("${images.variants.detail-px:1600}")
+    private int detailPx;
+
+    @Value("${images.variants.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    // A decoded image costs 4 bytes per pixel; refuse anything bigger than this
+    @Value("${images.variants.max-pixels:50000000}")
+    private long maxPixels;
+
+    @Value("${images.variants.backfill-min-age-minutes:2}")
+    private long backfillMinAgeMinutes;
+
+    public ImageVariantService(BlobStore blobStore,
+                               PropertyImageRepository propertyImageRepository,
+                               PrimaryImageResolver primaryImageResolver) {
+        this.blobStore = blobStore;
+        this.propertyImageRepository = propertyImageRepository;
+        this.primaryImageResolver = primaryImageResolver;
+    }
+
+    @PostConstruct
+    public void startPool() {
+        int threads = Math.max(1, workers);
+        pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                    Thread t = new Thread(r, "image-variants");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Anything still queued stays PENDING and is picked up by the backfill
+        pool.shutdownNow();
+    }
+
+    /**
+     * Queue an uploaded image for resizing; returns immediately
+     */
+    public void submit(String originalKey) {
+        if (originalKey == null || !inFlight.add(originalKey)) return;
+        try {
+            pool.execute(() -> {
+                try {
+                    process(originalKey);
+                } finally {
+                    inFlight.remove(originalKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(originalKey);
+            logger.warn("Image variant queue full, {} left for the backfill", originalKey);
+        }
+    }
+
+    /**
+     * Copy variants that were made before this row existed onto it
+     */
+    public void applyKnownVariants(PropertyImage image) {
+        Variants variants = recent.get(image.getImageUrl());
+        if (variants == null) {
+            // A deduplicated upload: another row may already show the same file
+            variants = propertyImageRepository
+                    .findFirstByImageUrlAndVariantStatus(image.getImageUrl(), PropertyImage.VariantStatus.READY)
+                    .map(other -> new Variants(other.getThumbnailUrl(), other.getCardUrl(), other.getDetailUrl()))
+                    .orElse(null);
+            if (variants == null) return;
+        }
+        image.setThumbnailUrl(variants.thumbnailUrl);
+        image.setCardUrl(variants.cardUrl);
+        image.setDetailUrl(variants.detailUrl);
+        image.setVariantStatus(PropertyImage.VariantStatus.READY);
+    }
+
+    /**
+     * Remove the stored variants of an original that is being deleted
+     */
+    public void deleteVariants(String originalKey) {
+        recent.remove(blobStore.urlFor(originalKey));
+        for (String size : SIZES) {
+            blobStore.delete(variantKey(originalKey, size))
+                    .exceptionally(e -> {
+                        logger.warn("Could not delete {} variant of {}: {}", size, originalKey, e.getMessage());
+                        return null;
+                    });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${images.variants.backfill-ms:300000}",
+            initialDelayString = "${images.variants.backfill-initial-delay-ms:120000}")
+    public void backfill() {
+        LocalDateTime before = LocalDateTime.now().minusMinutes(backfillMinAgeMinutes);
+        List<String> urls = propertyImageRepository.findPendingVariantUrls(before, PageRequest.of(0, BACKFILL_BATCH));
+        for (String url : urls) {
+            String key = blobStore.keyFor(url);
+            if (key == null) {
+                propertyImageRepository.markVariantsFailed(url); // external link, nothing to resize
+            } else {
+                submit(key);
+            }
+        }
+        if (!urls.isEmpty()) logger.info("🖼️ Image variant backfill queued {} images", urls.size());
+    }
+
+    // ==================== PIPELINE ====================
+
+    private void process(String originalKey) {
+        String originalUrl = blobStore.urlFor(originalKey);
+        long start = System.currentTimeMillis();
+
+        byte[] original;
+        try {
+            original = blobStore.download(originalKey).join();
+        } catch (CompletionException e) {
+            // Transient or the object is gone; the row stays PENDING for the next backfill
+            logger.warn("Could not download {} for resizing: {}", originalKey, e.getCause().getMessage());
+            return;
+        }
+
+        BufferedImage source;
+        try {
+            source = decode(original);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("❌ Cannot make variants of {}: {}", originalKey, e.getMessage());
+            propertyImageRepository.markVariantsFailed(originalUrl);
+            return;
+        }
+
+        try {
+            Variants variants = new Variants(
+                    store(originalKey, "thumb", resize(source, thumbnailPx)),
+                    store(originalKey, "card", resize(source, cardPx)),
+                    store(originalKey, "detail", resize(source, detailPx)));
+
+            recent.put(originalUrl, variants);
+            propertyImageRepository.recordVariants(originalUrl, variants.thumbnailUrl, variants.cardUrl, variants.detailUrl);
+            propertyImageRepository.findPropertyIdsByImageUrl(originalUrl).forEach(primaryImageResolver::invalidate);
+
+            logger.info("✅ Variants of {} ({}x{}, {} KB) ready in {} ms", originalKey,
+                    source.getWidth(), source.getHeight(), original.length / 1024, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.warn("Storing variants of {} failed, will retry: {}", originalKey, e.getMessage());
+        }
+    }
+
+    private String store(String originalKey, String size, BufferedImage image) throws IOException {
+        byte[] jpeg = encodeJpeg(image);
+        return blobStore.uploadStream(variantKey(originalKey, size), new ByteArrayInputStream(jpeg), jpeg.length, "image/jpeg")
+                .join()
+                .getUrl();
+    }
+
+    // properties/1/images/x.png -> properties/1/images/variants/x_card.jpg
+    private static String variantKey(String originalKey, String size) {
+        int slash = originalKey.lastIndexOf('/');
+        String dir = originalKey.substring(0, slash + 1);
+        String name = originalKey.substring(slash + 1);
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) name = name.substring(0, dot);
+        return dir + "variants/" + name + "_" + size + ".jpg";
+    }
+
+    private BufferedImage decode(byte[] bytes) throws IOException {
+        int orientation = ExifOrientation.read(bytes);
+
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) throw new IllegalArgumentException("Unsupported image format");
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true); // ignoreMetadata: EXIF is never parsed
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new IllegalArgumentException(String.format("Image is %dx%d, over the %d pixel limit",
+                            reader.getWidth(0), reader.getHeight(0), maxPixels));
+                }
+                return orient(toRgb(reader.read(0)), orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Flattens alpha/palette/grey images onto white so they encode as JPEG
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) return image;
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    // EXIF orientations 2-8 -> upright pixels
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation < 2 || orientation > 8) return image;
+
+        int w = image.getWidth();
+        int h = image.getHeight();
+        boolean swap = orientation >= 5;
+        AffineTransform t = new AffineTransform();
+        switch (orientation) {
+            case 2: t.translate(w, 0); t.scale(-1, 1); break;
+            case 3: t.translate(w, h); t.rotate(Math.PI); break;
+            case 4: t.translate(0, h); t.scale(1, -1); break;
+            case 5: t.rotate(Math.PI / 2); t.scale(1, -1); break;
+            case 6: t.translate(h, 0); t.rotate(Math.PI / 2); break;
+            case 7: t.scale(-1, 1); t.translate(-h, 0); t.translate(0, w); t.rotate(-Math.PI / 2); break;
+            case 8: t.translate(0, w); t.rotate(-Math.PI / 2); break;
+            default: break;
+        }
+
+        BufferedImage out = new BufferedImage(swap ? h : w, swap ? w : h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.drawImage(image, t, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    /**
+     * Scale so the longer edge is at most maxEdge, halving step by step so the
+     * bilinear filter doesn't alias on big reductions. Never scales up.
+     */
+    private static BufferedImage resize(BufferedImage source, int maxEdge) {
+        int w = source.getWidth();
+        int h = source.getHeight();
+        double scale = Math.min(1.0, (double) maxEdge / Math.max(w, h));
+        int targetW = Math.max(1, (int) Math.round(w * scale));
+        int targetH = Math.max(1, (int) Math.round(h * scale));
+
+        BufferedImage current = source;
+        do {
+            int nextW = Math.max(targetW, current.getWidth() / 2);
+            int nextH = Math.max(targetH, current.getHeight() / 2);
+            if (nextW == current.getWidth() && nextH == current.getHeight()) break;
+
+            BufferedImage next = new BufferedImage(nextW, nextH, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, nextW, nextH, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (current.getWidth() != targetW || current.getHeight() != targetH);
+        return current;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param); // no metadata written
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static final class Variants {
+        final String thumbnailUrl;
+        final String cardUrl;
+        final String detailUrl;
+
+        Variants(String thumbnailUrl, String cardUrl, String detailUrl) {
+            this.thumbnailUrl = thumbnailUrl;
+            this.cardUrl = cardUrl;
+            this.detailUrl = detailUrl;
+        }
+    }
+
+    /**
+     * Reads the orientation tag (0x0112) from a JPEG's APP1 Exif segment; 1 if absent
+     */
+    static final class ExifOrientation {
+
+        private ExifOrientation() {}
+
+        static int read(byte[] b) {
+            try {
+                if (b.length < 4 || (b[0] & 0xFF) != 0xFF || (b[1] & 0xFF) != 0xD8) return 1; // not a JPEG
+                int pos = 2;
+                while (pos + 4 <= b.length && (b[pos] & 0xFF) == 0xFF) {
+                    int marker = b[pos + 1] & 0xFF;
+                    int length = ((b[pos + 2] & 0xFF) << 8) | (b[pos + 3] & 0xFF);
+                    if (marker == 0xDA || marker == 0xD9) return 1; // image data reached
+                    if (marker == 0xE1 && length >= 8 && pos + 10 <= b.length
+                            && b[pos + 4] == 'E' && b[pos + 5] == 'x' && b[pos + 6] == 'i' && b[pos + 7] == 'f') {
+                        return fromTiff(b, pos + 10, Math.min(b.length, pos + 2 + length));
+                    }
+                    pos += 2 + length;
+                }
+            } catch (RuntimeException ignored) {
+                // malformed segment: treat as upright
+            }
+            return 1;
+        }
+
+        private static int fromTiff(byte[] b, int tiff, int end) {
+            boolean little = b[tiff] == 'I';
+            int ifd = tiff + u32(b, tiff + 4, little);
+            int entries = u16(b, ifd, little);
+            for (int i = 0; i < entries; i++) {
+                int entry = ifd + 2 + i * 12;
+                if (entry + 12 > end) break;
+                if (u16(b, entry, little) == 0x0112) return u16(b, entry + 8, little);
+            }
+            return 1;
+        }
+
+        private static int u16(byte[] b, int at, boolean little) {
+            int b0 = b[at] & 0xFF, b1 = b[at + 1] & 0xFF;
+            return little ? (b1 << 8) | b0 : (b0 << 8) | b1;
+        }
+
+        private static int u32(byte[] b, int at, boolean little) {
+            return little
+                    ? (u16(b, at + 2, true) << 16) | u16(b, at, true)
+                    : (u16(b, at, false) << 16) | u16(b, at + 2, false);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.realestate.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.security.DigestInputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * BlobStore on the local filesystem (storage.backend=local), for dev, test,
+ * performance and on-prem setups without AWS. Objects live under
+ * storage.local.root at their key and are served by LocalFileController at
+ * storage.local.base-url, which supports Range and ETag.
+ *
+ * Writes go to a temp file in the target directory and are moved into place, so a
+ * reader never sees half an object. The content type is kept in a user xattr where
+ * the filesystem has them, otherwise it is guessed from the extension. Presigned
+ * urls are HMAC-signed with storage.local.signing-secret (random per start if
+ * unset). Deal documents (keys with a deals/ segment) are only served with a valid
+ * GET signature; everything else is public, as with public-read on S3.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalBlobStore implements BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalBlobStore.class);
+
+    private static final String CONTENT_TYPE_ATTR = "blob.content-type";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private final Path root;
+    private final String baseUrl;
+    private final byte[] signingKey;
+    private final ExecutorService io;
+
+    public LocalBlobStore(@Value("${storage.local.root:./data/blobs}") String root,
+                          @Value("${storage.local.base-url:http://localhost:8080/api/files}") String baseUrl,
+                          @Value("${storage.local.signing-secret:}") String signingSecret,
+                          @Value("${storage.local.io-threads:4}") int ioThreads) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.baseUrl = baseUrl.replaceAll("/+$", "");
+        Files.createDirectories(this.root);
+
+        if (signingSecret.isBlank()) {
+            this.signingKey = new byte[32];
+            new SecureRandom().nextBytes(this.signingKey);
+            logger.warn("storage.local.signing-secret not set, presigned urls won't survive a restart");
+        } else {
+            this.signingKey = signingSecret.getBytes(StandardCharsets.UTF_8);
+        }
+
+        this.io = Executors.newFixedThreadPool(Math.max(1, ioThreads), r -> {
+            Thread t = new Thread(r, "local-blob-io");
+            t.setDaemon(true);
+            return t;
+        });
+
+        logger.info("✅ LocalBlobStore initialized - Root: {}, Base URL: {}", this.root, this.baseUrl);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        io.shutdown();
+    }
+
+    @Override
+    public CompletableFuture<UploadResult> uploadStream(String key, InputStream in, long contentLength, String contentType) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return write(key, in, contentLength, contentType);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
+    }
+
+    /**
+     * Store exactly contentLength bytes from in under key (in is closed)
+     */
+    public UploadResult write(String key, InputStream in, long contentLength, String contentType) throws IOException {
+        long start = System.currentTimeMillis();
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+
+        MessageDigest digest = sha256();
+        long count;
+        try (InputStream source = new DigestInputStream(in, digest);
+             OutputStream out = Files.newOutputStream(tmp)) {
+            count = source.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        if (count != contentLength) {
+            Files.deleteIfExists(tmp);
+            throw new IllegalStateException(String.format("Size mismatch: expected %d bytes, read %d", contentLength, count));
+        }
+
+        writeContentType(tmp, contentType);
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        String url = urlFor(key);
+        logger.info("✅ File stored in {} ms - {} ({} bytes)", System.currentTimeMillis() - start, key, count);
+        return new UploadResult(key, url, count, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> download(String key) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return Files.readAllBytes(resolve(key));
+            } catch (NoSuchFileException e) {
+                throw new NotFoundException(key);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String key) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                if (Files.deleteIfExists(resolve(key))) logger.info("🗑️ Deleted local object {}", key);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
+    }
+
+    @Override
+    public CompletableFuture<ObjectInfo> stat(String key) {
+        try {
+            Path file = resolve(key);
+            if (!Files.isRegularFile(file)) return CompletableFuture.failedFuture(new NotFoundException(key));
+            return CompletableFuture.completedFuture(new ObjectInfo(Files.size(file), contentTypeOf(file)));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new CompletionException(e));
+        }
+    }
+
+    // The object's visibility follows its key here (see isPrivate), so publicRead is not needed
+    @Override
+    public PresignedRequest presignPut(String key, String contentType, long contentLength,
+                                       boolean publicRead, Duration ttl) {
+        Instant expiresAt = Instant.now().plus(ttl);
+        String signature = sign("PUT", key, contentType, String.valueOf(contentLength), String.valueOf(expiresAt.getEpochSecond()));
+        String url = urlFor(key) + "?expires=" + expiresAt.getEpochSecond() + "&signature=" + signature;
+        return new PresignedRequest(key, url, "PUT", Map.of("Content-Type", contentType), expiresAt);
+    }
+
+    @Override
+    public PresignedRequest presignGet(String key, String downloadName, Duration ttl) {
+        Instant expiresAt = Instant.now().plus(ttl);
+        String signature = sign("GET", key, String.valueOf(expiresAt.getEpochSecond()));
+        String url = urlFor(key) + "?expires=" + expiresAt.getEpochSecond() + "&signature=" + signature;
+        return new PresignedRequest(key, url, "GET", Map.of(), expiresAt);
+    }
+
+    @Override
+    public String urlFor(String key) {
+        return baseUrl + "/" + key;
+    }
+
+    // ==================== USED BY LocalFileController ====================
+
+    /**
+     * The file behind key; IllegalArgumentException if the key would leave the root
+     */
+    public Path resolve(String key) {
+        if (key == null || key.isEmpty()) throw new IllegalArgumentException("Empty key");
+        Path file = root.resolve(key).normalize();
+        if (!file.startsWith(root) || file.equals(root)) throw new IllegalArgumentException("Key outside storage root: " + key);
+        return file;
+    }
+
+    public boolean isPrivate(String key) {
+        return key.contains("/deals/");
+    }
+
+    public boolean verifyPut(String key, String contentType, long contentLength, long expires, String signature) {
+        return verify(expires, signature, "PUT", key, contentType, String.valueOf(contentLength), String.valueOf(expires));
+    }
+
+    public boolean verifyGet(String key, long expires, String signature) {
+        return verify(expires, signature, "GET", key, String.valueOf(expires));
+    }
+
+    public String contentTypeOf(Path file) {
+        try {
+            UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+            if (view != null && view.list().contains(CONTENT_TYPE_ATTR)) {
+                ByteBuffer buffer = ByteBuffer.allocate(view.size(CONTENT_TYPE_ATTR));
+                view.read(CONTENT_TYPE_ATTR, buffer);
+                return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+            }
+        } catch (IOException | UnsupportedOperationException ignored) {
+            // no xattrs here: fall back to the extension
+        }
+        String guessed = URLConnection.guessContentTypeFromName(file.getFileName().toString());
+        return guessed != null ? guessed : DEFAULT_CONTENT_TYPE;
+    }
+
+    // ==================== INTERNALS ====================
+
+    private void writeContentType(Path file, String contentType) {
+        if (contentType == null) return;
+        try {
+            UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+            if (view != null) view.write(CONTENT_TYPE_ATTR, StandardCharsets.UTF_8.encode(contentType));
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.debug("Cannot store content type of {} as xattr: {}", file, e.getMessage());
+        }
+    }
+
+    private boolean verify(long expires, String signature, String... parts) {
+        if (signature == null || Instant.now().getEpochSecond() > expires) return false;
+        return MessageDigest.isEqual(sign(parts).getBytes(StandardCharsets.UTF_8),
+                signature.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String sign(String... parts) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(signingKey, "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(String.join("\n", parts).getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
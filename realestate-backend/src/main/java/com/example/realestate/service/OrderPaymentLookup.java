@@ -0,0 +1,18 @@
+package com.example.realestate.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Payment attempts of a Razorpay order, as used by PaymentReconciliationService.
+ * RazorpayService is the real implementation; StubOrderPaymentLookup replaces it
+ * locally (payments.reconcile.stub=true).
+ */
+public interface OrderPaymentLookup {
+
+    /**
+     * Every payment attempt of the order, each with at least "id" and "status"
+     * (created / authorized / captured / refunded / failed)
+     */
+    List<Map<String, Object>> fetchOrderPayments(String orderId);
+}
@@ -0,0 +1,321 @@
+package com.example.realestate.service;
+
+import com.example.realestate.model.BrokerSubscription;
+import com.example.realestate.model.FeaturedProperty;
+import com.example.realestate.model.Property;
+import com.example.realestate.repository.BrokerSubscriptionRepository;
+import com.example.realestate.repository.FeaturedPropertyRepository;
+import com.example.realestate.repository.PropertyRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Settles featured orders and broker subscriptions left PENDING because the client
+ * never called verify-payment.
+ *
+ * Each run walks the pending rows of both kinds by keyset (id > last id), a page at
+ * a time, skipping rows younger than payments.reconcile.min-age-minutes so it does
+ * not race the normal verify call. The payment attempts of each page's orders are
+ * fetched from Razorpay in parallel (at most payments.reconcile.parallelism calls in
+ * flight). A captured payment activates the row; an order with no payment in
+ * progress that is older than payments.reconcile.abandon-after-hours is cancelled.
+ * A page's outcomes are applied in one transaction; if that fails they are retried
+ * one by one so a single bad row doesn't hold back the rest. A featured order paid
+ * for a property that has since been deleted can't be activated: it is cancelled
+ * with its payment id kept and logged as needing a refund.
+ */
+@Service
+public class PaymentReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReconciliationService.class);
+
+    private static final long FETCH_TIMEOUT_SECONDS = 30;
+
+    private final FeaturedPropertyRepository featuredPropertyRepository;
+    private final BrokerSubscriptionRepository subscriptionRepository;
+    private final PropertyRepository propertyRepository;
+    private final FeaturedPropertyService featuredPropertyService;
+    private final BrokerSubscriptionService subscriptionService;
+    private final OrderPaymentLookup paymentLookup;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private ExecutorService fetchPool;
+
+    // Totals since startup
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong activated = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong refundsNeeded = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+    private volatile long lastRunMs;
+    private volatile long lastRunChecked;
+
+    @Value("${payments.reconcile.page-size:50}")
+    private int pageSize;
+
+    @Value("${payments.reconcile.parallelism:4}")
+    private int parallelism;
+
+    @Value("${payments.reconcile.min-age-minutes:15}")
+    private long minAgeMinutes;
+
+    @Value("${payments.reconcile.abandon-after-hours:24}")
+    private long abandonAfterHours;
+
+    public PaymentReconciliationService(FeaturedPropertyRepository featuredPropertyRepository,
+                                        BrokerSubscriptionRepository subscriptionRepository,
+                                        PropertyRepository propertyRepository,
+                                        FeaturedPropertyService featuredPropertyService,
+                                        BrokerSubscriptionService subscriptionService,
+                                        OrderPaymentLookup paymentLookup,
+                                        PlatformTransactionManager transactionManager) {
+        this.featuredPropertyRepository = featuredPropertyRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.propertyRepository = propertyRepository;
+        this.featuredPropertyService = featuredPropertyService;
+        this.subscriptionService = subscriptionService;
+        this.paymentLookup = paymentLookup;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void startPool() {
+        fetchPool = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread t = new Thread(r, "payment-reconcile");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetchPool.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${payments.reconcile.interval-ms:300000}",
+            initialDelayString = "${payments.reconcile.initial-delay-ms:60000}")
+    public void scheduledRun() {
+        runOnce();
+    }
+
+    /**
+     * Run one reconciliation pass now; returns false if a pass is already running
+     */
+    public boolean runOnce() {
+        if (!running.compareAndSet(false, true)) return false;
+
+        long start = System.currentTimeMillis();
+        long checkedBefore = checked.get();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime olderThan = now.minusMinutes(minAgeMinutes);
+            LocalDateTime abandonBefore = now.minusHours(abandonAfterHours);
+
+            reconcile(afterId -> featuredPropertyRepository.findPendingAfter(afterId, olderThan, PageRequest.of(0, pageSize)),
+                    FeaturedProperty::getFeaturedId, FeaturedProperty::getOrderId, FeaturedProperty::getCreatedAt,
+                    abandonBefore, this::applyFeatured);
+
+            reconcile(afterId -> subscriptionRepository.findPendingAfter(afterId, olderThan, PageRequest.of(0, pageSize)),
+                    BrokerSubscription::getId, BrokerSubscription::getRazorpayOrderId, BrokerSubscription::getCreatedAt,
+                    abandonBefore, this::applySubscription);
+
+        } catch (Exception e) {
+            errors.incrementAndGet();
+            logger.error("Payment reconciliation run failed: {}", e.getMessage(), e);
+        } finally {
+            runs.incrementAndGet();
+            lastRunAt = LocalDateTime.now();
+            lastRunMs = System.currentTimeMillis() - start;
+            lastRunChecked = checked.get() - checkedBefore;
+            running.set(false);
+        }
+
+        if (lastRunChecked > 0) {
+            logger.info("💳 Payment reconciliation checked {} pending orders in {} ms", lastRunChecked, lastRunMs);
+        }
+        return true;
+    }
+
+    /**
+     * Throughput and lag of the reconciliation job
+     */
+    public Map<String, Object> getStats() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running.get());
+        stats.put("runs", runs.get());
+        stats.put("checked", checked.get());
+        stats.put("activated", activated.get());
+        stats.put("cancelled", cancelled.get());
+        stats.put("refundsNeeded", refundsNeeded.get());
+        stats.put("errors", errors.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunMs", lastRunMs);
+        stats.put("lastRunChecked", lastRunChecked);
+        stats.put("lastRunOrdersPerSecond", lastRunMs > 0 ? lastRunChecked * 1000.0 / lastRunMs : 0.0);
+        // Lag: how long the oldest order has been waiting to be settled
+        stats.put("oldestPendingFeaturedSeconds", ageSeconds(featuredPropertyRepository.findOldestPendingCreatedAt(), now));
+        stats.put("oldestPendingSubscriptionSeconds", ageSeconds(subscriptionRepository.findOldestPendingCreatedAt(), now));
+        return stats;
+    }
+
+    // ==================== INTERNALS ====================
+
+    private <T> void reconcile(Function<Long, List<T>> nextPage,
+                               Function<T, Long> idOf,
+                               Function<T, String> orderIdOf,
+                               Function<T, LocalDateTime> createdAtOf,
+                               LocalDateTime abandonBefore,
+                               Consumer<Outcome> apply) throws InterruptedException {
+        long afterId = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<T> page = nextPage.apply(afterId);
+            if (page.isEmpty()) return;
+            afterId = idOf.apply(page.get(page.size() - 1));
+
+            List<Future<List<Map<String, Object>>>> fetches = new ArrayList<>(page.size());
+            for (T row : page) {
+                String orderId = orderIdOf.apply(row);
+                fetches.add(fetchPool.submit(() -> paymentLookup.fetchOrderPayments(orderId)));
+            }
+
+            List<Outcome> outcomes = new ArrayList<>();
+            for (int i = 0; i < page.size(); i++) {
+                T row = page.get(i);
+                Future<List<Map<String, Object>>> fetch = fetches.get(i);
+                checked.incrementAndGet();
+                try {
+                    List<Map<String, Object>> payments = fetch.get(FETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    Outcome outcome = decide(idOf.apply(row), orderIdOf.apply(row), createdAtOf.apply(row),
+                            payments, abandonBefore);
+                    if (outcome != null) outcomes.add(outcome);
+                } catch (ExecutionException | TimeoutException e) {
+                    fetch.cancel(true);
+                    errors.incrementAndGet();
+                    logger.warn("Could not fetch payments for order {}: {}", orderIdOf.apply(row), e.getMessage());
+                }
+            }
+
+            applyAll(outcomes, apply);
+            if (page.size() < pageSize) return;
+        }
+    }
+
+    // Null when the order should be left alone for now
+    private static Outcome decide(Long rowId, String orderId, LocalDateTime createdAt,
+                                  List<Map<String, Object>> payments, LocalDateTime abandonBefore) {
+        boolean inProgress = false;
+        for (Map<String, Object> payment : payments) {
+            String status = String.valueOf(payment.get("status"));
+            if ("captured".equals(status)) return new Outcome(rowId, orderId, String.valueOf(payment.get("id")), null);
+            if ("created".equals(status) || "authorized".equals(status)) inProgress = true;
+        }
+
+        if (inProgress || createdAt == null || !createdAt.isBefore(abandonBefore)) return null;
+        return new Outcome(rowId, orderId, null, payments.isEmpty() ? "No payment received" : "All payment attempts failed");
+    }
+
+    private void applyAll(List<Outcome> outcomes, Consumer<Outcome> apply) {
+        if (outcomes.isEmpty()) return;
+        try {
+            transactionTemplate.executeWithoutResult(status -> outcomes.forEach(apply));
+            outcomes.forEach(this::count);
+        } catch (Exception batchFailure) {
+            logger.warn("Reconciliation batch of {} failed ({}), applying one by one",
+                    outcomes.size(), batchFailure.getMessage());
+            for (Outcome outcome : outcomes) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> apply.accept(outcome));
+                    count(outcome);
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                    logger.error("❌ Could not reconcile order {}: {}", outcome.orderId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void applyFeatured(Outcome outcome) {
+        FeaturedProperty featured = featuredPropertyRepository.findById(outcome.rowId).orElse(null);
+        if (featured == null || featured.getPaymentStatus() != FeaturedProperty.PaymentStatus.PENDING) return;
+
+        if (outcome.isPaid() && !propertyIsActive(featured.getPropertyId())) {
+            // completePayment would throw (and roll back) on every run
+            featuredPropertyService.cancelPaidOrder(outcome.rowId, outcome.paymentId, outcome.orderId);
+            outcome.refundNeeded = true;
+            logger.error("💸 Featured order {} was paid (payment {}) but property {} is deleted: cancelled, refund needed",
+                    outcome.orderId, outcome.paymentId, featured.getPropertyId());
+        } else if (outcome.isPaid()) {
+            featuredPropertyService.completePayment(outcome.rowId, outcome.paymentId, outcome.orderId);
+            logger.info("✅ Featured order {} activated by reconciliation", outcome.orderId);
+        } else {
+            featuredPropertyService.cancelUnpaidOrder(outcome.rowId);
+            logger.info("Featured order {} cancelled by reconciliation: {}", outcome.orderId, outcome.failureReason);
+        }
+    }
+
+    private boolean propertyIsActive(Long propertyId) {
+        return propertyRepository.findById(propertyId).map(Property::getIsActive).filter(Boolean.TRUE::equals).isPresent();
+    }
+
+    private void applySubscription(Outcome outcome) {
+        if (outcome.isPaid()) {
+            subscriptionService.activatePaidSubscription(outcome.orderId, outcome.paymentId);
+            logger.info("✅ Subscription order {} activated by reconciliation", outcome.orderId);
+        } else {
+            subscriptionService.handlePaymentFailure(outcome.orderId, outcome.failureReason);
+        }
+    }
+
+    private void count(Outcome outcome) {
+        if (outcome.refundNeeded) refundsNeeded.incrementAndGet();
+        else if (outcome.isPaid()) activated.incrementAndGet();
+        else cancelled.incrementAndGet();
+    }
+
+    private static Long ageSeconds(LocalDateTime since, LocalDateTime now) {
+        return since != null ? Duration.between(since, now).getSeconds() : null;
+    }
+
+    /**
+     * What to do with one pending row: activate with paymentId, or cancel with failureReason
+     */
+    private static final class Outcome {
+        final Long rowId;
+        final String orderId;
+        final String paymentId;
+        final String failureReason;
+        boolean refundNeeded; // paid, but nothing left to activate
+
+        Outcome(Long rowId, String orderId, String paymentId, String failureReason) {
+            this.rowId = rowId;
+            this.orderId = orderId;
+            this.paymentId = paymentId;
+            this.failureReason = failureReason;
+        }
+
+        boolean isPaid() {
+            return paymentId != null;
+        }
+    }
+}
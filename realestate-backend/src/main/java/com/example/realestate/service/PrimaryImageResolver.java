@@ -0,0 +1,139 @@
+package com.example.realestate.service;
+
+import com.example.realestate.dto.PropertyDTO;
+import com.example.realestate.repository.PropertyImageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the primary image url for many properties with one grouped query
+ * instead of one findByPropertyId per row. The url is the card-size variant once
+ * ImageVariantService has made it, the original upload until then.
+ *
+ * Results (including "no image") are kept in a bounded LRU cache which
+ * PropertyImageService invalidates whenever a property's images change.
+ */
+@Service
+public class PrimaryImageResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrimaryImageResolver.class);
+
+    private static final int MAX_CACHED_PROPERTIES = 20_000;
+    private static final int MAX_IDS_PER_QUERY = 1_000;
+    private static final String NO_IMAGE = "";
+
+    private final PropertyImageRepository propertyImageRepository;
+
+    // propertyId -> primary image url, NO_IMAGE when the property has none
+    private final Map<Long, String> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                    return size() > MAX_CACHED_PROPERTIES;
+                }
+            });
+
+    public PrimaryImageResolver(PropertyImageRepository propertyImageRepository) {
+        this.propertyImageRepository = propertyImageRepository;
+    }
+
+    /**
+     * Primary image url of a single property, or null if it has no images
+     */
+    public String resolve(Long propertyId) {
+        if (propertyId == null) return null;
+        return resolve(List.of(propertyId)).get(propertyId);
+    }
+
+    /**
+     * Primary image url per property id; properties without images are absent from the map
+     */
+    public Map<Long, String> resolve(Collection<Long> propertyIds) {
+        Map<Long, String> out = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+
+        for (Long id : new LinkedHashSet<>(propertyIds)) {
+            if (id == null) continue;
+            String cached = cache.get(id);
+            if (cached == null) {
+                misses.add(id);
+            } else if (!NO_IMAGE.equals(cached)) {
+                out.put(id, cached);
+            }
+        }
+
+        for (int from = 0; from < misses.size(); from += MAX_IDS_PER_QUERY) {
+            List<Long> batch = misses.subList(from, Math.min(from + MAX_IDS_PER_QUERY, misses.size()));
+            Map<Long, String> loaded = load(batch);
+            if (loaded == null) continue; // lookup failed: fall back to property.imageUrl, don't cache
+
+            for (Long id : batch) {
+                String url = loaded.get(id);
+                cache.put(id, url != null ? url : NO_IMAGE);
+                if (url != null) out.put(id, url);
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Put the primary image on each listing row in one batched lookup; rows whose
+     * property has no images keep the projected property.imageUrl. Returns dtos.
+     */
+    public List<PropertyDTO> applyTo(List<PropertyDTO> dtos) {
+        Map<Long, String> imageUrls = resolve(
+                dtos.stream().map(PropertyDTO::getPropertyId).collect(Collectors.toList()));
+
+        for (PropertyDTO dto : dtos) {
+            String url = imageUrls.get(dto.getPropertyId());
+            if (url != null) dto.setImageUrl(url);
+        }
+        return dtos;
+    }
+
+    /**
+     * Drop the cached entry now and again once the surrounding transaction commits,
+     * so a concurrent reader can't re-cache the pre-commit image.
+     */
+    public void invalidate(Long propertyId) {
+        if (propertyId == null) return;
+        cache.remove(propertyId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.remove(propertyId);
+                }
+            });
+        }
+    }
+
+    private Map<Long, String> load(List<Long> propertyIds) {
+        Map<Long, String> primary = new HashMap<>();
+        Map<Long, String> first = new HashMap<>();
+
+        try {
+            // rows are [propertyId, card or original url, isPrimary] in display order
+            for (Object[] row : propertyImageRepository.findImageUrlsByPropertyIds(propertyIds)) {
+                Long propertyId = (Long) row[0];
+                first.putIfAbsent(propertyId, (String) row[1]);
+                if (Boolean.TRUE.equals(row[2])) primary.putIfAbsent(propertyId, (String) row[1]);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not resolve primary images for {} properties: {}", propertyIds.size(), e.getMessage());
+            return null;
+        }
+
+        // No image flagged primary -> first by display order, same as before
+        first.forEach(primary::putIfAbsent);
+        return primary;
+    }
+}
@@ -0,0 +1,618 @@
+package com.example.realestate.service;
+
+import com.example.realestate.dto.PropertyFacets;
+import com.example.realestate.dto.PropertySearchRequest;
+import com.example.realestate.event.PropertyChangedEvent;
+import com.example.realestate.repository.PropertyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Columnar, in-memory copy of the searchable property columns.
+ *
+ * Each active property occupies a slot. String filters are dictionary encoded
+ * with one BitSet per value, boolean flags have a BitSet per value, and price
+ * (in paise), bedrooms and the sort keys live in primitive arrays. A search ANDs
+ * the bitsets, range-checks the survivors and returns one ordered page of ids,
+ * so only that page has to be loaded from the database.
+ *
+ * Matching follows PropertyRepository.searchProperties: property type matches
+ * either the PropertyType name or the legacy type column, city matches either
+ * the area's city or the legacy city column, and comparisons are
+ * case-insensitive like the MySQL collation.
+ *
+ * The same bitsets back the filter-panel facet counts (see facets()).
+ */
+@Service
+public class PropertyFilterEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(PropertyFilterEngine.class);
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    // Sort keys the engine can order by; PropertySearchService's JPQL path uses the
+    // same set so both search modes page identically
+    static final Set<String> SORT_FIELDS = Set.of("createdAt", "price", "bedrooms", "areaSqft");
+
+    private static final int MAX_BEDROOM_BUCKET = 5; // 5 and above share the "5+" bucket
+
+    // Changes queued during a build beyond this just trigger another full load
+    private static final int MAX_PENDING = 10_000;
+
+    // Filters a facet count can leave out (its own)
+    private enum Facet { NONE, PROPERTY_TYPE, CITY, AREA, LISTING_TYPE, BEDROOMS, PRICE }
+
+    private final PropertyRepository propertyRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Serializes writers from the row read to the update, so a listener holding an
+    // older read can't overwrite a newer one. Taken before the write lock.
+    private final Object writeOrder = new Object();
+
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private final BitSet active = new BitSet();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] pricePaise = new long[INITIAL_CAPACITY];
+    private double[] bedrooms = new double[INITIAL_CAPACITY];
+    private long[] createdAtMillis = new long[INITIAL_CAPACITY];
+    private long[] areaSqftHundredths = new long[INITIAL_CAPACITY];
+    private int nextSlot = 0;
+
+    private final DictionaryColumn propertyTypes = new DictionaryColumn();
+    private final DictionaryColumn cities = new DictionaryColumn();
+    private final DictionaryColumn areas = new DictionaryColumn();
+    private final DictionaryColumn listingTypes = new DictionaryColumn();
+    private final DictionaryColumn ownerTypes = new DictionaryColumn();
+
+    private final FlagColumn verified = new FlagColumn();
+    private final FlagColumn readyToMove = new FlagColumn();
+
+    private volatile boolean ready = false;
+
+    // Changes committed while not ready, replayed by rebuild() (guarded by itself)
+    private final List<PropertyChangedEvent> pending = new ArrayList<>();
+    private boolean pendingOverflowed = false;
+
+    public PropertyFilterEngine(PropertyRepository propertyRepository) {
+        this.propertyRepository = propertyRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Reload every column from the database
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (writeOrder) {
+            lock.writeLock().lock();
+            try {
+                ready = false;
+                boolean reload = true;
+                while (reload) {
+                    clear();
+                    for (Object[] row : propertyRepository.findFilterColumns()) {
+                        load(row);
+                    }
+                    reload = replayPending();
+                }
+                logger.info("Property filter engine built: {} rows, {} cities, {} areas, {} types in {} ms",
+                        active.cardinality(), cities.size(), areas.size(), propertyTypes.size(),
+                        System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.error("Property filter engine build failed, search will use JPQL: {}", e.getMessage(), e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        if (event.getPropertyId() == null) return;
+        if (!ready) {
+            synchronized (pending) {
+                if (!ready) {
+                    // The load may already have read this row; replaying re-reads it
+                    if (pending.size() < MAX_PENDING) pending.add(event);
+                    else pendingOverflowed = true;
+                    return;
+                }
+            }
+        }
+        apply(event);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean supportsSort(String sortBy) {
+        return sortBy != null && SORT_FIELDS.contains(sortBy);
+    }
+
+    /**
+     * Evaluate the request's filters and return the requested page of ids in sort order
+     */
+    public IdPage search(PropertySearchRequest request) {
+        lock.readLock().lock();
+        try {
+            BitSet match = matchingSlots(request);
+            int total = match.cardinality();
+
+            long[] keys = sortKeys(request.getSortBy());
+            boolean ascending = "ASC".equalsIgnoreCase(request.getSortOrder());
+
+            int size = request.getSize() != null && request.getSize() > 0 ? request.getSize() : 20;
+            int page = request.getPage() != null && request.getPage() > 0 ? request.getPage() : 0;
+            int from = (int) Math.min((long) page * size, total);
+            int to = Math.min(from + size, total);
+
+            int[] top = topSlots(match, to, keys, ascending);
+            List<Long> pageIds = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                pageIds.add(ids[top[i]]);
+            }
+            return new IdPage(pageIds, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts per city, area, type, listing type and bedroom bucket plus a price
+     * histogram for the request's filters, all from bitset intersections.
+     * Sorting and paging fields of the request are ignored.
+     */
+    public PropertyFacets facets(PropertySearchRequest request, int priceBuckets) {
+        lock.readLock().lock();
+        try {
+            BitSet match = matchingSlots(request, Facet.NONE);
+
+            PropertyFacets out = new PropertyFacets();
+            out.setTotal(match.cardinality());
+            out.setPropertyTypes(propertyTypes.counts(
+                    request.getPropertyType() == null ? match : matchingSlots(request, Facet.PROPERTY_TYPE)));
+            out.setCities(cities.counts(
+                    request.getCity() == null ? match : matchingSlots(request, Facet.CITY)));
+            out.setAreas(areas.counts(
+                    request.getArea() == null ? match : matchingSlots(request, Facet.AREA)));
+            out.setListingTypes(listingTypes.counts(
+                    request.getListingType() == null ? match : matchingSlots(request, Facet.LISTING_TYPE)));
+            out.setBedrooms(bedroomCounts(
+                    request.getMinBedrooms() == null && request.getMaxBedrooms() == null
+                            ? match : matchingSlots(request, Facet.BEDROOMS)));
+            out.setPriceHistogram(priceHistogram(
+                    request.getMinPrice() == null && request.getMaxPrice() == null
+                            ? match : matchingSlots(request, Facet.PRICE),
+                    priceBuckets));
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== FILTERING ====================
+
+    private BitSet matchingSlots(PropertySearchRequest request) {
+        return matchingSlots(request, Facet.NONE);
+    }
+
+    private BitSet matchingSlots(PropertySearchRequest request, Facet ignored) {
+        BitSet match = (BitSet) active.clone();
+
+        if (ignored != Facet.PROPERTY_TYPE) and(match, propertyTypes, request.getPropertyType());
+        if (ignored != Facet.CITY) and(match, cities, request.getCity());
+        if (ignored != Facet.AREA) and(match, areas, request.getArea());
+        if (ignored != Facet.LISTING_TYPE) and(match, listingTypes, request.getListingType());
+        and(match, ownerTypes, request.getOwnerType());
+        if (request.getIsVerified() != null) match.and(verified.bitsFor(request.getIsVerified()));
+        if (request.getIsReadyToMove() != null) match.and(readyToMove.bitsFor(request.getIsReadyToMove()));
+
+        boolean byPrice = ignored != Facet.PRICE;
+        boolean byBeds = ignored != Facet.BEDROOMS;
+        BigDecimal minPriceFilter = byPrice ? request.getMinPrice() : null;
+        BigDecimal maxPriceFilter = byPrice ? request.getMaxPrice() : null;
+        Integer minBeds = byBeds ? request.getMinBedrooms() : null;
+        Integer maxBeds = byBeds ? request.getMaxBedrooms() : null;
+
+        if (minPriceFilter == null && maxPriceFilter == null && minBeds == null && maxBeds == null) {
+            return match;
+        }
+
+        long minPrice = minPriceFilter != null ? toPaise(minPriceFilter, RoundingMode.CEILING) : NULL_LONG;
+        long maxPrice = maxPriceFilter != null ? toPaise(maxPriceFilter, RoundingMode.FLOOR) : NULL_LONG;
+
+        // Range predicates only need to look at rows that survived the bitset AND
+        for (int slot = match.nextSetBit(0); slot >= 0; slot = match.nextSetBit(slot + 1)) {
+            long price = pricePaise[slot];
+            double beds = bedrooms[slot];
+            boolean keep = (minPriceFilter == null || (price != NULL_LONG && price >= minPrice))
+                    && (maxPriceFilter == null || (price != NULL_LONG && price <= maxPrice))
+                    && (minBeds == null || beds >= minBeds)
+                    && (maxBeds == null || beds <= maxBeds);
+            if (!keep) match.clear(slot);
+        }
+        return match;
+    }
+
+    private static void and(BitSet match, DictionaryColumn column, String value) {
+        if (value == null) return;
+        match.and(column.bitsFor(value));
+    }
+
+    private long[] sortKeys(String sortBy) {
+        if (sortBy == null) return createdAtMillis;
+        switch (sortBy) {
+            case "price": return pricePaise;
+            case "areaSqft": return areaSqftHundredths;
+            case "bedrooms": {
+                long[] keys = new long[nextSlot];
+                for (int i = 0; i < nextSlot; i++) {
+                    keys[i] = Double.isNaN(bedrooms[i]) ? NULL_LONG : Math.round(bedrooms[i] * 100);
+                }
+                return keys;
+            }
+            default: return createdAtMillis;
+        }
+    }
+
+    /**
+     * The first k matching slots in sort order (ties: newest id first). A max-heap of
+     * the k best seen so far, rooted at the worst of them, so each match costs at most
+     * one O(log k) replacement.
+     */
+    private int[] topSlots(BitSet match, int k, long[] keys, boolean ascending) {
+        int[] heap = new int[k];
+        int n = 0;
+        for (int slot = match.nextSetBit(0); slot >= 0 && k > 0; slot = match.nextSetBit(slot + 1)) {
+            if (n < k) {
+                heap[n] = slot;
+                siftUp(heap, n++, keys, ascending);
+            } else if (compareSlots(slot, heap[0], keys, ascending) < 0) {
+                heap[0] = slot;
+                siftDown(heap, n, keys, ascending);
+            }
+        }
+
+        // Pop the worst to the back until the array is in sort order
+        for (int end = n - 1; end > 0; end--) {
+            int worst = heap[0];
+            heap[0] = heap[end];
+            heap[end] = worst;
+            siftDown(heap, end, keys, ascending);
+        }
+        return heap;
+    }
+
+    // Negative if slot a comes before slot b
+    private int compareSlots(int a, int b, long[] keys, boolean ascending) {
+        int c = Long.compare(keys[a], keys[b]);
+        if (!ascending) c = -c;
+        return c != 0 ? c : Long.compare(ids[b], ids[a]);
+    }
+
+    private void siftUp(int[] heap, int i, long[] keys, boolean ascending) {
+        int slot = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (compareSlots(heap[parent], slot, keys, ascending) >= 0) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = slot;
+    }
+
+    private void siftDown(int[] heap, int n, long[] keys, boolean ascending) {
+        int slot = heap[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) break;
+            if (child + 1 < n && compareSlots(heap[child + 1], heap[child], keys, ascending) > 0) child++;
+            if (compareSlots(heap[child], slot, keys, ascending) <= 0) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = slot;
+    }
+
+    // ==================== FACETS ====================
+
+    private Map<String, Integer> bedroomCounts(BitSet match) {
+        int[] counts = new int[MAX_BEDROOM_BUCKET + 1];
+        for (int slot = match.nextSetBit(0); slot >= 0; slot = match.nextSetBit(slot + 1)) {
+            double beds = bedrooms[slot];
+            if (Double.isNaN(beds) || beds < 0) continue;
+            counts[(int) Math.min(Math.floor(beds), MAX_BEDROOM_BUCKET)]++;
+        }
+
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (int beds = 0; beds <= MAX_BEDROOM_BUCKET; beds++) {
+            if (counts[beds] == 0) continue;
+            out.put(beds == MAX_BEDROOM_BUCKET ? beds + "+" : String.valueOf(beds), counts[beds]);
+        }
+        return out;
+    }
+
+    /**
+     * Equal-width buckets between the lowest and highest matching price. The width
+     * is rounded up to 1, 2 or 5 x 10^n rupees so bucket edges read well in the UI.
+     */
+    private List<PropertyFacets.PriceBucket> priceHistogram(BitSet match, int buckets) {
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int slot = match.nextSetBit(0); slot >= 0; slot = match.nextSetBit(slot + 1)) {
+            long price = pricePaise[slot];
+            if (price == NULL_LONG) continue;
+            min = Math.min(min, price);
+            max = Math.max(max, price);
+        }
+        if (min > max) return List.of();
+
+        long width = niceWidth((max - min) / buckets + 1);
+        long start = Math.floorDiv(min, width) * width;
+        int[] counts = new int[(int) ((max - start) / width) + 1];
+        for (int slot = match.nextSetBit(0); slot >= 0; slot = match.nextSetBit(slot + 1)) {
+            long price = pricePaise[slot];
+            if (price != NULL_LONG) counts[(int) ((price - start) / width)]++;
+        }
+
+        List<PropertyFacets.PriceBucket> out = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            long lower = start + i * width;
+            out.add(new PropertyFacets.PriceBucket(
+                    BigDecimal.valueOf(lower, 2), BigDecimal.valueOf(lower + width, 2), counts[i]));
+        }
+        return out;
+    }
+
+    // Smallest 1/2/5 x 10^n rupees (in paise) that is >= rawPaise
+    private static long niceWidth(long rawPaise) {
+        long step = 100;
+        while (true) {
+            for (long m : new long[]{1, 2, 5}) {
+                if (step * m >= rawPaise) return step * m;
+            }
+            step *= 10;
+        }
+    }
+
+    // ==================== LOADING ====================
+
+    private void apply(PropertyChangedEvent event) {
+        Long id = event.getPropertyId();
+        synchronized (writeOrder) {
+            // Re-read the row so joined names (city via area) come from committed data.
+            // Reads happen in writeOrder, so the last one applied is the newest; searches
+            // only wait for the update itself.
+            List<Object[]> rows = event.isRemoval() ? List.of() : propertyRepository.findFilterColumnsById(id);
+
+            lock.writeLock().lock();
+            try {
+                unload(id);
+                rows.forEach(this::load);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Apply the changes queued during a load and mark the engine ready; true if too
+     * many arrived and the caller should load everything again instead
+     */
+    private boolean replayPending() {
+        while (true) {
+            List<PropertyChangedEvent> batch;
+            synchronized (pending) {
+                if (pendingOverflowed) {
+                    pending.clear();
+                    pendingOverflowed = false;
+                    return true;
+                }
+                if (pending.isEmpty()) {
+                    ready = true;
+                    return false;
+                }
+                batch = new ArrayList<>(pending);
+                pending.clear();
+            }
+            batch.forEach(this::apply);
+        }
+    }
+
+    // Row order matches PropertyRepository.findFilterColumns
+    private void load(Object[] row) {
+        Long id = (Long) row[0];
+        int slot = slotById.computeIfAbsent(id, k -> allocateSlot());
+
+        ids[slot] = id;
+        propertyTypes.add(slot, (String) row[1], (String) row[2]);
+        pricePaise[slot] = row[3] != null ? toPaise((BigDecimal) row[3], RoundingMode.HALF_UP) : NULL_LONG;
+        cities.add(slot, (String) row[4], (String) row[5]);
+        areas.add(slot, (String) row[6]);
+        listingTypes.add(slot, (String) row[7]);
+        bedrooms[slot] = row[8] != null ? (Double) row[8] : Double.NaN;
+        verified.set(slot, (Boolean) row[9]);
+        ownerTypes.add(slot, (String) row[10]);
+        readyToMove.set(slot, (Boolean) row[11]);
+        createdAtMillis[slot] = row[12] != null
+                ? ((LocalDateTime) row[12]).toInstant(ZoneOffset.UTC).toEpochMilli() : NULL_LONG;
+        areaSqftHundredths[slot] = row[13] != null
+                ? ((BigDecimal) row[13]).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue() : NULL_LONG;
+
+        active.set(slot);
+    }
+
+    private void unload(Long id) {
+        Integer slot = slotById.get(id);
+        if (slot == null) return;
+
+        active.clear(slot);
+        propertyTypes.clear(slot);
+        cities.clear(slot);
+        areas.clear(slot);
+        listingTypes.clear(slot);
+        ownerTypes.clear(slot);
+        verified.clear(slot);
+        readyToMove.clear(slot);
+    }
+
+    private int allocateSlot() {
+        if (nextSlot == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            pricePaise = Arrays.copyOf(pricePaise, capacity);
+            bedrooms = Arrays.copyOf(bedrooms, capacity);
+            createdAtMillis = Arrays.copyOf(createdAtMillis, capacity);
+            areaSqftHundredths = Arrays.copyOf(areaSqftHundredths, capacity);
+        }
+        return nextSlot++;
+    }
+
+    private void clear() {
+        slotById.clear();
+        active.clear();
+        nextSlot = 0;
+        propertyTypes.reset();
+        cities.reset();
+        areas.reset();
+        listingTypes.reset();
+        ownerTypes.reset();
+        verified.reset();
+        readyToMove.reset();
+    }
+
+    private static long toPaise(BigDecimal amount, RoundingMode rounding) {
+        return amount.movePointRight(2).setScale(0, rounding).longValue();
+    }
+
+    // ==================== COLUMN TYPES ====================
+
+    /**
+     * Dictionary-encoded string column: value -> code -> BitSet of slots.
+     * A slot may carry more than one value (e.g. type name and legacy type).
+     */
+    private static final class DictionaryColumn {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<BitSet> slotsByCode = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>(); // first spelling seen, for facet output
+
+        void add(int slot, String... values) {
+            for (String value : values) {
+                if (value == null || value.isBlank()) continue;
+                int code = codes.computeIfAbsent(key(value), k -> {
+                    slotsByCode.add(new BitSet());
+                    labels.add(value.trim());
+                    return slotsByCode.size() - 1;
+                });
+                slotsByCode.get(code).set(slot);
+            }
+        }
+
+        void clear(int slot) {
+            for (BitSet bits : slotsByCode) bits.clear(slot);
+        }
+
+        BitSet bitsFor(String value) {
+            Integer code = codes.get(key(value));
+            return code != null ? slotsByCode.get(code) : new BitSet();
+        }
+
+        int size() {
+            return codes.size();
+        }
+
+        /**
+         * Matching slots per value, most common first; values with no match are left out
+         */
+        Map<String, Integer> counts(BitSet match) {
+            BitSet scratch = new BitSet();
+            List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+            for (int code = 0; code < slotsByCode.size(); code++) {
+                scratch.clear();
+                scratch.or(match);
+                scratch.and(slotsByCode.get(code));
+                int count = scratch.cardinality();
+                if (count > 0) entries.add(Map.entry(labels.get(code), count));
+            }
+
+            entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+            Map<String, Integer> out = new LinkedHashMap<>();
+            entries.forEach(e -> out.put(e.getKey(), e.getValue()));
+            return out;
+        }
+
+        void reset() {
+            codes.clear();
+            slotsByCode.clear();
+            labels.clear();
+        }
+
+        private static String key(String value) {
+            return value.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Nullable boolean column stored as one BitSet per value
+     */
+    private static final class FlagColumn {
+        private final BitSet trueSlots = new BitSet();
+        private final BitSet falseSlots = new BitSet();
+
+        void set(int slot, Boolean value) {
+            clear(slot);
+            if (Boolean.TRUE.equals(value)) trueSlots.set(slot);
+            else if (Boolean.FALSE.equals(value)) falseSlots.set(slot);
+        }
+
+        void clear(int slot) {
+            trueSlots.clear(slot);
+            falseSlots.clear(slot);
+        }
+
+        BitSet bitsFor(boolean value) {
+            return value ? trueSlots : falseSlots;
+        }
+
+        void reset() {
+            trueSlots.clear();
+            falseSlots.clear();
+        }
+    }
+
+    /**
+     * One page of matching ids plus the total match count
+     */
+    public static class IdPage {
+        private final List<Long> ids;
+        private final long total;
+
+        public IdPage(List<Long> ids, long total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        public List<Long> getIds() { return ids; }
+        public long getTotal() { return total; }
+    }
+}
@@ -20,11 +20,20 @@ public class PropertyImageService {
     private static final Logger logger = LoggerFactory.getLogger(PropertyImageService.class);
     private final PropertyImageRepository propertyImageRepository;
     private final PropertyRepository propertyRepository;
+    private final PrimaryImageResolver primaryImageResolver;
+    private final ImageVariantService imageVariantService;
+    private final BlobStoreService blobStoreService;
 
     public PropertyImageService(PropertyImageRepository propertyImageRepository,
-                                PropertyRepository propertyRepository) {
+                                PropertyRepository propertyRepository,
+                                PrimaryImageResolver primaryImageResolver,
+                                ImageVariantService imageVariantService,
+                                BlobStoreService blobStoreService) {
         this.propertyImageRepository = propertyImageRepository;
         this.propertyRepository = propertyRepository;
+        this.primaryImageResolver = primaryImageResolver;
+        this.imageVariantService = imageVariantService;
+        this.blobStoreService = blobStoreService;
     }
 
     /**
@@ -64,7 +73,9 @@ public class PropertyImageService {
         } else {
             propertyImage.setDisplayOrder(existingImages.size());
         }
+        imageVariantService.applyKnownVariants(propertyImage);
 
+        primaryImageResolver.invalidate(propertyId);
         return propertyImageRepository.save(propertyImage);
     }
 
@@ -89,10 +100,12 @@ public class PropertyImageService {
             image.setIsPrimary(request.getIsPrimary() != null ? request.getIsPrimary() : (i == 0));
             image.setDisplayOrder(request.getDisplayOrder() != null ? request.getDisplayOrder() : i);
             image.setCreatedAt(LocalDateTime.now());
+            imageVariantService.applyKnownVariants(image);
 
             savedImages.add(propertyImageRepository.save(image));
         }
 
+        primaryImageResolver.invalidate(propertyId);
         logger.info("Successfully saved {} images", savedImages.size());
         return savedImages;
     }
@@ -116,6 +129,7 @@ public class PropertyImageService {
 
         primaryImage.setIsPrimary(true);
         propertyImageRepository.save(primaryImage);
+        primaryImageResolver.invalidate(propertyId);
     }
 
     /**
@@ -130,6 +144,7 @@ public class PropertyImageService {
         boolean wasPrimary = image.getIsPrimary();
 
         propertyImageRepository.deleteById(imageId);
+        blobStoreService.release(image.getImageUrl());
 
         // If the deleted image was primary, set another image as primary
         if (wasPrimary) {
@@ -140,6 +155,7 @@ public class PropertyImageService {
                 propertyImageRepository.save(newPrimary);
             }
         }
+        primaryImageResolver.invalidate(propertyId);
     }
 
     /**
@@ -147,7 +163,10 @@ public class PropertyImageService {
      */
     public void deleteAllImagesByPropertyId(Long propertyId) {
         logger.info("Deleting all images for property ID: {}", propertyId);
+        List<PropertyImage> images = propertyImageRepository.findByPropertyId(propertyId);
         propertyImageRepository.deleteByPropertyId(propertyId);
+        images.forEach(image -> blobStoreService.release(image.getImageUrl()));
+        primaryImageResolver.invalidate(propertyId);
     }
 
     /**
@@ -160,6 +179,7 @@ public class PropertyImageService {
 
         image.setDisplayOrder(newOrder);
         propertyImageRepository.save(image);
+        primaryImageResolver.invalidate(image.getProperty().getId());
     }
 
     /**
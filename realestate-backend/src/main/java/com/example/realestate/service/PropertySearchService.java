@@ -1,11 +1,15 @@
 package com.example.realestate.service;
 
 import com.example.realestate.dto.PropertyDTO;
+import com.example.realestate.dto.PropertyFacets;
+import com.example.realestate.dto.PropertySearchPage;
 import com.example.realestate.dto.PropertySearchRequest;
-import com.example.realestate.model.Property;
+import com.example.realestate.model.FeaturedProperty;
+import com.example.realestate.repository.FeaturedPropertyRepository;
 import com.example.realestate.repository.PropertyRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -15,9 +19,13 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal; // <-- NEW REQUIRED IMPORT
 import java.time.LocalDateTime;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,10 +33,36 @@ import java.util.stream.Collectors;
 public class PropertySearchService {
 
     private static final Logger logger = LoggerFactory.getLogger(PropertySearchService.class);
+
+    // Whitelisted sort keys, shared with the filter engine; cursor paging is limited to indexed columns
+    private static final Set<String> OFFSET_SORT_FIELDS = PropertyFilterEngine.SORT_FIELDS;
+    private static final Set<String> CURSOR_SORT_FIELDS = Set.of("createdAt", "price", "areaSqft");
+    private static final String DEFAULT_SORT_FIELD = "createdAt";
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int DEFAULT_PRICE_BUCKETS = 10;
+    private static final int MAX_PRICE_BUCKETS = 50;
+    private static final int HOMEPAGE_FEATURED_LIMIT = 6;
+
     private final PropertyRepository propertyRepository;
+    private final PropertyFilterEngine propertyFilterEngine;
+    private final PrimaryImageResolver primaryImageResolver;
+    private final FeaturedIndexService featuredIndexService;
+    private final FeaturedPropertyRepository featuredPropertyRepository;
 
-    public PropertySearchService(PropertyRepository propertyRepository) {
+    // "jpql" (default) or "bitset" to serve searches from PropertyFilterEngine
+    @Value("${search.engine:jpql}")
+    private String searchEngine;
+
+    public PropertySearchService(PropertyRepository propertyRepository,
+                                 PropertyFilterEngine propertyFilterEngine,
+                                 PrimaryImageResolver primaryImageResolver,
+                                 FeaturedIndexService featuredIndexService,
+                                 FeaturedPropertyRepository featuredPropertyRepository) {
         this.propertyRepository = propertyRepository;
+        this.propertyFilterEngine = propertyFilterEngine;
+        this.primaryImageResolver = primaryImageResolver;
+        this.featuredIndexService = featuredIndexService;
+        this.featuredPropertyRepository = featuredPropertyRepository;
     }
 
     /**
@@ -36,12 +70,51 @@ public class PropertySearchService {
      */
     public List<PropertyDTO> searchProperties(PropertySearchRequest request) {
         logger.info("Searching properties with request: {}", request);
+        long start = System.nanoTime();
+
+        List<PropertyDTO> properties;
+        String engine;
+        if (useFilterEngine(request)) {
+            engine = "bitset";
+            properties = searchWithFilterEngine(request);
+        } else {
+            engine = "jpql";
+            properties = searchWithJpql(request);
+        }
+        logger.debug("Search [{}] returned {} rows in {} µs", engine, properties.size(),
+                (System.nanoTime() - start) / 1_000);
+
+        return toDtosWithFeaturedStatus(properties);
+    }
 
+    private boolean useFilterEngine(PropertySearchRequest request) {
+        return "bitset".equalsIgnoreCase(searchEngine)
+                && propertyFilterEngine.isReady()
+                && propertyFilterEngine.supportsSort(request.getSortBy());
+    }
+
+    /**
+     * Resolve the page of ids in memory and project only those rows
+     */
+    private List<PropertyDTO> searchWithFilterEngine(PropertySearchRequest request) {
+        PropertyFilterEngine.IdPage page = propertyFilterEngine.search(request);
+        if (page.getIds().isEmpty()) return List.of();
+
+        Map<Long, PropertyDTO> byId = propertyRepository.findCardsByIds(page.getIds()).stream()
+                .collect(Collectors.toMap(PropertyDTO::getPropertyId, Function.identity()));
+
+        return page.getIds().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private List<PropertyDTO> searchWithJpql(PropertySearchRequest request) {
         Sort sort = Sort.by(
                 request.getSortOrder().equalsIgnoreCase("ASC") ?
                         Sort.Direction.ASC : Sort.Direction.DESC,
-                request.getSortBy()
-        );
+                sortField(request.getSortBy(), OFFSET_SORT_FIELDS)
+        ).and(Sort.by(Sort.Direction.DESC, "id")); // same tie-break as PropertyFilterEngine
 
         Pageable pageable = PageRequest.of(
                 request.getPage(),
@@ -49,7 +122,7 @@ public class PropertySearchService {
                 sort
         );
 
-        Page<Property> propertyPage = propertyRepository.searchProperties(
+        Page<PropertyDTO> propertyPage = propertyRepository.searchPropertyCards(
                 request.getPropertyType(),
                 // --- START FIX for incompatible types (Price) ---
                 // Convert Integer (from request) to BigDecimal (expected by repository)
@@ -68,42 +141,118 @@ public class PropertySearchService {
                 request.getIsReadyToMove(),
                 pageable
         );
-        List<Property> properties = propertyPage.getContent();
+        return propertyPage.getContent();
+    }
+
+    /**
+     * Keyset-paginated search: no OFFSET scan and no COUNT(*) unless includeTotal is set
+     */
+    public PropertySearchPage searchPropertiesByCursor(PropertySearchRequest request) {
+        String sortBy = sortField(request.getSortBy(), CURSOR_SORT_FIELDS);
+        boolean ascending = "ASC".equalsIgnoreCase(request.getSortOrder());
+        int size = Math.min(Math.max(request.getSize() != null ? request.getSize() : 20, 1), MAX_PAGE_SIZE);
+
+        SearchCursor cursor = request.getCursor() != null ? SearchCursor.decode(request.getCursor()) : null;
+        if (cursor != null && (!cursor.getSortBy().equals(sortBy) || cursor.isAscending() != ascending)) {
+            throw new IllegalArgumentException("Cursor was issued for a different sort order");
+        }
+
+        // Fetch one extra row to know whether another page exists
+        List<PropertyDTO> rows = new ArrayList<>();
+        if (cursor == null || !cursor.isNullSegment()) {
+            rows.addAll(propertyRepository.findPageAfter(request, sortBy, ascending,
+                    cursor != null ? cursor.getKey() : null,
+                    cursor != null ? cursor.getId() : null,
+                    false, size + 1));
+        }
+        // Rows without a value for the sort column come last, ordered by id
+        if (rows.size() <= size) {
+            Long afterId = cursor != null && cursor.isNullSegment() ? cursor.getId() : null;
+            rows.addAll(propertyRepository.findPageAfter(request, sortBy, ascending,
+                    null, afterId, true, size + 1 - rows.size()));
+        }
+
+        boolean hasMore = rows.size() > size;
+        List<PropertyDTO> page = hasMore ? rows.subList(0, size) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            PropertyDTO last = page.get(page.size() - 1);
+            nextCursor = new SearchCursor(sortBy, ascending, sortValue(last, sortBy), last.getPropertyId()).encode();
+        }
+
+        Long total = Boolean.TRUE.equals(request.getIncludeTotal())
+                ? propertyRepository.countMatching(request)
+                : null;
 
+        return new PropertySearchPage(toDtosWithFeaturedStatus(page), nextCursor, hasMore, total);
+    }
+
+    /**
+     * Filter-panel counts and price histogram for the current filters, served from
+     * the in-memory filter engine (no GROUP BY per facet)
+     */
+    public PropertyFacets getFacets(PropertySearchRequest request, Integer priceBuckets) {
+        if (!propertyFilterEngine.isReady()) {
+            throw new IllegalStateException("Search facets are not available yet, please retry shortly");
+        }
+        int buckets = priceBuckets != null
+                ? Math.min(Math.max(priceBuckets, 1), MAX_PRICE_BUCKETS)
+                : DEFAULT_PRICE_BUCKETS;
+        return propertyFilterEngine.facets(request, buckets);
+    }
+
+    private static String sortField(String requested, Set<String> allowed) {
+        return requested != null && allowed.contains(requested) ? requested : DEFAULT_SORT_FIELD;
+    }
+
+    private static Object sortValue(PropertyDTO p, String sortBy) {
+        switch (sortBy) {
+            case "price": return p.getPrice();
+            case "areaSqft": return p.getAreaSqft();
+            default: return p.getCreatedAt();
+        }
+    }
+
+    private List<PropertyDTO> toDtosWithFeaturedStatus(List<PropertyDTO> properties) {
         // Get property IDs
         List<Long> propertyIds = properties.stream()
-                .map(Property::getId)
+                .map(PropertyDTO::getPropertyId)
                 .collect(Collectors.toList());
 
-        // ✅ Batch check which properties are ACTUALLY featured
-        LocalDateTime now = LocalDateTime.now();
-        List<Long> actuallyFeaturedIds = propertyRepository.findFeaturedPropertyIds(propertyIds, now);
-        Set<Long> featuredIdSet = new HashSet<>(actuallyFeaturedIds);
+        // ✅ Check which properties are ACTUALLY featured (in-memory featured index)
+        Set<Long> featuredIdSet = featuredIndexService.featuredAmong(propertyIds);
 
         logger.info("Found {} search results, {} are actually featured", properties.size(), featuredIdSet.size());
 
-        // Convert to DTO with accurate featured status
-        return properties.stream()
-                .map(property -> {
-                    PropertyDTO dto = convertToDTO(property);
-                    // ✅ Override isFeatured based on featured_properties table
-                    dto.setIsFeatured(featuredIdSet.contains(property.getId()));
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        // Attach primary images, then the accurate featured status
+        List<PropertyDTO> dtos = primaryImageResolver.applyTo(properties);
+        // ✅ Override isFeatured based on featured_properties table
+        dtos.forEach(dto -> dto.setIsFeatured(featuredIdSet.contains(dto.getPropertyId())));
+        return dtos;
     }
 
     /**
-     * Get featured properties
+     * Get featured properties for the homepage: newest currently-featured listings.
+     * Uses the featured_properties windows rather than property.is_featured, which
+     * is never cleared when a featured period ends. Served via FeaturedSnapshotService.
      */
     public List<PropertyDTO> getFeaturedProperties() {
         logger.info("Fetching featured properties");
-        List<Property> properties = propertyRepository.findByIsFeaturedTrueAndIsActiveTrueOrderByCreatedAtDesc();
+        List<Long> ids = featuredPropertyRepository.findAllCurrentlyActive(LocalDateTime.now()).stream()
+                .map(FeaturedProperty::getPropertyId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) return List.of();
 
-        return properties.stream()
-                .limit(6)
-                .map(this::convertToDTO)
+        List<PropertyDTO> newest = propertyRepository.findCardsByIds(ids).stream()
+                .sorted(Comparator.comparing(PropertyDTO::getCreatedAt,
+                        Comparator.nullsLast(Comparator.reverseOrder())))
+                .limit(HOMEPAGE_FEATURED_LIMIT)
                 .collect(Collectors.toList());
+        newest.forEach(dto -> dto.setIsFeatured(true));
+        return primaryImageResolver.applyTo(newest);
     }
 
     /**
@@ -111,11 +260,7 @@ public class PropertySearchService {
      */
     public List<PropertyDTO> getPropertiesByListingType(String listingType) {
         logger.info("Fetching properties with listing type: {}", listingType);
-        List<Property> properties = propertyRepository.findByListingTypeAndIsActiveTrue(listingType);
-
-        return properties.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return primaryImageResolver.applyTo(propertyRepository.findActiveCardsByListingType(listingType));
     }
 
     /**
@@ -123,11 +268,7 @@ public class PropertySearchService {
      */
     public List<PropertyDTO> getPropertiesByArea(Integer areaId) {
         logger.info("Fetching properties in area ID: {}", areaId);
-        List<Property> properties = propertyRepository.findByAreaId(areaId);
-
-        return properties.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return primaryImageResolver.applyTo(propertyRepository.findActiveCardsByAreaId(areaId));
     }
 
     /**
@@ -135,74 +276,6 @@ public class PropertySearchService {
      */
     public List<PropertyDTO> getPropertiesByUser(Long userId) {
         logger.info("Fetching properties for user ID: {}", userId);
-        List<Property> properties = propertyRepository.findByUserId(userId);
-
-        return properties.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * ⭐ UPDATED: Convert Property entity to PropertyDTO
-     * NOW INCLUDES USER INFORMATION!
-     */
-    private PropertyDTO convertToDTO(Property property) {
-        PropertyDTO dto = new PropertyDTO();
-
-        dto.setPropertyId(property.getId());
-        dto.setTitle(property.getTitle());
-        dto.setDescription(property.getDescription());
-        dto.setPrice(property.getPrice());
-        dto.setAreaSqft(property.getAreaSqft());
-        dto.setBedrooms(property.getBedrooms());
-        dto.setBathrooms(property.getBathrooms());
-        dto.setAddress(property.getAddress());
-        dto.setStatus(property.getStatus());
-        dto.setListingType(property.getListingType());
-        dto.setImageUrl(property.getImageUrl());
-        dto.setAmenities(property.getAmenities());
-        dto.setIsFeatured(property.getIsFeatured());
-        dto.setCreatedAt(property.getCreatedAt());
-        dto.setPriceDisplay(property.getPriceDisplay());
-        dto.setIsReadyToMove(property.getIsReadyToMove());
-        dto.setOwnerType(property.getOwnerType());
-        dto.setIsVerified(property.getIsVerified());
-
-        // ⭐ NEW: Set user information
-        if (property.getUser() != null) {
-            PropertyDTO.UserDTO userDTO = new PropertyDTO.UserDTO();
-            userDTO.setId(property.getUser().getId());
-            userDTO.setFirstName(property.getUser().getFirstName());
-            userDTO.setLastName(property.getUser().getLastName());
-            userDTO.setEmail(property.getUser().getEmail());
-            userDTO.setMobileNumber(property.getUser().getMobileNumber());
-            dto.setUser(userDTO);
-
-            logger.debug("Set user info for property {}: User ID {}", property.getId(), userDTO.getId());
-        } else {
-            logger.warn("Property {} has no user associated!", property.getId());
-        }
-
-        // Set property type
-        if (property.getPropertyType() != null) {
-            dto.setPropertyType(property.getPropertyType().getTypeName());
-        } else if (property.getType() != null) {
-            dto.setPropertyType(property.getType());
-        }
-
-        // Set location details
-        if (property.getArea() != null) {
-            dto.setAreaName(property.getArea().getAreaName());
-            dto.setPincode(property.getArea().getPincode());
-
-            if (property.getArea().getCity() != null) {
-                dto.setCityName(property.getArea().getCity().getCityName());
-                dto.setState(property.getArea().getCity().getState());
-            }
-        } else if (property.getCity() != null) {
-            dto.setCityName(property.getCity());
-        }
-
-        return dto;
+        return primaryImageResolver.applyTo(propertyRepository.findActiveCardsByUserId(userId));
     }
-}
\ No newline at end of file
+}
@@ -4,17 +4,25 @@ import com.example.realestate.model.*;
 import com.example.realestate.repository.*;
 import com.example.realestate.dto.PropertyPostRequestDto;
 import com.example.realestate.dto.PropertyDTO;
+import com.example.realestate.event.PropertyChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import jakarta.persistence.EntityNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -22,25 +30,47 @@ public class PropertyService {
 
     private static final Logger logger = LoggerFactory.getLogger(PropertyService.class);
 
+    private static final int QUICK_SEARCH_MAX_RESULTS = 100;
+    private static final int STREAM_CHUNK_SIZE = 200;
+
     private final PropertyRepository repo;
     private final UserRepository userRepository;
     private final AreaRepository areaRepository;
     private final PropertyTypeRepository propertyTypeRepository;
 
+    // Chunk lookups for the NDJSON stream, on a connection other than the streaming one
+    private final TransactionTemplate chunkTransaction;
+
     @Autowired
-    private BrokerSubscriptionService brokerSubscriptionService;
+    private BrokerQuotaService brokerQuotaService;
     @Autowired
-    private PropertyImageRepository propertyImageRepository;
+    private PrimaryImageResolver primaryImageResolver;
 
     @Autowired
     private FeaturedPropertyRepository featuredPropertyRepository;
 
+    @Autowired
+    private QuickSearchIndexService quickSearchIndexService;
+
+    @Autowired
+    private FeaturedIndexService featuredIndexService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     public PropertyService(PropertyRepository repo, UserRepository userRepository,
-                           AreaRepository areaRepository, PropertyTypeRepository propertyTypeRepository) {
+                           AreaRepository areaRepository, PropertyTypeRepository propertyTypeRepository,
+                           PlatformTransactionManager transactionManager) {
         this.repo = repo;
         this.userRepository = userRepository;
         this.areaRepository = areaRepository;
         this.propertyTypeRepository = propertyTypeRepository;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkTransaction.setReadOnly(true);
     }
 
     // ==================== PROPERTY CREATION ====================
@@ -57,27 +87,13 @@ public class PropertyService {
 
         // ENFORCE BROKER SUBSCRIPTION
         if (user.getRole() == User.UserRole.BROKER) {
-            logger.info("User {} is a BROKER - checking subscription status", userId);
+            logger.info("User {} is a BROKER - reserving a posting slot", userId);
 
-            if (!brokerSubscriptionService.hasActiveSubscription(userId)) {
-                logger.error("Broker {} has NO active subscription", userId);
-                throw new RuntimeException(
-                        "Subscription required. Please activate a subscription or use a trial coupon to post properties."
-                );
-            }
-
-            if (!brokerSubscriptionService.canPostProperty(userId)) {
-                logger.error("Broker {} has reached property posting limit", userId);
-                var status = brokerSubscriptionService.getSubscriptionStatus(userId);
-                throw new RuntimeException(
-                        String.format("Property limit reached (%s/%s). Please upgrade your subscription to post more properties.",
-                                status.get("propertiesPosted"),
-                                status.get("maxProperties"))
-                );
-            }
+            // Atomic check-and-increment; released again if this transaction rolls back
+            int remaining = brokerQuotaService.reserveSlot(userId);
 
             dto.setOwnerType("broker");
-            logger.info("Broker subscription check passed - ownerType='broker'");
+            logger.info("Broker subscription check passed - ownerType='broker', {} posts remaining", remaining);
         }
 
         // Fetch or default property type
@@ -131,15 +147,11 @@ public class PropertyService {
         logger.info("Property {} created successfully by user {} (Role: {})",
                 savedProperty.getId(), userId, user.getRole());
 
-        if (user.getRole() == User.UserRole.BROKER) {
-            brokerSubscriptionService.incrementPropertiesPosted(userId);
-            logger.info("Incremented property count for broker {}", userId);
-        }
-
+        eventPublisher.publishEvent(PropertyChangedEvent.upserted(savedProperty));
         return savedProperty;
     }
 
-    // ==================== SOFT DELETE USER PROPERTIES ====================
+    // ==================== FEATURED CLEANUP ====================
 
     /**
      * Deactivate featured entries for a given property
@@ -153,40 +165,16 @@ public class PropertyService {
         featuredPropertyRepository.saveAll(fps);
     }
 
-    @Transactional
-    public void softDeleteAllPropertiesForUser(Long userId) {
-        logger.info("Soft-deleting all properties for user ID: {}", userId);
-
-        List<Property> userProperties = repo.findByUserId(userId);
-        if (userProperties.isEmpty()) {
-            logger.info("No properties found for user {}.", userId);
-            return;
-        }
-
-        for (Property property : userProperties) {
-            property.setIsActive(false);
-            property.setStatus("DELETED");
-
-            // ⭐ ALSO deactivate featured records for each property
-            deactivateFeaturedForProperty(property.getId());
-        }
-
-        repo.saveAll(userProperties);
-        logger.info("Soft-deleted {} properties for user {}", userProperties.size(), userId);
-    }
-
     // ==================== Convert to DTO (with images) ====================
 
-    private PropertyDTO convertToDTO(Property property) {
+    // primaryImageUrl comes from the PropertyImage table (see PrimaryImageResolver)
+    private PropertyDTO convertToDTO(Property property, String primaryImageUrl) {
         PropertyDTO dto = new PropertyDTO();
 
         dto.setPropertyId(property.getId());
         dto.setTitle(property.getTitle());
         dto.setDescription(property.getDescription());
-
-        // ⭐ FIX: Get primary image URL from PropertyImage table
-        String imageUrl = getPrimaryImageUrl(property.getId());
-        dto.setImageUrl(imageUrl != null ? imageUrl : property.getImageUrl());
+        dto.setImageUrl(primaryImageUrl != null ? primaryImageUrl : property.getImageUrl());
 
         dto.setPrice(property.getPrice());
         dto.setPriceDisplay(property.getPriceDisplay());
@@ -244,23 +232,40 @@ public class PropertyService {
         return dto;
     }
 
-    private String getPrimaryImageUrl(Long propertyId) {
-        try {
-            List<PropertyImage> images = propertyImageRepository.findByPropertyId(propertyId);
-            if (images == null || images.isEmpty()) {
-                return null;
-            }
+    /**
+     * Convert a list of properties, resolving all primary images in one query.
+     * When featuredIds is given it overrides the stored isFeatured flag.
+     */
+    private List<PropertyDTO> convertAllToDTO(List<Property> properties, Set<Long> featuredIds) {
+        List<Long> ids = properties.stream().map(Property::getId).collect(Collectors.toList());
+        Map<Long, String> imageUrls = primaryImageResolver.resolve(ids);
 
-            PropertyImage primaryImage = images.stream()
-                    .filter(img -> Boolean.TRUE.equals(img.getIsPrimary()))
-                    .findFirst()
-                    .orElse(images.get(0));
+        return properties.stream()
+                .map(p -> {
+                    PropertyDTO dto = convertToDTO(p, imageUrls.get(p.getId()));
+                    if (featuredIds != null) dto.setIsFeatured(featuredIds.contains(p.getId()));
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
 
-            return primaryImage.getImageUrl();
-        } catch (Exception e) {
-            logger.warn("Could not resolve primary image for property {}: {}", propertyId, e.getMessage());
-            return null;
+    /**
+     * Finish rows from the PropertyDTO listing projection: swap in the primary image
+     * and, when featuredIds is given, the live featured flag. No entities involved.
+     */
+    private List<PropertyDTO> withImagesAndFeatured(List<PropertyDTO> dtos, Set<Long> featuredIds) {
+        primaryImageResolver.applyTo(dtos);
+        if (featuredIds != null) {
+            for (PropertyDTO dto : dtos) {
+                dto.setIsFeatured(featuredIds.contains(dto.getPropertyId()));
+            }
         }
+        return dtos;
+    }
+
+    private Set<Long> featuredIdsOf(List<PropertyDTO> dtos) {
+        return featuredIndexService.featuredAmong(
+                dtos.stream().map(PropertyDTO::getPropertyId).collect(Collectors.toList()));
     }
 
     // ==================== BASIC READ ====================
@@ -279,46 +284,64 @@ public class PropertyService {
 
     public List<PropertyDTO> getAllActivePropertiesWithAccurateFeaturedStatus() {
         logger.info("Fetching all active properties with accurate featured status");
-        List<Property> properties = repo.findByIsActiveTrueOrderByCreatedAtDesc();
+        List<PropertyDTO> properties = repo.findActiveCards();
         if (properties.isEmpty()) return List.of();
 
-        List<Long> propertyIds = properties.stream().map(Property::getId).collect(Collectors.toList());
-        LocalDateTime now = LocalDateTime.now();
-        List<Long> actuallyFeaturedIds = repo.findFeaturedPropertyIds(propertyIds, now);
-        Set<Long> featuredIdSet = new HashSet<>(actuallyFeaturedIds);
+        return withImagesAndFeatured(properties, featuredIdsOf(properties));
+    }
 
-        return properties.stream()
-                .map(p -> {
-                    PropertyDTO dto = convertToDTO(p);
-                    dto.setIsFeatured(featuredIdSet.contains(p.getId()));
-                    return dto;
-                })
-                .collect(Collectors.toList());
+    // ==================== STREAMING (NDJSON) ====================
+
+    /**
+     * Write every active property as one JSON line.
+     * Projected rows are streamed from MySQL and handled in chunks (featured
+     * flags and primary images resolved per chunk); nothing is held in the
+     * persistence context, so heap use stays flat regardless of catalog size.
+     * The streaming connection is busy until the end, so each chunk's lookups run
+     * in their own transaction: a stream holds two pooled connections at a time.
+     */
+    @Transactional(readOnly = true)
+    public void streamActivePropertiesAsNdjson(OutputStream out) throws IOException {
+        int written = 0;
+
+        try (Stream<PropertyDTO> stream = repo.streamActiveCards()) {
+            Iterator<PropertyDTO> it = stream.iterator();
+            List<PropertyDTO> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+
+            while (it.hasNext()) {
+                chunk.add(it.next());
+                if (chunk.size() == STREAM_CHUNK_SIZE || !it.hasNext()) {
+                    written += writeNdjsonChunk(chunk, out);
+                    chunk.clear();
+                }
+            }
+        }
+
+        out.flush();
+        logger.info("Streamed {} active properties as NDJSON", written);
+    }
+
+    private int writeNdjsonChunk(List<PropertyDTO> chunk, OutputStream out) throws IOException {
+        List<PropertyDTO> dtos = chunkTransaction.execute(status -> withImagesAndFeatured(chunk, featuredIdsOf(chunk)));
+        for (PropertyDTO dto : dtos) {
+            out.write(objectMapper.writeValueAsBytes(dto));
+            out.write('\n');
+        }
+        out.flush();
+        return chunk.size();
     }
 
     public List<PropertyDTO> getPropertiesByTypeAsDTO(String type) {
         logger.info("Fetching properties of type: {} as DTOs", type);
-        List<Property> properties = repo.findByTypeIgnoreCaseAndIsActiveTrue(type);
-        return properties.stream().map(this::convertToDTO).collect(Collectors.toList());
+        return withImagesAndFeatured(repo.findActiveCardsByType(type), null);
     }
 
     public List<PropertyDTO> getPropertiesByUserWithAccurateFeaturedStatus(Long userId) {
         logger.info("Fetching properties for user ID: {} with accurate featured status", userId);
-        List<Property> properties = repo.findByUserId(userId);
+        List<PropertyDTO> properties = repo.findActiveCardsByUserId(userId);
         if (properties.isEmpty()) return List.of();
 
-        List<Long> propertyIds = properties.stream().map(Property::getId).collect(Collectors.toList());
-        LocalDateTime now = LocalDateTime.now();
-        List<Long> actuallyFeaturedIds = repo.findFeaturedPropertyIds(propertyIds, now);
-        Set<Long> featuredIdSet = new HashSet<>(actuallyFeaturedIds);
-
-        return properties.stream()
-                .map(p -> {
-                    PropertyDTO dto = convertToDTO(p);
-                    dto.setIsFeatured(featuredIdSet.contains(p.getId()));
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        return withImagesAndFeatured(properties, featuredIdsOf(properties));
     }
 
     // ==================== UPDATE / DELETE ====================
@@ -371,7 +394,9 @@ public class PropertyService {
 
         if (propertyDetails.getType() != null) property.setType(propertyDetails.getType());
 
-        return repo.save(property);
+        Property saved = repo.save(property);
+        eventPublisher.publishEvent(PropertyChangedEvent.upserted(saved));
+        return saved;
     }
 
     public void deleteProperty(Long id) {
@@ -385,6 +410,7 @@ public class PropertyService {
         deactivateFeaturedForProperty(id);
 
         repo.save(property);
+        eventPublisher.publishEvent(PropertyChangedEvent.removed(property));
     }
 
     // ==================== QUICK SEARCH (DTO) ====================
@@ -393,7 +419,29 @@ public class PropertyService {
         if (q == null || q.trim().isEmpty()) return List.of();
 
         String trimmed = q.trim();
+        if (!quickSearchIndexService.isReady()) {
+            logger.warn("Quick search index not ready, searching database for '{}'", trimmed);
+            return quickSearchFromDatabase(trimmed);
+        }
+
+        // Candidate ids come from the in-memory index; one projection query loads them
+        List<Long> ids = quickSearchIndexService.search(trimmed, QUICK_SEARCH_MAX_RESULTS);
+        if (ids.isEmpty()) return List.of();
+
+        Map<Long, PropertyDTO> byId = repo.findCardsByIds(ids).stream()
+                .collect(Collectors.toMap(PropertyDTO::getPropertyId, p -> p));
 
+        List<PropertyDTO> page = ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return withImagesAndFeatured(page, featuredIdsOf(page));
+    }
+
+    /**
+     * Original LIKE-based quick search, used until the index has been built
+     */
+    private List<PropertyDTO> quickSearchFromDatabase(String trimmed) {
         List<Property> primary = repo.quickSearch(trimmed);
         List<Property> byArea = repo.searchByArea(trimmed);
         List<Property> byId = new ArrayList<>();
@@ -426,40 +474,23 @@ public class PropertyService {
         if (mergedList.isEmpty()) return List.of();
 
         List<Long> ids = mergedList.stream().map(Property::getId).collect(Collectors.toList());
-        List<Long> actuallyFeatured = repo.findFeaturedPropertyIds(ids, LocalDateTime.now());
-        Set<Long> featuredSet = new HashSet<>(actuallyFeatured);
+        Set<Long> featuredSet = featuredIndexService.featuredAmong(ids);
 
-        return mergedList.stream()
-                .map(p -> {
-                    PropertyDTO dto = convertToDTO(p);
-                    dto.setIsFeatured(featuredSet.contains(p.getId()));
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        return convertAllToDTO(mergedList, featuredSet);
     }
 
     public List<PropertyDTO> searchByAreaAsDTO(String area) {
         if (area == null || area.trim().isEmpty()) return List.of();
-        List<Property> list = repo.searchByArea(area.trim());
+        List<PropertyDTO> list = repo.searchCardsByArea(area.trim());
         if (list.isEmpty()) return List.of();
 
-        List<Long> ids = list.stream().map(Property::getId).collect(Collectors.toList());
-        List<Long> actuallyFeatured = repo.findFeaturedPropertyIds(ids, LocalDateTime.now());
-        Set<Long> featuredSet = new HashSet<>(actuallyFeatured);
-
-        return list.stream()
-                .map(p -> {
-                    PropertyDTO dto = convertToDTO(p);
-                    dto.setIsFeatured(featuredSet.contains(p.getId()));
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        return withImagesAndFeatured(list, featuredIdsOf(list));
     }
 
     public boolean isPropertyFeatured(Long propertyId) {
         if (propertyId == null) return false;
         try {
-            return repo.isPropertyActuallyFeatured(propertyId, LocalDateTime.now());
+            return featuredIndexService.isFeatured(propertyId);
         } catch (Exception e) {
             logger.error("Error while checking featured status for property {}: {}", propertyId, e.getMessage(), e);
             return false;
@@ -473,7 +504,6 @@ public class PropertyService {
 
     public List<PropertyDTO> findByAreaNameAsDTO(String areaName) {
         logger.info("Finding properties by area name as DTOs: {}", areaName);
-        List<Property> properties = repo.findByAreaNameAndIsActiveTrue(areaName);
-        return properties.stream().map(this::convertToDTO).collect(Collectors.toList());
+        return withImagesAndFeatured(repo.findActiveCardsByAreaName(areaName), null);
     }
 }
@@ -0,0 +1,202 @@
+package com.example.realestate.service;
+
+import com.example.realestate.event.PropertyChangedEvent;
+import com.example.realestate.model.Property;
+import com.example.realestate.repository.PropertyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory trigram index over active properties used by the quick search box.
+ * Covers the same fields the old LIKE queries scanned (id, title, description,
+ * address, city), plus area name and owner name, so one lookup replaces the
+ * quickSearch / searchByArea / user-name queries.
+ */
+@Service
+public class QuickSearchIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuickSearchIndexService.class);
+
+    private static final int GRAM_SIZE = 3;
+    private static final char FIELD_SEPARATOR = '\u0001';
+
+    private final PropertyRepository propertyRepository;
+
+    // trigram -> ids of properties whose text contains it
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    // property id -> normalized searchable text (used to verify matches and to unindex)
+    private final Map<Long, String> documents = new ConcurrentHashMap<>();
+
+    private volatile boolean ready = false;
+
+    public QuickSearchIndexService(PropertyRepository propertyRepository) {
+        this.propertyRepository = propertyRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the whole index from the database
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        ready = false;
+        postings.clear();
+        documents.clear();
+
+        try {
+            for (Object[] row : propertyRepository.findQuickSearchDocuments()) {
+                Long id = (Long) row[0];
+                index(id, buildDocument(id, (String) row[1], (String) row[2], (String) row[3],
+                        (String) row[4], (String) row[5], (String) row[6], (String) row[7], (String) row[8]));
+            }
+            ready = true;
+            logger.info("Quick search index built: {} properties, {} trigrams in {} ms",
+                    documents.size(), postings.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Quick search index build failed, quick search will use the database: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Keep the index in step with committed property changes
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        if (event.getPropertyId() == null) return;
+
+        if (event.isRemoval()) {
+            remove(event.getPropertyId());
+        } else {
+            upsert(event.getProperty());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Return ids of matching properties, newest (highest id) first
+     */
+    public List<Long> search(String query, int limit) {
+        String needle = normalize(query);
+        if (needle.isEmpty()) return List.of();
+
+        Collection<Long> candidates = needle.length() < GRAM_SIZE
+                ? documents.keySet()
+                : candidatesFor(needle);
+
+        // Trigram hits are only candidates; confirm the full substring is present
+        return candidates.stream()
+                .filter(id -> {
+                    String doc = documents.get(id);
+                    return doc != null && doc.contains(needle);
+                })
+                .sorted(Comparator.reverseOrder())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    // ==================== INTERNALS ====================
+
+    private synchronized void upsert(Property p) {
+        remove(p.getId());
+
+        String areaName = p.getArea() != null ? p.getArea().getAreaName() : null;
+        String firstName = null, lastName = null, username = null;
+        if (p.getUser() != null) {
+            firstName = p.getUser().getFirstName();
+            lastName = p.getUser().getLastName();
+            username = p.getUser().getUsername();
+        }
+
+        index(p.getId(), buildDocument(p.getId(), p.getTitle(), p.getDescription(), p.getAddress(),
+                p.getCity(), areaName, firstName, lastName, username));
+    }
+
+    private synchronized void remove(Long id) {
+        String doc = documents.remove(id);
+        if (doc == null) return;
+
+        for (String gram : grams(doc)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) continue;
+            ids.remove(id);
+            if (ids.isEmpty()) postings.remove(gram);
+        }
+    }
+
+    private void index(Long id, String doc) {
+        documents.put(id, doc);
+        for (String gram : grams(doc)) {
+            postings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private Collection<Long> candidatesFor(String needle) {
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : grams(needle)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) return List.of();
+            lists.add(ids);
+        }
+
+        // Walk the rarest trigram and probe the rest
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> smallest = lists.get(0);
+        List<Set<Long>> others = lists.subList(1, lists.size());
+
+        List<Long> out = new ArrayList<>();
+        for (Long id : smallest) {
+            boolean inAll = true;
+            for (Set<Long> other : others) {
+                if (!other.contains(id)) {
+                    inAll = false;
+                    break;
+                }
+            }
+            if (inAll) out.add(id);
+        }
+        return out;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> out = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= text.length(); i++) {
+            String gram = text.substring(i, i + GRAM_SIZE);
+            if (gram.indexOf(FIELD_SEPARATOR) < 0) out.add(gram);
+        }
+        return out;
+    }
+
+    private static String buildDocument(Long id, String... fields) {
+        StringBuilder sb = new StringBuilder(String.valueOf(id));
+        for (String field : fields) {
+            String value = normalize(field);
+            if (!value.isEmpty()) sb.append(FIELD_SEPARATOR).append(value);
+        }
+        return sb.toString();
+    }
+
+    private static String normalize(String s) {
+        if (s == null) return "";
+        return s.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
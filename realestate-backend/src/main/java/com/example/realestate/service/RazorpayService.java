@@ -17,11 +17,13 @@ import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
-public class RazorpayService {
+public class RazorpayService implements OrderPaymentLookup {
 
     private static final Logger logger = LoggerFactory.getLogger(RazorpayService.class);
 
@@ -163,20 +165,8 @@ public class RazorpayService {
             RazorpayClient client = getRazorpayClient();
             com.razorpay.Payment payment = client.payments.fetch(paymentId);
 
-            Map<String, Object> paymentData = new HashMap<>();
-            paymentData.put("id", payment.get("id"));
-            paymentData.put("entity", payment.get("entity"));
-            paymentData.put("amount", payment.get("amount"));
-            paymentData.put("currency", payment.get("currency"));
-            paymentData.put("status", payment.get("status"));
-            paymentData.put("order_id", payment.get("order_id"));
-            paymentData.put("method", payment.get("method"));
-            paymentData.put("email", payment.get("email"));
-            paymentData.put("contact", payment.get("contact"));
-            paymentData.put("created_at", payment.get("created_at"));
-
             logger.info("✅ Payment details fetched successfully");
-            return paymentData;
+            return toPaymentDetails(payment);
 
         } catch (RazorpayException e) {
             logger.error("❌ Error fetching payment details", e);
@@ -184,6 +174,39 @@ public class RazorpayService {
         }
     }
 
+    /**
+     * Fetch all payment attempts of an order (same fields as fetchPaymentDetails)
+     */
+    @Override
+    public List<Map<String, Object>> fetchOrderPayments(String orderId) {
+        try {
+            List<Map<String, Object>> payments = new ArrayList<>();
+            for (com.razorpay.Payment payment : getRazorpayClient().orders.fetchPayments(orderId)) {
+                payments.add(toPaymentDetails(payment));
+            }
+            return payments;
+
+        } catch (RazorpayException e) {
+            logger.error("❌ Error fetching payments for order {}", orderId, e);
+            throw new RuntimeException("Failed to fetch order payments: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> toPaymentDetails(com.razorpay.Payment payment) {
+        Map<String, Object> paymentData = new HashMap<>();
+        paymentData.put("id", payment.get("id"));
+        paymentData.put("entity", payment.get("entity"));
+        paymentData.put("amount", payment.get("amount"));
+        paymentData.put("currency", payment.get("currency"));
+        paymentData.put("status", payment.get("status"));
+        paymentData.put("order_id", payment.get("order_id"));
+        paymentData.put("method", payment.get("method"));
+        paymentData.put("email", payment.get("email"));
+        paymentData.put("contact", payment.get("contact"));
+        paymentData.put("created_at", payment.get("created_at"));
+        return paymentData;
+    }
+
     /**
      * Capture payment (for authorized payments)
      */
@@ -1,151 +1,341 @@
 package com.example.realestate.service;
 
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.BlockingInputStreamAsyncRequestBody;
 import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.nio.file.Path;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
-
+import java.io.InputStream;
+import java.net.URI;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BlobStore on S3 (the default, storage.backend=s3). Uploads go to S3 straight from
+ * the request stream, without temp files.
+ *
+ * The async client switches to multipart upload above aws.s3.multipart-threshold-bytes.
+ * Each upload runs on a thread of a small feeder pool, which opens the S3 request and
+ * feeds the body from the InputStream; the SDK only pulls as fast as it can send, so a
+ * slow S3 connection throttles the reader instead of buffering the file in memory.
+ * Uploads beyond the pool wait in a bounded queue without an S3 request open; when
+ * that is full too the upload fails with BusyException (503). While the bytes
+ * stream past, their SHA-256 and length are computed; the SDK also sends a SHA-256
+ * checksum that S3 verifies on its side. A length mismatch or checksum disagreement
+ * fails the upload and removes the object.
+ *
+ * Clients can also skip the app server: presignPut/presignGet hand out short-lived
+ * urls for the same key layout. aws.s3.endpoint (with aws.s3.path-style=true)
+ * points everything at an S3-compatible stand-in such as MinIO or LocalStack.
+ */
 @Service
-public class S3Service {
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3", matchIfMissing = true)
+public class S3Service implements BlobStore {
 
     private static final Logger logger = LoggerFactory.getLogger(S3Service.class);
 
-    private final S3Client s3Client;
+    private final S3AsyncClient s3Client;
+    private final S3Presigner presigner;
     private final String bucketName;
     private final Region awsRegion;
+    private final String endpoint;
+    private final ExecutorService feeder;
 
     public S3Service(@Value("${aws.accessKeyId}") String accessKey,
                      @Value("${aws.secretKey}") String secretKey,
                      @Value("${aws.region}") String region,
-                     @Value("${aws.s3.bucket}") String bucketName) {
+                     @Value("${aws.s3.bucket}") String bucketName,
+                     @Value("${aws.s3.multipart-threshold-bytes:8388608}") long multipartThreshold,
+                     @Value("${aws.s3.multipart-part-bytes:8388608}") long partSize,
+                     @Value("${aws.s3.upload-feeders:16}") int feeders,
+                     @Value("${aws.s3.upload-queue-capacity:64}") int queueCapacity,
+                     @Value("${aws.s3.endpoint:}") String endpoint,
+                     @Value("${aws.s3.path-style:false}") boolean pathStyle) {
 
         this.awsRegion = Region.of(region);
         this.bucketName = bucketName;
+        this.endpoint = endpoint.isBlank() ? null : endpoint.replaceAll("/+$", "");
 
         AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
-        this.s3Client = S3Client.builder()
+        S3AsyncClientBuilder client = S3AsyncClient.builder()
                 .region(awsRegion)
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
-                .build();
+                .forcePathStyle(pathStyle)
+                .multipartEnabled(true)
+                .multipartConfiguration(c -> c
+                        .thresholdInBytes(multipartThreshold)
+                        .minimumPartSizeInBytes(partSize));
+        S3Presigner.Builder signer = S3Presigner.builder()
+                .region(awsRegion)
+                .credentialsProvider(StaticCredentialsProvider.create(credentials))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(pathStyle).build());
+        if (this.endpoint != null) {
+            client.endpointOverride(URI.create(this.endpoint));
+            signer.endpointOverride(URI.create(this.endpoint));
+        }
+        this.s3Client = client.build();
+        this.presigner = signer.build();
+
+        int threads = Math.max(1, feeders);
+        this.feeder = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                    Thread t = new Thread(r, "s3-upload-feeder");
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        logger.info("✅ S3Service initialized - Bucket: {}, Region: {}, Endpoint: {}",
+                bucketName, awsRegion, this.endpoint != null ? this.endpoint : "AWS");
+    }
 
-        logger.info("✅ S3Service initialized - Bucket: {}, Region: {}", bucketName, awsRegion);
+    @PreDestroy
+    public void shutdown() {
+        feeder.shutdownNow();
+        s3Client.close();
+        presigner.close();
     }
 
-    /**
-     * Upload file to S3 with custom key
-     */
-    public String uploadFile(String key, Path filePath, String contentType) throws IOException {
-        logger.info("📤 Uploading file to S3");
-        logger.info("   Bucket: {}", bucketName);
-        logger.info("   Key: {}", key);
-        logger.info("   ContentType: {}", contentType);
-        logger.info("   FilePath: {}", filePath);
+    @Override
+    public CompletableFuture<UploadResult> uploadStream(String key, InputStream in, long contentLength, String contentType) {
+        logger.info("📤 Uploading to S3 - Bucket: {}, Key: {}, ContentType: {}, Size: {} bytes",
+                bucketName, key, contentType, contentLength);
 
         PutObjectRequest putRequest = PutObjectRequest.builder()
                 .bucket(bucketName)
                 .key(key)
                 .contentType(contentType)
+                .contentLength(contentLength)
+                .checksumAlgorithm(ChecksumAlgorithm.SHA256)
                 .acl("public-read")
                 .build();
 
-        PutObjectResponse response = s3Client.putObject(putRequest, filePath);
-        String fileUrl = String.format("https://%s.s3.%s.amazonaws.com/%s", bucketName, awsRegion.id(), key);
-
-        logger.info("✅ File uploaded successfully!");
-        logger.info("   URL: {}", fileUrl);
-        logger.info("   ETag: {}", response.eTag());
-
-        return fileUrl;
+        CountingDigestStream source;
+        try {
+            source = new CountingDigestStream(in);
+        } catch (NoSuchAlgorithmException e) {
+            closeQuietly(in);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<UploadResult> upload = new CompletableFuture<>();
+        try {
+            // Blocks a feeder thread (not a servlet thread) for as long as S3 keeps asking for data.
+            // The request is only opened here, so a queued upload holds no idle S3 connection.
+            feeder.execute(() -> {
+                long start = System.currentTimeMillis();
+                BlockingInputStreamAsyncRequestBody body = AsyncRequestBody.forBlockingInputStream(contentLength);
+                s3Client.putObject(putRequest, body)
+                        .thenCompose(response -> verify(key, source, contentLength, response, start))
+                        .whenComplete((result, error) -> {
+                            if (error == null) upload.complete(result);
+                            else upload.completeExceptionally(error);
+                        });
+                try (InputStream stream = source) {
+                    body.writeInputStream(stream);
+                } catch (Exception e) {
+                    logger.error("❌ Feeding upload stream for {} failed: {}", key, e.getMessage());
+                    upload.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            closeQuietly(source);
+            logger.warn("⚠️ Upload queue full, rejecting {}", key);
+            return CompletableFuture.failedFuture(new BusyException());
+        }
+        return upload;
     }
 
-    /**
-     * Upload property image to S3 (organized by property ID)
-     */
-    public String uploadPropertyImage(Long propertyId, Path filePath, String originalFilename, String contentType) throws IOException {
-        logger.info("🏠 UPLOADING PROPERTY IMAGE");
-        logger.info("   Property ID: {}", propertyId);
-        logger.info("   Original Filename: {}", originalFilename);
-
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String uniqueId = UUID.randomUUID().toString().substring(0, 8);
-        String sanitizedFilename = sanitizeFilename(originalFilename);
-
-        // Structure: properties/{propertyId}/images/{timestamp}_{uniqueId}_{filename}
-        String key = String.format("properties/%d/images/%s_%s_%s",
-                propertyId, timestamp, uniqueId, sanitizedFilename);
-
-        logger.info("   Generated S3 Key: {}", key);
-        logger.info("   This will create folder structure: properties/{}/images/", propertyId);
-
-        String result = uploadFile(key, filePath, contentType);
-
-        logger.info("✅ ✅ ✅ PROPERTY IMAGE UPLOADED SUCCESSFULLY");
-        logger.info("   Check S3 bucket '{}' under path: properties/{}/images/", bucketName, propertyId);
-
-        return result;
+    @Override
+    public CompletableFuture<Void> delete(String key) {
+        return s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucketName).key(key).build())
+                .thenAccept(response -> logger.info("🗑️ Deleted S3 object {}", key));
     }
 
-    /**
-     * Upload property document to S3 (organized by property ID)
-     */
-    public String uploadPropertyDocument(Long propertyId, Path filePath, String originalFilename, String contentType) throws IOException {
-        logger.info("📄 UPLOADING PROPERTY DOCUMENT");
-        logger.info("   Property ID: {}", propertyId);
+    @Override
+    public CompletableFuture<byte[]> download(String key) {
+        return s3Client.getObject(GetObjectRequest.builder().bucket(bucketName).key(key).build(),
+                        AsyncResponseTransformer.toBytes())
+                .thenApply(ResponseBytes::asByteArray);
+    }
 
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String uniqueId = UUID.randomUUID().toString().substring(0, 8);
-        String sanitizedFilename = sanitizeFilename(originalFilename);
+    // ==================== PRESIGNED URLS ====================
 
-        // Structure: properties/{propertyId}/documents/{timestamp}_{uniqueId}_{filename}
-        String key = String.format("properties/%d/documents/%s_%s_%s",
-                propertyId, timestamp, uniqueId, sanitizedFilename);
+    // Without publicRead the object gets the bucket's default (private) ACL
+    @Override
+    public PresignedRequest presignPut(String key, String contentType, long contentLength,
+                                       boolean publicRead, Duration ttl) {
+        PutObjectRequest.Builder put = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .contentLength(contentLength);
+        if (publicRead) put.acl("public-read");
+
+        PresignedPutObjectRequest presigned = presigner.presignPutObject(r -> r
+                .signatureDuration(ttl)
+                .putObjectRequest(put.build()));
+        logger.info("🔏 Presigned PUT for {} ({} bytes, {}) valid {}s", key, contentLength, contentType, ttl.getSeconds());
+        return new PresignedRequest(key, presigned.url().toString(), "PUT",
+                clientHeaders(presigned.signedHeaders()), presigned.expiration());
+    }
 
-        logger.info("   Generated S3 Key: {}", key);
+    @Override
+    public PresignedRequest presignGet(String key, String downloadName, Duration ttl) {
+        GetObjectRequest get = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .responseContentDisposition("attachment; filename=\"" + BlobStore.sanitizeFilename(downloadName) + "\"")
+                .build();
 
-        return uploadFile(key, filePath, contentType);
+        PresignedGetObjectRequest presigned = presigner.presignGetObject(r -> r
+                .signatureDuration(ttl)
+                .getObjectRequest(get));
+        return new PresignedRequest(key, presigned.url().toString(), "GET", Map.of(), presigned.expiration());
     }
 
-    /**
-     * Upload deal document to S3 (organized by deal ID and property ID)
-     */
-    public String uploadDealDocument(Long dealId, Long propertyId, Path filePath, String originalFilename, String contentType) throws IOException {
-        logger.info("🔐 UPLOADING DEAL DOCUMENT");
-        logger.info("   Deal ID: {}", dealId);
-        logger.info("   Property ID: {}", propertyId);
+    @Override
+    public CompletableFuture<ObjectInfo> stat(String key) {
+        return s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(key).build())
+                .handle((head, error) -> {
+                    if (error == null) return new ObjectInfo(head.contentLength(), head.contentType());
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    if (cause instanceof NoSuchKeyException
+                            || (cause instanceof S3Exception && ((S3Exception) cause).statusCode() == 404)) {
+                        throw new NotFoundException(key);
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
 
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String uniqueId = UUID.randomUUID().toString().substring(0, 8);
-        String sanitizedFilename = sanitizeFilename(originalFilename);
+    @Override
+    public String urlFor(String key) {
+        if (endpoint != null) return endpoint + "/" + bucketName + "/" + key; // stand-ins are path-style
+        return String.format("https://%s.s3.%s.amazonaws.com/%s", bucketName, awsRegion.id(), key);
+    }
 
-        // Structure: properties/{propertyId}/deals/{dealId}/documents/{timestamp}_{uniqueId}_{filename}
-        String key = String.format("properties/%d/deals/%d/documents/%s_%s_%s",
-                propertyId, dealId, timestamp, uniqueId, sanitizedFilename);
+    private CompletableFuture<UploadResult> verify(String key, CountingDigestStream source, long contentLength,
+                                                   PutObjectResponse response, long start) {
+        String sha256 = source.sha256Hex();
+        String integrityError = null;
+        if (source.count != contentLength) {
+            integrityError = String.format("Size mismatch: expected %d bytes, read %d", contentLength, source.count);
+        } else if (response.checksumSHA256() != null && !response.checksumSHA256().contains("-")
+                && !response.checksumSHA256().equals(source.sha256Base64())) {
+            integrityError = "SHA-256 mismatch between uploaded and stored object";
+        }
+
+        if (integrityError != null) {
+            logger.error("❌ Integrity check failed for {}: {}", key, integrityError);
+            String message = integrityError;
+            return delete(key).<UploadResult>handle((ignored, deleteError) -> {
+                throw new IllegalStateException(message);
+            });
+        }
+
+        String fileUrl = urlFor(key);
+        logger.info("✅ File uploaded in {} ms - URL: {}, ETag: {}",
+                System.currentTimeMillis() - start, fileUrl, response.eTag());
+        return CompletableFuture.completedFuture(new UploadResult(key, fileUrl, contentLength, sha256));
+    }
 
-        logger.info("   Generated S3 Key: {}", key);
+    // Host is set by the HTTP client itself
+    private static Map<String, String> clientHeaders(Map<String, List<String>> signed) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        signed.forEach((name, values) -> {
+            if (!"host".equalsIgnoreCase(name)) headers.put(name, String.join(",", values));
+        });
+        return headers;
+    }
 
-        return uploadFile(key, filePath, contentType);
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // nothing left to do with it
+        }
     }
 
     /**
-     * Sanitize filename to remove special characters
+     * Hashes and counts the bytes as the SDK pulls them
      */
-    private String sanitizeFilename(String filename) {
-        if (filename == null) return "file";
-        // Remove special characters but keep extension
-        String sanitized = filename.replaceAll("[^a-zA-Z0-9._-]", "_");
-        logger.debug("   Sanitized filename: {} -> {}", filename, sanitized);
-        return sanitized;
+    private static final class CountingDigestStream extends FilterInputStream {
+        private final MessageDigest digest;
+        private long count;
+        private byte[] hash;
+
+        CountingDigestStream(InputStream in) throws NoSuchAlgorithmException {
+            this(in, MessageDigest.getInstance("SHA-256"));
+        }
+
+        private CountingDigestStream(InputStream in, MessageDigest digest) {
+            super(new DigestInputStream(in, digest));
+            this.digest = digest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        synchronized byte[] hash() {
+            if (hash == null) hash = digest.digest();
+            return hash;
+        }
+
+        String sha256Hex() {
+            return HexFormat.of().formatHex(hash());
+        }
+
+        String sha256Base64() {
+            return Base64.getEncoder().encodeToString(hash());
+        }
     }
 }
@@ -0,0 +1,75 @@
+package com.example.realestate.service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor: the (sort key, id) of the last row of a page, plus the
+ * sort it was issued for so it can't be replayed against a different ordering.
+ */
+final class SearchCursor {
+
+    private static final String SEPARATOR = "|";
+    private static final String NULL_KEY = "~";
+
+    private final String sortBy;
+    private final boolean ascending;
+    private final Object key; // null = row had no value for the sort column
+    private final long id;
+
+    SearchCursor(String sortBy, boolean ascending, Object key, long id) {
+        this.sortBy = sortBy;
+        this.ascending = ascending;
+        this.key = key;
+        this.id = id;
+    }
+
+    String getSortBy() { return sortBy; }
+    boolean isAscending() { return ascending; }
+    Object getKey() { return key; }
+    long getId() { return id; }
+
+    boolean isNullSegment() {
+        return key == null;
+    }
+
+    String encode() {
+        String raw = String.join(SEPARATOR, sortBy, ascending ? "A" : "D", keyToString(), String.valueOf(id));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static SearchCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, -1);
+            if (parts.length != 4) throw new IllegalArgumentException("Malformed cursor");
+
+            String sortBy = parts[0];
+            boolean ascending = "A".equals(parts[1]);
+            Object key = NULL_KEY.equals(parts[2]) ? null : parseKey(sortBy, parts[2]);
+            return new SearchCursor(sortBy, ascending, key, Long.parseLong(parts[3]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private String keyToString() {
+        if (key == null) return NULL_KEY;
+        if (key instanceof BigDecimal) return ((BigDecimal) key).toPlainString();
+        return key.toString();
+    }
+
+    private static Object parseKey(String sortBy, String value) {
+        switch (sortBy) {
+            case "price":
+            case "areaSqft":
+                return new BigDecimal(value);
+            case "createdAt":
+                return LocalDateTime.parse(value);
+            default:
+                throw new IllegalArgumentException("Unsupported cursor sort: " + sortBy);
+        }
+    }
+}
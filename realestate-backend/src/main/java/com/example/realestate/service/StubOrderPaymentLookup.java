@@ -0,0 +1,37 @@
+package com.example.realestate.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Local stand-in for Razorpay during reconciliation: orders listed in
+ * payments.reconcile.stub.paid-orders have one captured payment, every other
+ * order has none (and is failed once it is old enough).
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "payments.reconcile.stub", havingValue = "true")
+public class StubOrderPaymentLookup implements OrderPaymentLookup {
+
+    private static final Logger logger = LoggerFactory.getLogger(StubOrderPaymentLookup.class);
+
+    @Value("${payments.reconcile.stub.paid-orders:}")
+    private Set<String> paidOrders;
+
+    @Override
+    public List<Map<String, Object>> fetchOrderPayments(String orderId) {
+        if (paidOrders.contains(orderId)) {
+            logger.info("Stub: order {} reported as captured", orderId);
+            return List.of(Map.of("id", "pay_stub_" + orderId, "status", "captured", "order_id", orderId));
+        }
+        return List.of();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.realestate.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Hierarchical timing wheel. The lowest level has wheelSize buckets of tickMs each;
+ * a deadline beyond its span goes to an overflow wheel whose tick is the whole span
+ * of the level below (created on demand), so far-off deadlines cost nothing until
+ * they get close. Non-empty buckets of every level sit in one queue ordered by
+ * expiry; advance() drains expired buckets and re-inserts their entries, which
+ * cascade down a level or come out as due.
+ *
+ * Not thread-safe; callers synchronize.
+ */
+final class TimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long interval;
+    private final List<Bucket<T>> buckets;
+    private final PriorityQueue<Bucket<T>> queue; // shared by all levels
+
+    private long currentTime; // multiple of tickMs
+    private TimingWheel<T> overflow;
+
+    TimingWheel(long tickMs, int wheelSize, long startMs) {
+        this(tickMs, wheelSize, startMs, new PriorityQueue<>(Comparator.comparingLong((Bucket<T> b) -> b.expiration)));
+    }
+
+    private TimingWheel(long tickMs, int wheelSize, long startMs, PriorityQueue<Bucket<T>> queue) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.interval = tickMs * wheelSize;
+        this.queue = queue;
+        this.currentTime = startMs - (startMs % tickMs);
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) buckets.add(new Bucket<>());
+    }
+
+    /**
+     * Schedule payload at deadlineMs; returns false if the deadline falls in the current
+     * tick, in which case the caller should treat it as due now. A bucket expires at the
+     * start of its tick, so an entry can come out up to tickMs early; callers that must
+     * not fire before the deadline round it up to a tick boundary first.
+     */
+    boolean add(long deadlineMs, T payload) {
+        if (deadlineMs < currentTime + tickMs) return false;
+
+        if (deadlineMs < currentTime + interval) {
+            long virtualId = deadlineMs / tickMs;
+            Bucket<T> bucket = buckets.get((int) (virtualId % wheelSize));
+            bucket.deadlines.add(deadlineMs);
+            bucket.payloads.add(payload);
+
+            long expiration = virtualId * tickMs;
+            if (bucket.expiration != expiration) {
+                bucket.expiration = expiration;
+                queue.add(bucket);
+            }
+            return true;
+        }
+
+        if (overflow == null) overflow = new TimingWheel<>(interval, wheelSize, currentTime, queue);
+        return overflow.add(deadlineMs, payload);
+    }
+
+    /**
+     * Move time forward to nowMs and return every payload whose deadline's tick has started
+     */
+    List<T> advance(long nowMs) {
+        List<T> due = new ArrayList<>();
+
+        Bucket<T> head;
+        while ((head = queue.peek()) != null && head.expiration <= nowMs) {
+            queue.poll();
+            advanceClock(head.expiration);
+
+            List<Long> deadlines = new ArrayList<>(head.deadlines);
+            List<T> payloads = new ArrayList<>(head.payloads);
+            head.clear();
+            for (int i = 0; i < deadlines.size(); i++) {
+                if (!add(deadlines.get(i), payloads.get(i))) due.add(payloads.get(i));
+            }
+        }
+
+        // Safe once nothing pending is older than nowMs; keeps new deadlines on the low levels
+        advanceClock(nowMs);
+        return due;
+    }
+
+    boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    private void advanceClock(long timeMs) {
+        if (timeMs >= currentTime + tickMs) {
+            currentTime = timeMs - (timeMs % tickMs);
+            if (overflow != null) overflow.advanceClock(currentTime);
+        }
+    }
+
+    private static final class Bucket<T> {
+        final List<Long> deadlines = new ArrayList<>();
+        final List<T> payloads = new ArrayList<>();
+        long expiration = -1;
+
+        void clear() {
+            deadlines.clear();
+            payloads.clear();
+            expiration = -1;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.realestate.service;
+
+import com.example.realestate.event.PropertyChangedEvent;
+import com.example.realestate.model.DealStatus;
+import com.example.realestate.model.DeletionJob;
+import com.example.realestate.repository.*;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Cascade deletion of users and agents as a background job, replacing the
+ * load-everything-then-deleteAll path in one long transaction.
+ *
+ * Each phase repeatedly picks the next chunk of ids and removes it with set-based
+ * DELETE / UPDATE ... WHERE id IN (...) statements in its own short transaction,
+ * together with the job's progress. Every step only selects rows that still need
+ * work, so a job resumed after a crash (or retried after a failure) just continues.
+ *
+ * Jobs run one at a time on a single worker thread.
+ */
+@Service
+public class UserDeletionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDeletionService.class);
+
+    private static final List<DeletionJob.Status> UNFINISHED =
+            List.of(DeletionJob.Status.PENDING, DeletionJob.Status.RUNNING, DeletionJob.Status.FAILED);
+
+    private final DeletionJobRepository jobRepository;
+    private final DealStatusRepository dealStatusRepository;
+    private final DealEventRepository dealEventRepository;
+    private final PropertyRepository propertyRepository;
+    private final FeaturedPropertyRepository featuredPropertyRepository;
+    private final UserRepository userRepository;
+    private final DealStageCounterService dealStageCounterService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "user-deletion");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Value("${deletion.chunk-size:500}")
+    private int chunkSize;
+
+    // Breathing room between chunks for regular traffic on the same tables
+    @Value("${deletion.chunk-pause-ms:50}")
+    private long chunkPauseMs;
+
+    public UserDeletionService(DeletionJobRepository jobRepository,
+                               DealStatusRepository dealStatusRepository,
+                               DealEventRepository dealEventRepository,
+                               PropertyRepository propertyRepository,
+                               FeaturedPropertyRepository featuredPropertyRepository,
+                               UserRepository userRepository,
+                               DealStageCounterService dealStageCounterService,
+                               ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager) {
+        this.jobRepository = jobRepository;
+        this.dealStatusRepository = dealStatusRepository;
+        this.dealEventRepository = dealEventRepository;
+        this.propertyRepository = propertyRepository;
+        this.featuredPropertyRepository = featuredPropertyRepository;
+        this.userRepository = userRepository;
+        this.dealStageCounterService = dealStageCounterService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Queue deletion of a user (and, for agents, their assigned deals). If the user
+     * already has an unfinished job, that job is returned and (if it failed) retried.
+     */
+    public DeletionJob submit(Long userId, boolean agent) {
+        Optional<DeletionJob> existing = jobRepository.findFirstByUserIdAndStatusIn(userId, UNFINISHED);
+        if (existing.isPresent()) {
+            DeletionJob job = existing.get();
+            if (job.getStatus() == DeletionJob.Status.FAILED) {
+                logger.info("Retrying failed deletion job {} for user {}", job.getId(), userId);
+                job.setStatus(DeletionJob.Status.PENDING);
+                job.setError(null);
+                job.setUpdatedAt(LocalDateTime.now());
+                job = jobRepository.save(job);
+                enqueue(job.getId());
+            }
+            return job;
+        }
+
+        DeletionJob job = jobRepository.save(new DeletionJob(userId, agent));
+        logger.info("🗑️ Queued deletion job {} for user {} (agent: {})", job.getId(), userId, agent);
+        enqueue(job.getId());
+        return job;
+    }
+
+    public Optional<DeletionJob> getJob(Long jobId) {
+        return jobRepository.findById(jobId);
+    }
+
+    /**
+     * Pick up jobs that were queued or running when the application stopped
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        List<DeletionJob> pending = jobRepository.findByStatusInOrderByIdAsc(
+                List.of(DeletionJob.Status.PENDING, DeletionJob.Status.RUNNING));
+        if (!pending.isEmpty()) {
+            logger.info("Resuming {} unfinished deletion jobs", pending.size());
+        }
+        pending.forEach(job -> enqueue(job.getId()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Interrupted jobs stay RUNNING in the table and are resumed on the next start
+        worker.shutdownNow();
+    }
+
+    // ==================== JOB EXECUTION ====================
+
+    private void enqueue(Long jobId) {
+        worker.submit(() -> run(jobId));
+    }
+
+    private void run(Long jobId) {
+        DeletionJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() == DeletionJob.Status.COMPLETED) return;
+
+        job.setStatus(DeletionJob.Status.RUNNING);
+        job = touch(job);
+        long start = System.currentTimeMillis();
+
+        try {
+            while (job.getPhase() != DeletionJob.Phase.DONE) {
+                if (Thread.currentThread().isInterrupted()) return;
+
+                boolean more = runChunk(job);
+                job = jobRepository.findById(jobId).orElseThrow();
+                if (!more) {
+                    job.setPhase(nextPhase(job.getPhase()));
+                    job = touch(job);
+                } else if (chunkPauseMs > 0) {
+                    Thread.sleep(chunkPauseMs);
+                }
+            }
+
+            job.setStatus(DeletionJob.Status.COMPLETED);
+            job.setCompletedAt(LocalDateTime.now());
+            touch(job);
+            logger.info("✅ Deletion job {} for user {} completed in {} ms: {} deals, {} properties, {} featured",
+                    jobId, job.getUserId(), System.currentTimeMillis() - start,
+                    job.getDealsDeleted(), job.getPropertiesDeactivated(), job.getFeaturedDeactivated());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("❌ Deletion job {} failed in phase {}: {}", jobId, job.getPhase(), e.getMessage(), e);
+            DeletionJob failed = jobRepository.findById(jobId).orElse(job);
+            failed.setStatus(DeletionJob.Status.FAILED);
+            failed.setError(e.getMessage());
+            touch(failed);
+        }
+    }
+
+    /**
+     * Process one chunk of the job's current phase in one transaction;
+     * returns false once the phase has nothing left to do
+     */
+    private boolean runChunk(DeletionJob job) {
+        Long userId = job.getUserId();
+        PageRequest chunk = PageRequest.of(0, chunkSize);
+
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            DeletionJob current = jobRepository.findById(job.getId()).orElseThrow();
+            boolean more;
+
+            switch (current.getPhase()) {
+                case AGENT_DEALS:
+                    more = deleteDeals(current, () -> dealStatusRepository.findIdsByAgentId(userId, chunk));
+                    break;
+                case BUYER_DEALS:
+                    more = deleteDeals(current, () -> dealStatusRepository.findIdsByBuyerId(userId, chunk));
+                    break;
+                case SELLER_DEALS:
+                    more = deleteDeals(current, () -> dealStatusRepository.findIdsByPropertyOwnerId(userId, chunk));
+                    break;
+                case PROPERTIES:
+                    more = softDeleteProperties(current, propertyRepository.findIdsToSoftDelete(userId, chunk));
+                    break;
+                case USER:
+                    if (userRepository.existsById(userId)) userRepository.deleteById(userId);
+                    more = false;
+                    break;
+                default:
+                    more = false;
+            }
+
+            current.setUpdatedAt(LocalDateTime.now());
+            jobRepository.save(current);
+            return more;
+        }));
+    }
+
+    private boolean deleteDeals(DeletionJob job, Supplier<List<Long>> nextChunk) {
+        List<Long> ids = nextChunk.get();
+        if (ids.isEmpty()) return false;
+
+        Map<DealStatus.DealStage, Long> byStage = new EnumMap<>(DealStatus.DealStage.class);
+        for (Object[] row : dealStatusRepository.countGroupedByStageForIds(ids)) {
+            if (row[0] != null) byStage.put((DealStatus.DealStage) row[0], ((Number) row[1]).longValue());
+        }
+
+        dealEventRepository.deleteByDealIds(ids);
+        int deleted = dealStatusRepository.deleteByIds(ids);
+        dealStageCounterService.recordDeleted(byStage, deleted);
+
+        job.setDealsDeleted(job.getDealsDeleted() + deleted);
+        return ids.size() == chunkSize;
+    }
+
+    private boolean softDeleteProperties(DeletionJob job, List<Long> ids) {
+        if (ids.isEmpty()) return false;
+
+        LocalDateTime now = LocalDateTime.now();
+        int featured = featuredPropertyRepository.deactivateByPropertyIds(ids, now);
+        int properties = propertyRepository.softDeleteByIds(ids, now);
+
+        // Delivered after this chunk commits (indexes, featured set, snapshot)
+        ids.forEach(id -> eventPublisher.publishEvent(PropertyChangedEvent.removed(id)));
+
+        job.setFeaturedDeactivated(job.getFeaturedDeactivated() + featured);
+        job.setPropertiesDeactivated(job.getPropertiesDeactivated() + properties);
+        return ids.size() == chunkSize;
+    }
+
+    private static DeletionJob.Phase nextPhase(DeletionJob.Phase phase) {
+        DeletionJob.Phase[] phases = DeletionJob.Phase.values();
+        return phases[Math.min(phase.ordinal() + 1, phases.length - 1)];
+    }
+
+    private DeletionJob touch(DeletionJob job) {
+        job.setUpdatedAt(LocalDateTime.now());
+        return jobRepository.save(job);
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.realestate.service;
+
+import com.example.realestate.model.WebhookEvent;
+import com.example.realestate.repository.WebhookEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Razorpay webhook inbox. The controller only verifies the signature and stores the
+ * raw body here (INSERT IGNORE on the unique event id, so retried deliveries are
+ * dropped), then acks; the work happens off the request thread.
+ *
+ * A dispatcher thread reads RECEIVED events in arrival order, a batch at a time,
+ * and hands them to a fixed set of single-thread workers keyed by Razorpay order id,
+ * so events of one order are applied in order while different orders run in
+ * parallel. Each event is applied and marked PROCESSED in one transaction. A failed
+ * event holds back the later events of its order and is retried after a backoff
+ * (webhooks.retry-backoff-ms, doubling per attempt) rather than on the next wake-up,
+ * up to webhooks.max-attempts, after which it is marked FAILED. A drain pages past
+ * held events by id, so they never keep other orders waiting.
+ */
+@Service
+public class WebhookInboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookInboxService.class);
+
+    private static final String INSERT_SQL =
+            "INSERT IGNORE INTO webhook_inbox (event_id, payload, status, attempts, received_at) " +
+            "VALUES (?, ?, 'RECEIVED', 0, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WebhookEventRepository eventRepository;
+    private final BrokerSubscriptionService subscriptionService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "webhook-dispatch");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean drainQueued = new AtomicBoolean(false);
+    private ExecutorService[] workers;
+
+    @Value("${webhooks.workers:4}")
+    private int workerCount;
+
+    @Value("${webhooks.batch-size:100}")
+    private int batchSize;
+
+    @Value("${webhooks.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${webhooks.retry-backoff-ms:5000}")
+    private long retryBackoffMs;
+
+    public WebhookInboxService(JdbcTemplate jdbcTemplate,
+                               WebhookEventRepository eventRepository,
+                               BrokerSubscriptionService subscriptionService,
+                               PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventRepository = eventRepository;
+        this.subscriptionService = subscriptionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void startWorkers() {
+        workers = new ExecutorService[Math.max(1, workerCount)];
+        for (int i = 0; i < workers.length; i++) {
+            String name = "webhook-worker-" + i;
+            workers[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Unprocessed events stay RECEIVED and are picked up on the next start
+        dispatcher.shutdownNow();
+        for (ExecutorService worker : workers) worker.shutdownNow();
+    }
+
+    /**
+     * Store a verified delivery; returns false if this event was already received
+     */
+    public boolean ingest(String eventId, String payload) {
+        int inserted = jdbcTemplate.update(INSERT_SQL, eventId, payload, Timestamp.valueOf(LocalDateTime.now()));
+        if (inserted == 1) wake();
+        return inserted == 1;
+    }
+
+    /**
+     * Razorpay's x-razorpay-event-id, or a digest of the body when the header is missing
+     */
+    public static String eventIdFor(String headerEventId, String payload) {
+        if (headerEventId != null && !headerEventId.isBlank()) return headerEventId.trim();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(payload.getBytes(StandardCharsets.UTF_8));
+            return "sha256:" + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        wake();
+    }
+
+    // Retries and anything a lost wake-up missed
+    @Scheduled(fixedDelayString = "${webhooks.poll-ms:5000}")
+    public void poll() {
+        wake();
+    }
+
+    // ==================== PROCESSING ====================
+
+    private void wake() {
+        if (drainQueued.compareAndSet(false, true)) {
+            dispatcher.submit(this::drain);
+        }
+    }
+
+    private void drain() {
+        drainQueued.set(false);
+        try {
+            // Orders with an event waiting for a retry; their later events wait too
+            Set<String> held = new HashSet<>();
+            long afterId = 0;
+            List<WebhookEvent> batch;
+            do {
+                batch = eventRepository.findReceivedAfter(afterId, PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) return;
+                afterId = batch.get(batch.size() - 1).getId();
+                process(batch, held);
+            } while (batch.size() == batchSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Webhook inbox drain failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Runs the batch's orders that aren't held; adds the ones left with an unsettled event to held
+    private void process(List<WebhookEvent> batch, Set<String> held) throws InterruptedException {
+        long start = System.currentTimeMillis();
+
+        Map<String, List<WebhookEvent>> byOrder = new LinkedHashMap<>();
+        for (WebhookEvent event : batch) {
+            String key = orderKey(event);
+            if (!held.contains(key)) byOrder.computeIfAbsent(key, k -> new ArrayList<>()).add(event);
+        }
+
+        Map<String, Future<Integer>> results = new LinkedHashMap<>();
+        byOrder.forEach((key, events) ->
+                results.put(key, workers[Math.floorMod(key.hashCode(), workers.length)].submit(() -> runInOrder(events))));
+
+        int settled = 0;
+        for (Map.Entry<String, Future<Integer>> result : results.entrySet()) {
+            String key = result.getKey();
+            try {
+                int done = result.getValue().get();
+                settled += done;
+                if (done < byOrder.get(key).size()) held.add(key);
+            } catch (ExecutionException e) {
+                held.add(key);
+                logger.error("Webhook worker failed: {}", e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        logger.info("Processed webhook batch: {} events, {} orders, {} settled, {} orders held in {} ms",
+                batch.size(), byOrder.size(), settled, held.size(), System.currentTimeMillis() - start);
+    }
+
+    // Events of one order, oldest first; stops at the first one that will be retried
+    private int runInOrder(List<WebhookEvent> events) {
+        int settled = 0;
+        for (WebhookEvent event : events) {
+            if (event.getNextAttemptAt() != null && event.getNextAttemptAt().isAfter(LocalDateTime.now())) {
+                break; // still backing off, and it holds back the rest of its order
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    apply(new JSONObject(event.getPayload()));
+                    eventRepository.markProcessed(event.getId(), LocalDateTime.now());
+                });
+                settled++;
+            } catch (Exception e) {
+                long backoffMs = retryBackoffMs << Math.min(event.getAttempts(), 10);
+                eventRepository.recordFailure(event.getId(), e.getMessage(),
+                        LocalDateTime.now().plus(backoffMs, ChronoUnit.MILLIS));
+                if (eventRepository.failIfExhausted(event.getId(), maxAttempts) == 1) {
+                    logger.error("❌ Webhook event {} failed permanently: {}", event.getEventId(), e.getMessage(), e);
+                    settled++;
+                } else {
+                    logger.warn("Webhook event {} failed, will retry: {}", event.getEventId(), e.getMessage());
+                    break;
+                }
+            }
+        }
+        return settled;
+    }
+
+    private void apply(JSONObject webhook) {
+        String event = webhook.getString("event");
+        JSONObject payment = entity(webhook, "payment");
+        if (event.startsWith("payment.") && payment == null) {
+            throw new RuntimeException("Webhook " + event + " has no payment entity");
+        }
+
+        switch (event) {
+            case "payment.captured":
+                // Activation happens in verify-payment; nothing to change here
+                logger.info("💰 Payment captured - Payment ID: {}, Order ID: {}",
+                        payment.optString("id"), payment.optString("order_id"));
+                break;
+
+            case "payment.failed":
+                String orderId = payment.getString("order_id");
+                String errorReason = payment.optString("error_reason", "Unknown error");
+                logger.warn("❌ Payment failed - Order ID: {}, Reason: {}", orderId, errorReason);
+                subscriptionService.handlePaymentFailure(orderId, errorReason);
+                break;
+
+            case "order.paid":
+                logger.info("✅ Order paid - Order ID: {}", orderIdOf(webhook));
+                break;
+
+            default:
+                logger.info("Unhandled webhook event: {}", event);
+        }
+    }
+
+    // Events without an order (or with an unreadable body) get a partition of their own
+    private static String orderKey(WebhookEvent event) {
+        try {
+            String orderId = orderIdOf(new JSONObject(event.getPayload()));
+            if (orderId != null) return orderId;
+        } catch (Exception ignored) {
+            // apply() will fail on it and record the error
+        }
+        return "event:" + event.getId();
+    }
+
+    private static String orderIdOf(JSONObject webhook) {
+        JSONObject order = entity(webhook, "order");
+        if (order != null && order.has("id")) return order.getString("id");
+        JSONObject payment = entity(webhook, "payment");
+        return payment != null && payment.has("order_id") && !payment.isNull("order_id")
+                ? payment.getString("order_id") : null;
+    }
+
+    private static JSONObject entity(JSONObject webhook, String name) {
+        JSONObject payload = webhook.optJSONObject("payload");
+        JSONObject wrapper = payload != null ? payload.optJSONObject(name) : null;
+        return wrapper != null ? wrapper.optJSONObject("entity") : null;
+    }
+}
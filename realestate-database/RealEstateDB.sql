@@ -345,3 +345,119 @@ VALUES
 
 
 
+
+
+-- 6. Keyset pagination indexes for /api/properties/search (pagination = "cursor")
+CREATE INDEX idx_active_created_id ON property (is_active, created_at, id);
+CREATE INDEX idx_active_price_id ON property (is_active, price, id);
+CREATE INDEX idx_active_area_sqft_id ON property (is_active, area_sqft, id);
+
+-- 7. Agent performance rollups (GROUP BY agent_id, stage)
+CREATE INDEX idx_deal_agent_stage ON deal_status (agent_id, stage);
+
+-- 8. Append-only deal timeline (replaces the accumulated deal_status.notes blob)
+CREATE TABLE deal_events (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    deal_id BIGINT NOT NULL,
+    stage VARCHAR(32),
+    author VARCHAR(255),
+    note TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (deal_id) REFERENCES deal_status(id) ON DELETE CASCADE,
+    INDEX idx_deal_events_deal (deal_id, id)
+);
+
+-- Move existing note history into the timeline, then keep only the latest line on the deal
+INSERT INTO deal_events (deal_id, stage, author, note, created_at)
+SELECT id, stage, last_updated_by, notes, COALESCE(updated_at, created_at)
+FROM deal_status
+WHERE notes IS NOT NULL AND notes <> '';
+
+UPDATE deal_status SET notes = SUBSTRING_INDEX(notes, '\n', -1) WHERE notes LIKE '%\n%';
+
+-- 9. Background cascade deletion jobs (users / agents)
+CREATE TABLE deletion_jobs (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    is_agent BOOLEAN NOT NULL DEFAULT FALSE,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    phase VARCHAR(20) NOT NULL,
+    deals_deleted BIGINT NOT NULL DEFAULT 0,
+    properties_deactivated BIGINT NOT NULL DEFAULT 0,
+    featured_deactivated BIGINT NOT NULL DEFAULT 0,
+    error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NULL,
+    completed_at TIMESTAMP NULL,
+    INDEX idx_deletion_jobs_status (status),
+    INDEX idx_deletion_jobs_user (user_id, status)
+);
+
+-- Chunk selection for the deletion job
+CREATE INDEX idx_deal_buyer ON deal_status (buyer_id, id);
+CREATE INDEX idx_property_user_active ON property (user_id, is_active);
+
+-- 10. Coupon usages held by pending featured orders
+CREATE TABLE coupon_reservations (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    coupon_id BIGINT NOT NULL,
+    featured_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'RESERVED',
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NULL,
+    INDEX idx_coupon_res_featured (featured_id, status),
+    INDEX idx_coupon_res_expiry (status, expires_at)
+);
+
+-- 11. Razorpay webhook inbox (one row per event id; retried deliveries are ignored)
+CREATE TABLE webhook_inbox (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    event_id VARCHAR(100) NOT NULL,
+    payload MEDIUMTEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'RECEIVED',
+    attempts INT NOT NULL DEFAULT 0,
+    error TEXT,
+    received_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP NULL,
+    UNIQUE KEY uk_webhook_event (event_id),
+    INDEX idx_webhook_status (status, id)
+);
+
+-- 12. Keyset scans of pending payments (PaymentReconciliationService)
+CREATE INDEX idx_featured_payment_pending ON featured_properties (payment_status, featured_id);
+CREATE INDEX idx_broker_sub_status_id ON broker_subscriptions (status, id);
+
+-- 13. Resized property image variants (ImageVariantService)
+ALTER TABLE property_images
+    ADD COLUMN thumbnail_url VARCHAR(500) NULL,
+    ADD COLUMN card_url VARCHAR(500) NULL,
+    ADD COLUMN detail_url VARCHAR(500) NULL,
+    ADD COLUMN variant_status VARCHAR(20) NOT NULL DEFAULT 'PENDING';
+CREATE INDEX idx_property_images_url ON property_images (image_url);
+CREATE INDEX idx_property_images_variants ON property_images (variant_status, created_at);
+
+-- 14. Content-addressed uploads (BlobStoreService)
+CREATE TABLE blob_store (
+    sha256 CHAR(64) PRIMARY KEY,
+    s3_key VARCHAR(500) NOT NULL,
+    url VARCHAR(500) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    content_type VARCHAR(100),
+    ref_count INT NOT NULL DEFAULT 1,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_blob_s3_key (s3_key)
+);
+
+-- 15. Deduplicate within one owner's key prefix only (BlobStoreService scope)
+ALTER TABLE blob_store
+    DROP PRIMARY KEY,
+    ADD COLUMN id BIGINT AUTO_INCREMENT PRIMARY KEY FIRST,
+    ADD COLUMN scope VARCHAR(255) NOT NULL DEFAULT '' AFTER sha256;
+UPDATE blob_store SET scope = SUBSTRING(s3_key, 1, CHAR_LENGTH(s3_key) - CHAR_LENGTH(SUBSTRING_INDEX(s3_key, '/', -1)));
+-- Only property images release their references; forget the rest (the objects stay)
+DELETE FROM blob_store WHERE s3_key NOT LIKE 'properties/%/images/%';
+ALTER TABLE blob_store ADD UNIQUE KEY uk_blob_content (sha256, scope);
+
+-- 16. Webhook retry backoff (WebhookInboxService)
+ALTER TABLE webhook_inbox ADD COLUMN next_attempt_at TIMESTAMP NULL;